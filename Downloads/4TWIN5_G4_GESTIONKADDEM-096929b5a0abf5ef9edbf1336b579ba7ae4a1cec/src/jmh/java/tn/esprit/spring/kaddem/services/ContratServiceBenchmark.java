@@ -0,0 +1,87 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of {@link ContratServiceImpl} over {@link DonneesEnMemoire}, for 1k to 1M contracts.
+ * The data set is rebuilt before each iteration: renewals and assignments change it.
+ * <p>
+ * {@code mvn -P benchmark test-compile exec:exec -Djmh.benchmarks=ContratServiceBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContratServiceBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int taille;
+
+    private ContratServiceImpl contratService;
+    private Integer[] renouvelables;
+    private Integer[] idsContrats;
+    private Etudiant[] etudiants;
+    private Date debutAnnee;
+    private Date finAnnee;
+    private int curseur;
+
+    @Setup(Level.Iteration)
+    public void charger() {
+        DonneesEnMemoire donnees = DonneesEnMemoire.generer(taille, 42);
+        contratService = donnees.contratService();
+        renouvelables = donnees.renouvelables.toArray(new Integer[0]);
+        idsContrats = donnees.contrats.keySet().toArray(new Integer[0]);
+        etudiants = donnees.etudiants.values().toArray(new Etudiant[0]);
+        LocalDate aujourdhui = LocalDate.now();
+        debutAnnee = Date.from(aujourdhui.withDayOfYear(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        finAnnee = Date.from(aujourdhui.withDayOfYear(aujourdhui.lengthOfYear()).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        curseur = 0;
+    }
+
+    @Benchmark
+    public Contrat renewContract() {
+        int i = curseur++ % renouvelables.length;
+        // for 0 months the new contract ends when the old one did: it can be renewed in turn
+        Contrat renouvele = contratService.renewContract(renouvelables[i], 0);
+        renouvelables[i] = renouvele.getIdContrat();
+        return renouvele;
+    }
+
+    @Benchmark
+    public float calculateMultiplier() {
+        return contratService.calculateMultiplier(etudiants[curseur++ % etudiants.length]);
+    }
+
+    @Benchmark
+    public Contrat affectContratToEtudiant() {
+        int i = curseur++;
+        Etudiant etudiant = etudiants[i % etudiants.length];
+        // another student's contract, most of the time: the counters of both move
+        return contratService.affectContratToEtudiant(idsContrats[(int) ((i * 7919L) % idsContrats.length)],
+                etudiant.getNomE(), etudiant.getPrenomE());
+    }
+
+    @Benchmark
+    public float getChiffreAffaireEntreDeuxDates() {
+        return contratService.getChiffreAffaireEntreDeuxDates(debutAnnee, finAnnee);
+    }
+}
@@ -0,0 +1,262 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import tn.esprit.spring.kaddem.dto.ContratsParSpecialite;
+import tn.esprit.spring.kaddem.dto.EquipeEligible;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.EquipeRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Contracts, students and teams held in maps, behind the repository interfaces the services use, so
+ * that the benchmarks measure the services rather than a database. Only the repository methods of
+ * the benchmarked paths are implemented; the aggregates scan the maps like the database scans the
+ * tables.
+ * <p>
+ * Each student has 4 contracts: one active that ends within the month (renewable), one active that
+ * ended in the last 4 years and was not archived yet, two archived ones. Teams hold 10 students.
+ */
+final class DonneesEnMemoire {
+    static final int CONTRATS_PAR_ETUDIANT = 4;
+    private static final int ETUDIANTS_PAR_EQUIPE = 10;
+
+    final Map<Integer, Contrat> contrats = new HashMap<>();
+    final Map<Integer, Etudiant> etudiants = new HashMap<>();
+    final Map<Integer, Equipe> equipes = new HashMap<>();
+    // the renewable contract of each student, by student
+    final List<Integer> renouvelables = new ArrayList<>();
+    private final Map<String, Etudiant> etudiantsParNom = new HashMap<>();
+    private int prochainIdContrat;
+
+    final ContratRepository contratRepository = depot(ContratRepository.class, (proxy, methode, args) -> switch (methode.getName()) {
+        case "findById" -> Optional.ofNullable(contrats.get((Integer) args[0]));
+        case "findByIdContrat" -> contrats.get((Integer) args[0]);
+        case "findIdEtudiant" -> {
+            Contrat contrat = contrats.get((Integer) args[0]);
+            yield contrat == null || contrat.getEtudiant() == null ? null : contrat.getEtudiant().getIdEtudiant();
+        }
+        case "save" -> sauver((Contrat) args[0]);
+        case "countContratsParSpecialite" -> contratsParSpecialite();
+        default -> nonSupportee(methode.getName());
+    });
+
+    final EtudiantRepository etudiantRepository = depot(EtudiantRepository.class, (proxy, methode, args) -> switch (methode.getName()) {
+        case "findIdEtudiant" -> {
+            Etudiant etudiant = etudiantsParNom.get(cle((String) args[0], (String) args[1]));
+            yield etudiant == null ? null : etudiant.getIdEtudiant();
+        }
+        case "findByNomEAndPrenomE" -> etudiantsParNom.get(cle((String) args[0], (String) args[1]));
+        // the stored instances are the rows: CompteursContrats already moves their counters, and no one else writes
+        // them, so the version-checked variant always finds its row
+        case "ajusterCompteurs" -> 1;
+        default -> nonSupportee(methode.getName());
+    });
+
+    @SuppressWarnings("unchecked")
+    final EquipeRepository equipeRepository = depot(EquipeRepository.class, (proxy, methode, args) -> switch (methode.getName()) {
+        case "findEquipesAPromouvoir" -> equipesAPromouvoir((Collection<Niveau>) args[0], (Date) args[1], (Long) args[2]);
+        case "changerNiveau" -> changerNiveau((Collection<Integer>) args[0], (Niveau) args[1], (Niveau) args[2]);
+        default -> nonSupportee(methode.getName());
+    });
+
+    final PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    };
+
+    /** {@code nbContrats} contracts (a multiple of 4), always the same for the same seed. */
+    static DonneesEnMemoire generer(int nbContrats, long graine) {
+        DonneesEnMemoire donnees = new DonneesEnMemoire();
+        Random random = new Random(graine);
+        LocalDate aujourdhui = LocalDate.now();
+        Specialite[] specialites = Specialite.values();
+        Niveau[] niveaux = Niveau.values();
+        Equipe equipe = null;
+        for (int i = 0; i < nbContrats / CONTRATS_PAR_ETUDIANT; i++) {
+            Etudiant etudiant = new Etudiant(i, "Nom" + i, "Prenom" + i, null);
+            donnees.etudiants.put(i, etudiant);
+            donnees.etudiantsParNom.put(cle(etudiant.getNomE(), etudiant.getPrenomE()), etudiant);
+            if (i % ETUDIANTS_PAR_EQUIPE == 0) {
+                equipe = new Equipe(donnees.equipes.size(), "Equipe" + donnees.equipes.size(), niveaux[random.nextInt(niveaux.length)]);
+                equipe.setEtudiants(new HashSet<>());
+                donnees.equipes.put(equipe.getIdEquipe(), equipe);
+            }
+            equipe.getEtudiants().add(etudiant);
+
+            LocalDate finRenouvelable = aujourdhui.plusDays(1 + random.nextInt(28));
+            LocalDate finExpire = aujourdhui.minusDays(1 + random.nextInt(4 * 365));
+            LocalDate[] fins = {finRenouvelable, finExpire,
+                    aujourdhui.minusDays(1 + random.nextInt(4 * 365)), aujourdhui.minusDays(1 + random.nextInt(4 * 365))};
+            for (int k = 0; k < CONTRATS_PAR_ETUDIANT; k++) {
+                boolean archive = k >= 2;
+                Contrat contrat = new Contrat(date(fins[k].minusYears(1)), date(fins[k]),
+                        specialites[random.nextInt(specialites.length)], archive, 500 + random.nextInt(1000));
+                contrat.setEtudiant(etudiant);
+                donnees.sauver(contrat);
+                if (archive) {
+                    etudiant.setNbContratsArchives(etudiant.getNbContratsArchives() + 1);
+                } else {
+                    etudiant.setNbContratsActifs(etudiant.getNbContratsActifs() + 1);
+                }
+                etudiant.setMontantTotalContrats(etudiant.getMontantTotalContrats() + contrat.getMontantContrat());
+                if (k == 0) {
+                    donnees.renouvelables.add(contrat.getIdContrat());
+                }
+            }
+        }
+        return donnees;
+    }
+
+    ContratServiceImpl contratService() {
+        CompteursContrats compteursContrats = new CompteursContrats();
+        compteursContrats.etudiantRepository = etudiantRepository;
+        ConcurrenceEtudiants concurrenceEtudiants = new ConcurrenceEtudiants();
+        concurrenceEtudiants.transactionManager = transactionManager;
+        concurrenceEtudiants.tentatives = 5;
+        concurrenceEtudiants.pauseInitialeMs = 10;
+        concurrenceEtudiants.pauseMaxMs = 200;
+        concurrenceEtudiants.nbVerrous = 64;
+        concurrenceEtudiants.init();
+        ContratServiceImpl contratService = new ContratServiceImpl();
+        contratService.contratRepository = contratRepository;
+        contratService.etudiantRepository = etudiantRepository;
+        contratService.eventPublisher = event -> {
+        };
+        contratService.compteursContrats = compteursContrats;
+        contratService.concurrenceEtudiants = concurrenceEtudiants;
+        return contratService;
+    }
+
+    EquipeServiceImpl equipeService() {
+        return new EquipeServiceImpl(equipeRepository, etudiantRepository);
+    }
+
+    private Contrat sauver(Contrat contrat) {
+        if (contrat.getIdContrat() == null) {
+            contrat.setIdContrat(prochainIdContrat++);
+        }
+        contrats.put(contrat.getIdContrat(), contrat);
+        return contrat;
+    }
+
+    private List<ContratsParSpecialite> contratsParSpecialite() {
+        Map<Specialite, long[]> parSpecialite = new EnumMap<>(Specialite.class);
+        for (Contrat contrat : contrats.values()) {
+            long[] ligne = parSpecialite.computeIfAbsent(contrat.getSpecialite(), s -> new long[2]);
+            ligne[0]++;
+            ligne[1] += contrat.getMontantContrat();
+        }
+        List<ContratsParSpecialite> lignes = new ArrayList<>();
+        parSpecialite.forEach((specialite, ligne) -> lignes.add(new ContratsParSpecialite() {
+            public Specialite getSpecialite() {
+                return specialite;
+            }
+
+            public Long getNbContrats() {
+                return ligne[0];
+            }
+
+            public Long getMontantTotal() {
+                return ligne[1];
+            }
+        }));
+        return lignes;
+    }
+
+    private List<EquipeEligible> equipesAPromouvoir(Collection<Niveau> niveaux, Date dateLimite, long nbEtudiantsMin) {
+        // students with a non-archived contract that ended on or before the limit
+        Set<Integer> qualifies = new HashSet<>();
+        for (Contrat contrat : contrats.values()) {
+            if (Boolean.FALSE.equals(contrat.getArchive()) && contrat.getEtudiant() != null
+                    && !contrat.getDateFinContrat().after(dateLimite)) {
+                qualifies.add(contrat.getEtudiant().getIdEtudiant());
+            }
+        }
+        List<EquipeEligible> eligibles = new ArrayList<>();
+        for (Equipe equipe : equipes.values()) {
+            if (!niveaux.contains(equipe.getNiveau())) {
+                continue;
+            }
+            long nbEtudiants = equipe.getEtudiants().stream().filter(etudiant -> qualifies.contains(etudiant.getIdEtudiant())).count();
+            if (nbEtudiants >= nbEtudiantsMin) {
+                Niveau niveau = equipe.getNiveau();
+                eligibles.add(new EquipeEligible() {
+                    public Integer getIdEquipe() {
+                        return equipe.getIdEquipe();
+                    }
+
+                    public Niveau getNiveau() {
+                        return niveau;
+                    }
+
+                    public Long getNbEtudiants() {
+                        return nbEtudiants;
+                    }
+                });
+            }
+        }
+        return eligibles;
+    }
+
+    private int changerNiveau(Collection<Integer> ids, Niveau ancienNiveau, Niveau nouveauNiveau) {
+        int nombre = 0;
+        for (Integer id : ids) {
+            Equipe equipe = equipes.get(id);
+            if (equipe != null && equipe.getNiveau() == ancienNiveau) {
+                equipe.setNiveau(nouveauNiveau);
+                nombre++;
+            }
+        }
+        return nombre;
+    }
+
+    private static <T> T depot(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object nonSupportee(String methode) {
+        throw new UnsupportedOperationException(methode + " is not on a benchmarked path");
+    }
+
+    private static String cle(String nom, String prenom) {
+        return nom + '\u0000' + prenom;
+    }
+
+    private static Date date(LocalDate jour) {
+        return Date.from(jour.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
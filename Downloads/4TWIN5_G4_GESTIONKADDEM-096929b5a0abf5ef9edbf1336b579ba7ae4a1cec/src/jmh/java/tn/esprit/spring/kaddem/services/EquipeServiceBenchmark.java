@@ -0,0 +1,60 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Niveau;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EquipeServiceImpl#evoluerEquipes()} over {@link DonneesEnMemoire}, for 1k to 1M contracts.
+ * <p>
+ * {@code mvn -P benchmark test-compile exec:exec -Djmh.benchmarks=EquipeServiceBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EquipeServiceBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int taille;
+
+    private EquipeServiceImpl equipeService;
+    private final Map<Equipe, Niveau> niveaux = new HashMap<>();
+
+    @Setup(Level.Trial)
+    public void charger() {
+        DonneesEnMemoire donnees = DonneesEnMemoire.generer(taille, 42);
+        equipeService = donnees.equipeService();
+        donnees.equipes.values().forEach(equipe -> niveaux.put(equipe, equipe.getNiveau()));
+    }
+
+    // each call promotes the teams: put them back, or every call after the second would promote none.
+    // The call scans every contract, which dwarfs the per-invocation setup.
+    @Setup(Level.Invocation)
+    public void retablirNiveaux() {
+        niveaux.forEach(Equipe::setNiveau);
+    }
+
+    @Benchmark
+    public List<PromotionEquipe> evoluerEquipes() {
+        return equipeService.evoluerEquipes();
+    }
+}
@@ -2,10 +2,12 @@ package tn.esprit.spring.kaddem;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableScheduling
-@SpringBootApplication
+// the reactive API (reactif profile) builds its own R2DBC pool: a ConnectionFactory bean would replace the JDBC data source
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class KaddemApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,104 @@
+package tn.esprit.spring.kaddem.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.events.ContratEvent;
+import tn.esprit.spring.kaddem.events.ContratsArchivesEvent;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of contracts by id, in front of {@code ContratServiceImpl.retrieveContrat}. It holds
+ * {@link ContratVue} records: immutable, nothing a caller could modify in place, no session attached.
+ * <p>
+ * Caffeine (W-TinyLFU eviction) bounded by {@code kaddem.cache.contrat.taille-max}. Unknown ids are
+ * cached too, for {@code kaddem.cache.contrat.ttl-absent} only, so that they cannot hammer the
+ * database. Entries are dropped after each committed write of the contract service, the bulk import
+ * and the archiving job. A load that runs while a write commits cannot survive it: Caffeine makes
+ * the invalidation wait for the load in progress on the same id.
+ */
+@Component
+public class ContratCache implements MeterBinder {
+    public static final String NOM = "contrats";
+
+    @Value("${kaddem.cache.contrat.taille-max:100000}")
+    long tailleMax;
+    @Value("${kaddem.cache.contrat.ttl:10m}")
+    Duration ttl;
+    @Value("${kaddem.cache.contrat.ttl-absent:5s}")
+    Duration ttlAbsent;
+
+    private Cache<Integer, Optional<ContratVue>> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfter(new Expiry<Integer, Optional<ContratVue>>() {
+                    @Override
+                    public long expireAfterCreate(Integer idContrat, Optional<ContratVue> contrat, long currentTime) {
+                        return (contrat.isPresent() ? ttl : ttlAbsent).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Integer idContrat, Optional<ContratVue> contrat, long currentTime, long currentDuration) {
+                        return expireAfterCreate(idContrat, contrat, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Integer idContrat, Optional<ContratVue> contrat, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /** The cached contract, or the one returned by {@code chargement} (cached, even when absent). */
+    public ContratVue get(Integer idContrat, Function<Integer, Optional<ContratVue>> chargement) {
+        return cache.get(idContrat, chargement).orElse(null);
+    }
+
+    public void invalider(Integer idContrat) {
+        if (idContrat != null) {
+            cache.invalidate(idContrat);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContrat(ContratEvent event) {
+        if (event.getContrat() != null) {
+            invalider(event.getContrat().getIdContrat());
+        }
+    }
+
+    /** Drops the entries the bulk UPDATE has just archived. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContratsArchives(ContratsArchivesEvent event) {
+        cache.asMap().values().removeIf(contrat -> contrat.isPresent()
+                && !Boolean.TRUE.equals(contrat.get().archive())
+                && contrat.get().dateFinContrat() != null
+                && contrat.get().dateFinContrat().before(event.getDateLimite()));
+    }
+
+    /** The underlying cache, for statistics. */
+    public Cache<?, ?> getCache() {
+        return cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, NOM);
+    }
+}
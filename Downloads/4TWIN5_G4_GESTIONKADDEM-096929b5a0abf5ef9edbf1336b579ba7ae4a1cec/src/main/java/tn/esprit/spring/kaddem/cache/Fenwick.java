@@ -0,0 +1,44 @@
+package tn.esprit.spring.kaddem.cache;
+
+/** Fenwick (binary indexed) tree of counts over the positions 0..taille-1: updates and range sums in O(log n). */
+final class Fenwick {
+    private final int[] arbre;
+
+    /** Built in O(n) from the initial count of each position. */
+    Fenwick(int[] comptes) {
+        arbre = new int[comptes.length + 1];
+        System.arraycopy(comptes, 0, arbre, 1, comptes.length);
+        for (int i = 1; i < arbre.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < arbre.length) {
+                arbre[parent] += arbre[i];
+            }
+        }
+    }
+
+    int taille() {
+        return arbre.length - 1;
+    }
+
+    void ajouter(int position, int delta) {
+        for (int i = position + 1; i < arbre.length; i += i & -i) {
+            arbre[i] += delta;
+        }
+    }
+
+    /** Sum over [de, a], both clamped to the positions of the tree. */
+    int somme(int de, int a) {
+        de = Math.max(de, 0);
+        a = Math.min(a, taille() - 1);
+        return de > a ? 0 : prefixe(a) - prefixe(de - 1);
+    }
+
+    /** Sum over [0, position]. */
+    private int prefixe(int position) {
+        int somme = 0;
+        for (int i = position + 1; i > 0; i -= i & -i) {
+            somme += arbre[i];
+        }
+        return somme;
+    }
+}
@@ -0,0 +1,360 @@
+package tn.esprit.spring.kaddem.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tn.esprit.spring.kaddem.dto.ContratPeriode;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.events.ContratEvent;
+import tn.esprit.spring.kaddem.events.ContratsArchivesEvent;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers {@code ContratRepository.getnbContratsValides} (archived contracts that start or end in a
+ * range) from memory, for the dashboards that poll it.
+ * <p>
+ * Per-day counts of the start dates and of the end dates are kept in two Fenwick trees over epoch
+ * days. Their range sums count twice the contracts whose two dates fall in the range; those are
+ * counted by a merge sort tree over the (earliest, latest) date pairs, rebuilt from the contracts
+ * once {@code kaddem.index-contrats-valides.seuil-reconstruction} changes have piled up beside it.
+ * A range is answered in O(log² n) plus the pending changes.
+ * <p>
+ * Loaded on first use, then follows the events of the contract writes. The archiving job changes
+ * contracts it does not list, so it makes the next query reload from the database.
+ */
+@Slf4j
+@Component
+public class IndexContratsValides {
+    // room left around the known dates, so that new contracts rarely force a rebuild
+    private static final int JOURS_AVANT = 366;
+    private static final int JOURS_APRES = 3660;
+    private static final int SANS_DATE = Integer.MIN_VALUE;
+
+    @Autowired
+    ContratRepository contratRepository;
+
+    @Value("${kaddem.index-contrats-valides.seuil-reconstruction:1024}")
+    int seuilReconstruction;
+
+    private volatile boolean aRecharger = true;
+    private final Object chargement = new Object();
+    // archived contracts by id; null until the first load
+    private Map<Integer, Periode> periodes;
+    // events received while a load reads the table, replayed on top of it
+    private List<ContratEvent> pendantChargement;
+
+    private boolean aReconstruire;
+    private int origine;
+    private Fenwick debuts;
+    private Fenwick fins;
+    private Inclusions inclusions;
+    private final List<Periode> ajouts = new ArrayList<>();
+    private final List<Periode> retraits = new ArrayList<>();
+
+    /** Same result as {@code ContratRepository.getnbContratsValides(startDate, endDate)}. */
+    public int compter(Date startDate, Date endDate) {
+        if (startDate == null || endDate == null) {
+            // BETWEEN null is never true
+            return 0;
+        }
+        charger();
+        // the parameters are bound with the columns' DATE type: the time of day is dropped on both ends
+        int de = Jours.jour(startDate);
+        int a = Jours.jour(endDate);
+        if (de > a) {
+            return 0;
+        }
+        synchronized (this) {
+            if (aReconstruire) {
+                reconstruire();
+            }
+            int deux = inclusions.compter(de, a);
+            for (Periode periode : ajouts) {
+                deux += periode.incluseDans(de, a) ? 1 : 0;
+            }
+            for (Periode periode : retraits) {
+                deux -= periode.incluseDans(de, a) ? 1 : 0;
+            }
+            return debuts.somme(de - origine, a - origine) + fins.somme(de - origine, a - origine) - deux;
+        }
+    }
+
+    /** Forgets the index; the next query reloads it from the database. */
+    public void invalider() {
+        aRecharger = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onContrat(ContratEvent event) {
+        if (event.getContrat() == null || event.getContrat().getIdContrat() == null) {
+            return;
+        }
+        if (pendantChargement != null) {
+            pendantChargement.add(event);
+        } else if (periodes != null) {
+            appliquer(event);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContratsArchives(ContratsArchivesEvent event) {
+        invalider();
+    }
+
+    private void charger() {
+        if (!aRecharger) {
+            return;
+        }
+        synchronized (chargement) {
+            if (!aRecharger) {
+                return;
+            }
+            synchronized (this) {
+                aRecharger = false;
+                pendantChargement = new ArrayList<>();
+            }
+            // read outside the lock: the listeners only queue their events meanwhile
+            List<ContratPeriode> lignes;
+            try {
+                lignes = contratRepository.findPeriodesArchivees();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    aRecharger = true;
+                    pendantChargement = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                periodes = new HashMap<>(lignes.size() * 2);
+                for (ContratPeriode ligne : lignes) {
+                    periodes.put(ligne.getIdContrat(), new Periode(jourOuVide(ligne.getDateDebutContrat()), jourOuVide(ligne.getDateFinContrat())));
+                }
+                aReconstruire = true;
+                pendantChargement.forEach(this::appliquer);
+                pendantChargement = null;
+                reconstruire();
+            }
+            log.info("Archived contracts date index loaded: {} contracts", lignes.size());
+        }
+    }
+
+    private void appliquer(ContratEvent event) {
+        Contrat contrat = event.getContrat();
+        Periode avant = periodes.remove(contrat.getIdContrat());
+        if (avant != null) {
+            retirer(avant);
+        }
+        if (event.getType() != ContratEvent.Type.SUPPRESSION && Boolean.TRUE.equals(contrat.getArchive())) {
+            Periode periode = new Periode(jourOuVide(contrat.getDateDebutContrat()), jourOuVide(contrat.getDateFinContrat()));
+            periodes.put(contrat.getIdContrat(), periode);
+            ajouter(periode);
+        }
+    }
+
+    private void ajouter(Periode periode) {
+        if (aReconstruire) {
+            return;
+        }
+        if (!dansLeDomaine(periode.debut) || !dansLeDomaine(periode.fin)) {
+            aReconstruire = true;
+            return;
+        }
+        compter(periode, 1);
+        if (periode.complete()) {
+            ajouts.add(periode);
+            verifierSeuil();
+        }
+    }
+
+    private void retirer(Periode periode) {
+        if (aReconstruire) {
+            return;
+        }
+        compter(periode, -1);
+        if (periode.complete()) {
+            // removing a pending addition is enough; otherwise it cancels one pair of the tree
+            if (!ajouts.remove(periode)) {
+                retraits.add(periode);
+                verifierSeuil();
+            }
+        }
+    }
+
+    private void compter(Periode periode, int delta) {
+        if (periode.debut != SANS_DATE) {
+            debuts.ajouter(periode.debut - origine, delta);
+        }
+        if (periode.fin != SANS_DATE) {
+            fins.ajouter(periode.fin - origine, delta);
+        }
+    }
+
+    private void verifierSeuil() {
+        if (ajouts.size() + retraits.size() > seuilReconstruction) {
+            aReconstruire = true;
+        }
+    }
+
+    private boolean dansLeDomaine(int jour) {
+        return jour == SANS_DATE || (jour >= origine && jour - origine < debuts.taille());
+    }
+
+    /** Rebuilds the trees from the contracts, over a domain that covers all their dates. */
+    private void reconstruire() {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        int nbCompletes = 0;
+        for (Periode periode : periodes.values()) {
+            for (int jour : new int[]{periode.debut, periode.fin}) {
+                if (jour != SANS_DATE) {
+                    min = Math.min(min, jour);
+                    max = Math.max(max, jour);
+                }
+            }
+            nbCompletes += periode.complete() ? 1 : 0;
+        }
+        if (min > max) {
+            min = max = (int) LocalDate.now().toEpochDay();
+        }
+        origine = min - JOURS_AVANT;
+        int[] parDebut = new int[max - origine + 1 + JOURS_APRES];
+        int[] parFin = new int[parDebut.length];
+        Periode[] completes = new Periode[nbCompletes];
+        int i = 0;
+        for (Periode periode : periodes.values()) {
+            if (periode.debut != SANS_DATE) {
+                parDebut[periode.debut - origine]++;
+            }
+            if (periode.fin != SANS_DATE) {
+                parFin[periode.fin - origine]++;
+            }
+            if (periode.complete()) {
+                completes[i++] = periode;
+            }
+        }
+        debuts = new Fenwick(parDebut);
+        fins = new Fenwick(parFin);
+        inclusions = new Inclusions(completes);
+        ajouts.clear();
+        retraits.clear();
+        aReconstruire = false;
+    }
+
+    private static int jourOuVide(Date date) {
+        return date == null ? SANS_DATE : Jours.jour(date);
+    }
+
+    /** Start and end day of an archived contract ({@link #SANS_DATE} when the date is missing). */
+    private record Periode(int debut, int fin) {
+        boolean complete() {
+            return debut != SANS_DATE && fin != SANS_DATE;
+        }
+
+        /** Both dates in [de, a], in whatever order they are. */
+        boolean incluseDans(int de, int a) {
+            return Math.min(debut, fin) >= de && Math.max(debut, fin) <= a;
+        }
+    }
+
+    /**
+     * Static merge sort tree over the contracts with both dates: the pairs sorted by earliest day, and
+     * a segment tree whose nodes hold the sorted latest days of their range.
+     */
+    private static final class Inclusions {
+        private static final int[] VIDE = new int[0];
+        private final int[] plusTot;
+        private final int feuilles;
+        private final int[][] plusTard;
+
+        Inclusions(Periode[] periodes) {
+            int[][] paires = new int[periodes.length][];
+            for (int i = 0; i < periodes.length; i++) {
+                Periode periode = periodes[i];
+                paires[i] = new int[]{Math.min(periode.debut, periode.fin), Math.max(periode.debut, periode.fin)};
+            }
+            Arrays.sort(paires, (p, q) -> Integer.compare(p[0], q[0]));
+            plusTot = new int[paires.length];
+            int taille = 1;
+            while (taille < paires.length) {
+                taille <<= 1;
+            }
+            feuilles = taille;
+            plusTard = new int[2 * taille][];
+            for (int i = 0; i < taille; i++) {
+                if (i < paires.length) {
+                    plusTot[i] = paires[i][0];
+                    plusTard[taille + i] = new int[]{paires[i][1]};
+                } else {
+                    plusTard[taille + i] = VIDE;
+                }
+            }
+            for (int i = taille - 1; i >= 1; i--) {
+                plusTard[i] = fusionner(plusTard[2 * i], plusTard[2 * i + 1]);
+            }
+        }
+
+        /** Pairs with earliest >= de and latest <= a. */
+        int compter(int de, int a) {
+            int nombre = 0;
+            int gauche = premierAuMoins(plusTot, plusTot.length, de) + feuilles;
+            int droite = plusTot.length + feuilles;
+            while (gauche < droite) {
+                if ((gauche & 1) == 1) {
+                    nombre += premierAuMoins(plusTard[gauche], plusTard[gauche].length, a + 1);
+                    gauche++;
+                }
+                if ((droite & 1) == 1) {
+                    droite--;
+                    nombre += premierAuMoins(plusTard[droite], plusTard[droite].length, a + 1);
+                }
+                gauche >>= 1;
+                droite >>= 1;
+            }
+            return nombre;
+        }
+
+        private static int premierAuMoins(int[] tries, int longueur, int valeur) {
+            int bas = 0;
+            int haut = longueur;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (tries[milieu] < valeur) {
+                    bas = milieu + 1;
+                } else {
+                    haut = milieu;
+                }
+            }
+            return bas;
+        }
+
+        private static int[] fusionner(int[] p, int[] q) {
+            if (q.length == 0) {
+                return p;
+            }
+            int[] fusion = new int[p.length + q.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < p.length && j < q.length) {
+                fusion[k++] = p[i] <= q[j] ? p[i++] : q[j++];
+            }
+            while (i < p.length) {
+                fusion[k++] = p[i++];
+            }
+            while (j < q.length) {
+                fusion[k++] = q[j++];
+            }
+            return fusion;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package tn.esprit.spring.kaddem.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tn.esprit.spring.kaddem.dto.ContratIntervalle;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.events.ContratEvent;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Contracts active on a day, or overlapping a range of days, answered from memory for billing and
+ * audits instead of reading every contract.
+ * <p>
+ * One augmented interval tree per specialite: the intervals sorted by start day in an implicit
+ * balanced tree whose nodes also hold the latest end day below them, so a query only walks down
+ * branches that hold a match: O(log n + k). Writes go to a list of pending intervals, and replaced
+ * or deleted ones are skipped when read; the trees are rebuilt once
+ * {@code kaddem.index-periodes-contrats.seuil-reconstruction} changes have piled up. The student
+ * filter reads the student's own contracts.
+ * <p>
+ * Days are compared like DATE columns, time of day dropped. A contract without both dates, or that
+ * ends before it starts, is never active. Loaded on first use, then follows the events of the
+ * contract writes.
+ */
+@Slf4j
+@Component
+public class IndexPeriodesContrats {
+    private static final Comparator<Intervalle> PAR_DEBUT =
+            Comparator.comparingInt(Intervalle::debut).thenComparingInt(Intervalle::idContrat);
+
+    @Autowired
+    ContratRepository contratRepository;
+
+    @Value("${kaddem.index-periodes-contrats.seuil-reconstruction:1024}")
+    int seuilReconstruction;
+
+    private volatile boolean aRecharger = true;
+    private final Object chargement = new Object();
+    // current interval of each contract; null until the first load
+    private Map<Integer, Intervalle> intervalles;
+    private Map<Integer, Set<Integer>> contratsParEtudiant;
+    // events received while a load reads the table, replayed on top of it
+    private List<ContratEvent> pendantChargement;
+
+    private boolean aReconstruire;
+    // by specialite, null key for the contracts without one
+    private Map<Specialite, Arbre> arbres;
+    private final List<Intervalle> ajouts = new ArrayList<>();
+    // intervals of the trees that were replaced or deleted since they were built
+    private int perimes;
+
+    /** Ids of the contracts active on that day, by start day, optionally of one specialite and/or one student. */
+    public List<Integer> actifsLe(Date date, Specialite specialite, Integer idEtudiant) {
+        return chevauchant(date, date, specialite, idEtudiant);
+    }
+
+    /** Ids of the contracts whose [start, end] shares a day with [startDate, endDate], by start day. */
+    public List<Integer> chevauchant(Date startDate, Date endDate, Specialite specialite, Integer idEtudiant) {
+        if (startDate == null || endDate == null) {
+            return List.of();
+        }
+        int de = Jours.jour(startDate);
+        int a = Jours.jour(endDate);
+        if (de > a) {
+            return List.of();
+        }
+        charger();
+        List<Intervalle> trouves = new ArrayList<>();
+        synchronized (this) {
+            if (aReconstruire) {
+                reconstruire();
+            }
+            if (idEtudiant != null) {
+                for (Integer idContrat : contratsParEtudiant.getOrDefault(idEtudiant, Set.of())) {
+                    Intervalle intervalle = intervalles.get(idContrat);
+                    if (intervalle.chevauche(de, a) && (specialite == null || intervalle.specialite() == specialite)) {
+                        trouves.add(intervalle);
+                    }
+                }
+            } else {
+                for (Map.Entry<Specialite, Arbre> arbre : arbres.entrySet()) {
+                    if (specialite == null || arbre.getKey() == specialite) {
+                        arbre.getValue().chercher(de, a, trouves);
+                    }
+                }
+                // replaced or deleted since the trees were built
+                trouves.removeIf(intervalle -> intervalles.get(intervalle.idContrat()) != intervalle);
+                for (Intervalle intervalle : ajouts) {
+                    if (intervalle.chevauche(de, a) && (specialite == null || intervalle.specialite() == specialite)) {
+                        trouves.add(intervalle);
+                    }
+                }
+            }
+        }
+        trouves.sort(PAR_DEBUT);
+        List<Integer> ids = new ArrayList<>(trouves.size());
+        trouves.forEach(intervalle -> ids.add(intervalle.idContrat()));
+        return ids;
+    }
+
+    /** Forgets the index; the next query reloads it from the database. */
+    public void invalider() {
+        aRecharger = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onContrat(ContratEvent event) {
+        if (event.getContrat() == null || event.getContrat().getIdContrat() == null) {
+            return;
+        }
+        if (pendantChargement != null) {
+            pendantChargement.add(event);
+        } else if (intervalles != null) {
+            appliquer(event);
+        }
+    }
+
+    private void charger() {
+        if (!aRecharger) {
+            return;
+        }
+        synchronized (chargement) {
+            if (!aRecharger) {
+                return;
+            }
+            synchronized (this) {
+                aRecharger = false;
+                pendantChargement = new ArrayList<>();
+            }
+            // read outside the lock: the listeners only queue their events meanwhile
+            List<ContratIntervalle> lignes;
+            try {
+                lignes = contratRepository.findIntervalles();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    aRecharger = true;
+                    pendantChargement = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                intervalles = new HashMap<>(lignes.size() * 2);
+                contratsParEtudiant = new HashMap<>();
+                aReconstruire = true;
+                for (ContratIntervalle ligne : lignes) {
+                    mettre(new Intervalle(ligne.getIdContrat(), Jours.jour(ligne.getDateDebutContrat()),
+                            Jours.jour(ligne.getDateFinContrat()), ligne.getSpecialite(), ligne.getIdEtudiant()));
+                }
+                pendantChargement.forEach(this::appliquer);
+                pendantChargement = null;
+                reconstruire();
+            }
+            log.info("Contract periods index loaded: {} contracts", lignes.size());
+        }
+    }
+
+    private void appliquer(ContratEvent event) {
+        Contrat contrat = event.getContrat();
+        Intervalle avant = intervalles.remove(contrat.getIdContrat());
+        if (avant != null) {
+            if (avant.idEtudiant() != null) {
+                contratsParEtudiant.get(avant.idEtudiant()).remove(avant.idContrat());
+            }
+            if (!aReconstruire && !ajouts.remove(avant)) {
+                perimes++;
+            }
+        }
+        if (event.getType() != ContratEvent.Type.SUPPRESSION
+                && contrat.getDateDebutContrat() != null && contrat.getDateFinContrat() != null) {
+            Intervalle intervalle = new Intervalle(contrat.getIdContrat(), Jours.jour(contrat.getDateDebutContrat()),
+                    Jours.jour(contrat.getDateFinContrat()), contrat.getSpecialite(),
+                    contrat.getEtudiant() == null ? null : contrat.getEtudiant().getIdEtudiant());
+            if (intervalle.debut() <= intervalle.fin()) {
+                mettre(intervalle);
+                if (!aReconstruire) {
+                    ajouts.add(intervalle);
+                }
+            }
+        }
+        if (ajouts.size() + perimes > seuilReconstruction) {
+            aReconstruire = true;
+        }
+    }
+
+    private void mettre(Intervalle intervalle) {
+        intervalles.put(intervalle.idContrat(), intervalle);
+        if (intervalle.idEtudiant() != null) {
+            contratsParEtudiant.computeIfAbsent(intervalle.idEtudiant(), id -> new HashSet<>()).add(intervalle.idContrat());
+        }
+    }
+
+    private void reconstruire() {
+        Map<Specialite, List<Intervalle>> parSpecialite = new HashMap<>();
+        for (Intervalle intervalle : intervalles.values()) {
+            parSpecialite.computeIfAbsent(intervalle.specialite(), s -> new ArrayList<>()).add(intervalle);
+        }
+        arbres = new HashMap<>();
+        parSpecialite.forEach((specialite, liste) -> arbres.put(specialite, new Arbre(liste)));
+        ajouts.clear();
+        perimes = 0;
+        aReconstruire = false;
+    }
+
+    /** Days of a contract, with what the queries filter on. */
+    private record Intervalle(int idContrat, int debut, int fin, Specialite specialite, Integer idEtudiant) {
+        boolean chevauche(int de, int a) {
+            return debut <= a && fin >= de;
+        }
+    }
+
+    /**
+     * Static augmented interval tree: the intervals sorted by start day are the in-order walk of an
+     * implicit balanced tree, the node of [bas, haut) being its middle, where the latest end day of
+     * [bas, haut) is kept.
+     */
+    private static final class Arbre {
+        private final Intervalle[] intervalles;
+        private final int[] finMax;
+
+        Arbre(List<Intervalle> liste) {
+            intervalles = liste.toArray(new Intervalle[0]);
+            Arrays.sort(intervalles, PAR_DEBUT);
+            finMax = new int[intervalles.length];
+            construire(0, intervalles.length);
+        }
+
+        private int construire(int bas, int haut) {
+            if (bas >= haut) {
+                return Integer.MIN_VALUE;
+            }
+            int milieu = (bas + haut) >>> 1;
+            finMax[milieu] = Math.max(intervalles[milieu].fin(), Math.max(construire(bas, milieu), construire(milieu + 1, haut)));
+            return finMax[milieu];
+        }
+
+        void chercher(int de, int a, List<Intervalle> trouves) {
+            chercher(0, intervalles.length, de, a, trouves);
+        }
+
+        private void chercher(int bas, int haut, int de, int a, List<Intervalle> trouves) {
+            // the right half is walked in the loop, so only the left halves recurse
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (finMax[milieu] < de) {
+                    // everything below ends before the range
+                    return;
+                }
+                chercher(bas, milieu, de, a, trouves);
+                if (intervalles[milieu].debut() > a) {
+                    // this one and the right half start after the range
+                    return;
+                }
+                if (intervalles[milieu].fin() >= de) {
+                    trouves.add(intervalles[milieu]);
+                }
+                bas = milieu + 1;
+            }
+        }
+    }
+}
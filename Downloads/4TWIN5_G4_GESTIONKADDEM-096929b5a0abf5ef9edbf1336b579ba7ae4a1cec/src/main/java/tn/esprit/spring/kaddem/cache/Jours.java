@@ -0,0 +1,20 @@
+package tn.esprit.spring.kaddem.cache;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+
+/** Contract dates as epoch days, the unit of the in-memory date indexes. */
+final class Jours {
+    private Jours() {
+    }
+
+    /**
+     * The day of {@code date} in the server's time zone, time of day dropped as when the value is
+     * bound to a DATE column.
+     */
+    static int jour(Date date) {
+        // getTime() rather than toInstant(): java.sql.Date does not support toInstant()
+        return (int) Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+}
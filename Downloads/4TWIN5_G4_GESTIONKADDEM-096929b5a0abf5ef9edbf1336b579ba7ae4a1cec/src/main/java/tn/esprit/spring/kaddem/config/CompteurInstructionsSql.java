@@ -0,0 +1,106 @@
+package tn.esprit.spring.kaddem.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, between {@link #demarrer()}
+ * and {@link Comptage#close()}: per HTTP request ({@link SurveillanceSqlRequetes}) and around the
+ * service calls of the N+1 regression tests.
+ * <p>
+ * Registered as Hibernate's statement inspector. Outside a count it only reads a thread local; inside,
+ * it adds one to a map entry. The statements are grouped by shape (IN lists and literals folded) only
+ * when a count is reported.
+ */
+@Component
+public class CompteurInstructionsSql implements StatementInspector, HibernatePropertiesCustomizer {
+    private static final Pattern ESPACES = Pattern.compile("\\s+");
+    // no repeated group around each element: java.util.regex recurses once per repetition of a group,
+    // and an IN list of a few thousand ids overflowed the stack. Repeated character classes are iterative
+    private static final Pattern LISTE_IN = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?[\\s,?]*\\)");
+    private static final Pattern LITTERAUX = Pattern.compile("'[^']*+(?:''[^']*+)*+'|\\b\\d+\\b");
+
+    private final ThreadLocal<Comptage> courant = new ThreadLocal<>();
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        for (Comptage comptage = courant.get(); comptage != null; comptage = comptage.parent) {
+            comptage.instructions.merge(sql, 1, Integer::sum);
+            comptage.total++;
+        }
+        return sql;
+    }
+
+    /** Starts counting on this thread, nested in the count already running if any. */
+    public Comptage demarrer() {
+        Comptage comptage = new Comptage(courant.get());
+        courant.set(comptage);
+        return comptage;
+    }
+
+    /** The statements of one unit of work: closing it stops the count and hands the thread back to its parent. */
+    public final class Comptage implements AutoCloseable {
+        private final Comptage parent;
+        private final Map<String, Integer> instructions = new HashMap<>();
+        private int total;
+
+        private Comptage(Comptage parent) {
+            this.parent = parent;
+        }
+
+        public int total() {
+            return total;
+        }
+
+        /** Number of statements by shape, the most repeated first. */
+        public Map<String, Integer> parForme() {
+            Map<String, Integer> parForme = new HashMap<>();
+            instructions.forEach((sql, nombre) -> parForme.merge(forme(sql), nombre, Integer::sum));
+            return parForme.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+        }
+
+        /** Repetitions of the most repeated shape, 0 when nothing ran. */
+        public int maxRepetitions() {
+            return parForme().values().stream().findFirst().orElse(0);
+        }
+
+        /** One line per shape, "12 x select ...", the most repeated first. */
+        public List<String> resume() {
+            return parForme().entrySet().stream().map(e -> e.getValue() + " x " + e.getKey()).collect(Collectors.toList());
+        }
+
+        @Override
+        public void close() {
+            if (courant.get() == this) {
+                if (parent == null) {
+                    courant.remove();
+                } else {
+                    courant.set(parent);
+                }
+            }
+        }
+    }
+
+    /** The statement with its IN lists, strings and numbers folded, so that the same query in a loop shows as one shape. */
+    static String forme(String sql) {
+        String forme = ESPACES.matcher(sql.trim()).replaceAll(" ");
+        forme = LITTERAUX.matcher(forme).replaceAll("?");
+        return LISTE_IN.matcher(forme).replaceAll("in (...)");
+    }
+}
@@ -0,0 +1,99 @@
+package tn.esprit.spring.kaddem.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The connection pool behind a fair semaphore: at most {@code nbPermis} connections are out at once,
+ * the other callers wait here in arrival order, parked (a virtual thread leaves its carrier), and give
+ * up after {@code attente} with a {@link SQLTransientConnectionException}. A permit is taken before the
+ * pool is asked and given back when the connection is closed.
+ */
+class ConnexionsBornees extends DelegatingDataSource {
+    private final Semaphore permis;
+    private final int nbPermis;
+    private final Duration attente;
+
+    ConnexionsBornees(DataSource cible, int nbPermis, Duration attente) {
+        super(cible);
+        this.permis = new Semaphore(nbPermis, true);
+        this.nbPermis = nbPermis;
+        this.attente = attente;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return borner(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return borner(() -> super.getConnection(username, password));
+    }
+
+    /** Permits free at the moment. */
+    int disponibles() {
+        return permis.availablePermits();
+    }
+
+    private Connection borner(Ouverture ouverture) throws SQLException {
+        try {
+            if (!permis.tryAcquire(attente.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("No database connection within " + attente + ": the " + nbPermis + " permits are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            return rendreALaFermeture(ouverture.ouvrir());
+        } catch (SQLException | RuntimeException e) {
+            permis.release();
+            throw e;
+        }
+    }
+
+    private Connection rendreALaFermeture(Connection connexion) {
+        AtomicBoolean rendue = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, methode, args) -> {
+            switch (methode.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    // the permit is given back once, whatever the number of close calls
+                    if (rendue.compareAndSet(false, true)) {
+                        try {
+                            connexion.close();
+                        } finally {
+                            permis.release();
+                        }
+                        return null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return methode.invoke(connexion, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private interface Ouverture {
+        Connection ouvrir() throws SQLException;
+    }
+}
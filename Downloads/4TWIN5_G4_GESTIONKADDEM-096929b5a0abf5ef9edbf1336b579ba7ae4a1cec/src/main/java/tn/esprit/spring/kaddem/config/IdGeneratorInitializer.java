@@ -0,0 +1,71 @@
+package tn.esprit.spring.kaddem.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+/**
+ * Moves each table's row of the id generator past the ids already in the table, before the
+ * application serves anything. Needed once for the rows inserted when ids were AUTO_INCREMENT,
+ * and harmless afterwards: the generator row is only ever raised.
+ */
+@Slf4j
+@Component
+public class IdGeneratorInitializer implements SmartInitializingSingleton {
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @PersistenceContext
+    EntityManager entityManager;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            if (persister.getIdentifierGenerator() instanceof TableGenerator && persister instanceof AbstractEntityPersister) {
+                TableGenerator generator = (TableGenerator) persister.getIdentifierGenerator();
+                AbstractEntityPersister entite = (AbstractEntityPersister) persister;
+                transactionTemplate.executeWithoutResult(status ->
+                        aligner(generator, entite.getTableName(), entite.getIdentifierColumnNames()[0]));
+            }
+        }
+    }
+
+    private void aligner(TableGenerator generator, String table, String colonneId) {
+        long prochainId = ((Number) entityManager.createNativeQuery(
+                "SELECT COALESCE(MAX(" + colonneId + "), 0) + 1 FROM " + table).getSingleResult()).longValue();
+        List<?> valeurs = entityManager.createNativeQuery(
+                "SELECT " + generator.getValueColumnName() + " FROM " + generator.getTableName()
+                        + " WHERE " + generator.getSegmentColumnName() + " = ?1")
+                .setParameter(1, generator.getSegmentValue())
+                .getResultList();
+        if (valeurs.isEmpty()) {
+            entityManager.createNativeQuery("INSERT INTO " + generator.getTableName() + " ("
+                            + generator.getSegmentColumnName() + ", " + generator.getValueColumnName() + ") VALUES (?1, ?2)")
+                    .setParameter(1, generator.getSegmentValue())
+                    .setParameter(2, prochainId)
+                    .executeUpdate();
+        } else if (((Number) valeurs.get(0)).longValue() < prochainId) {
+            entityManager.createNativeQuery("UPDATE " + generator.getTableName() + " SET " + generator.getValueColumnName()
+                            + " = ?1 WHERE " + generator.getSegmentColumnName() + " = ?2")
+                    .setParameter(1, prochainId)
+                    .setParameter(2, generator.getSegmentValue())
+                    .executeUpdate();
+        } else {
+            return;
+        }
+        log.info("Id generator '{}' starts at {}", generator.getSegmentValue(), prochainId);
+    }
+}
@@ -0,0 +1,70 @@
+package tn.esprit.spring.kaddem.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tn.esprit.spring.kaddem.entities.CacheRegions;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache for the reference entities (see {@link CacheRegions}), held in local
+ * Caffeine caches bounded in size and time to live. The regions are created here rather than from a
+ * configuration file so that the bounds come from application.properties.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    @Value("${kaddem.cache.reference.taille-max:10000}")
+    long tailleMax;
+    @Value("${kaddem.cache.reference.ttl:1h}")
+    Duration ttl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() {
+        // one manager per application context: the provider shares managers by URI within the JVM
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("kaddem-second-level-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : CacheRegions.TOUTES) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(tailleMax));
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+            // Caffeine's own counters, which include evictions (read by CacheServiceImpl)
+            configuration.setNativeStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    /** Publishes the regions' counters as cache.* metrics, tagged with the region name. */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager secondLevelCacheManager) {
+        return registry -> {
+            for (String region : CacheRegions.TOUTES) {
+                // unwrap takes a raw class; every region is a CaffeineConfiguration<Object, Object> created above
+                @SuppressWarnings("unchecked")
+                Cache<Object, Object> cache = secondLevelCacheManager.getCache(region).unwrap(Cache.class);
+                CaffeineCacheMetrics.monitor(registry, cache, region);
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
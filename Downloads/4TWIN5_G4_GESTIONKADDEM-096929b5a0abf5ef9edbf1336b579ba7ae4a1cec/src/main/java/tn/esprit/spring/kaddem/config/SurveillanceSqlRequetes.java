@@ -0,0 +1,79 @@
+package tn.esprit.spring.kaddem.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * Counts the SQL statements of each HTTP request, the JSON rendering included (open session in view),
+ * and logs a warning naming the endpoint when a request runs more than
+ * {@code kaddem.sql.seuil-instructions} statements, or the same statement shape more than
+ * {@code kaddem.sql.seuil-repetitions} times: the mark of a lazy load in a loop.
+ */
+@Slf4j
+@Configuration
+public class SurveillanceSqlRequetes implements WebMvcConfigurer, AsyncHandlerInterceptor {
+    private static final String COMPTAGE = SurveillanceSqlRequetes.class.getName() + ".comptage";
+    // shapes listed in the warning
+    private static final int FORMES_AFFICHEES = 3;
+
+    @Autowired
+    CompteurInstructionsSql compteurInstructionsSql;
+
+    @Value("${kaddem.sql.surveillance:true}")
+    boolean surveillance;
+    @Value("${kaddem.sql.seuil-instructions:50}")
+    int seuilInstructions;
+    @Value("${kaddem.sql.seuil-repetitions:10}")
+    int seuilRepetitions;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (surveillance) {
+            registry.addInterceptor(this);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(COMPTAGE, compteurInstructionsSql.demarrer());
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // the body is written on another thread (/contrat/export): hand this one back clean, without a report
+        if (request.getAttribute(COMPTAGE) instanceof CompteurInstructionsSql.Comptage comptage) {
+            request.removeAttribute(COMPTAGE);
+            comptage.close();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(request.getAttribute(COMPTAGE) instanceof CompteurInstructionsSql.Comptage comptage)) {
+            return;
+        }
+        request.removeAttribute(COMPTAGE);
+        comptage.close();
+        // the shapes are only worked out when the total allows a threshold to be crossed
+        boolean tropDInstructions = comptage.total() > seuilInstructions;
+        if (!tropDInstructions && (comptage.total() <= seuilRepetitions || comptage.maxRepetitions() <= seuilRepetitions)) {
+            return;
+        }
+        Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        List<String> resume = comptage.resume();
+        log.warn("{} {}: {} SQL statements; most repeated: {}", request.getMethod(),
+                motif != null ? motif : request.getRequestURI(), comptage.total(),
+                resume.subList(0, Math.min(FORMES_AFFICHEES, resume.size())));
+    }
+}
@@ -0,0 +1,105 @@
+package tn.esprit.spring.kaddem.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskSchedulerBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Opt-in ({@code kaddem.threads.virtuels=true}, Java 21 runtime): servlet requests, the asynchronous
+ * work (the streamed body of /contrat/export, {@code @Async}) and the scheduled jobs run on virtual
+ * threads, so a request blocked on JDBC no longer holds one of the 200 Tomcat threads.
+ * {@code server.tomcat.max-connections} becomes the bound on requests in progress.
+ * <p>
+ * The pool does not grow with the threads: the data source is put behind {@link ConnexionsBornees},
+ * with as many permits as the pool has connections unless {@code kaddem.threads.virtuels.connexions}
+ * says otherwise, so that thousands of requests wait in a fair queue with their own timeout rather
+ * than all at once in the pool.
+ * <p>
+ * The build stays on Java 17: {@code Thread.ofVirtual()} is looked up when the mode is on, and the
+ * application fails to start if the runtime has no virtual threads.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "kaddem.threads.virtuels", havingValue = "true")
+public class ThreadsVirtuelsConfig {
+    // HikariCP's maximumPoolSize when none is configured
+    private static final int TAILLE_POOL_PAR_DEFAUT = 10;
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> executeurTomcatVirtuel() {
+        ExecutorService executeur = executeurVirtuel("http-virtuel-");
+        log.info("Servlet requests run on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executeur);
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(executeurVirtuel("async-virtuel-"));
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(TaskSchedulerBuilder builder) {
+        ThreadPoolTaskScheduler taskScheduler = builder.build();
+        taskScheduler.setThreadFactory(fabriqueVirtuelle("scheduling-virtuel-"));
+        return taskScheduler;
+    }
+
+    @Bean
+    public static BeanPostProcessor connexionsBornees(@Value("${kaddem.threads.virtuels.connexions:0}") int connexions,
+                                                      @Value("${kaddem.threads.virtuels.attente-connexion:30s}") Duration attente) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnexionsBornees) {
+                    return bean;
+                }
+                int taillePool = bean instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0
+                        ? hikari.getMaximumPoolSize() : TAILLE_POOL_PAR_DEFAUT;
+                int permis = connexions > 0 ? connexions : taillePool;
+                log.info("At most {} connections out of {} at once, {} waiting at most", permis, beanName, attente);
+                return new ConnexionsBornees(dataSource, permis, attente);
+            }
+        };
+    }
+
+    /** Virtual threads named prefixe0, prefixe1... */
+    static ThreadFactory fabriqueVirtuelle(String prefixe) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> typeBuilder = Class.forName("java.lang.Thread$Builder");
+            builder = typeBuilder.getMethod("name", String.class, long.class).invoke(builder, prefixe, 0L);
+            return (ThreadFactory) typeBuilder.getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            throw new IllegalStateException("kaddem.threads.virtuels=true needs a Java 21 runtime, this one is " + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available on " + Runtime.version(), e);
+        }
+    }
+
+    /** One new virtual thread per task. */
+    static ExecutorService executeurVirtuel(String prefixe) {
+        ThreadFactory fabrique = fabriqueVirtuelle(prefixe);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, fabrique);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available on " + Runtime.version(), e);
+        }
+    }
+}
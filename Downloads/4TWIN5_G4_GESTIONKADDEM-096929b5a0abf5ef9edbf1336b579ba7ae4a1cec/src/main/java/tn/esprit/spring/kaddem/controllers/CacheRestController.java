@@ -0,0 +1,23 @@
+package tn.esprit.spring.kaddem.controllers;
+
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.spring.kaddem.dto.CacheStatistiques;
+import tn.esprit.spring.kaddem.services.ICacheService;
+
+import java.util.List;
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/cache")
+public class CacheRestController {
+	@Autowired
+	ICacheService cacheService;
+
+	// http://localhost:8089/Kaddem/cache/retrieve-statistiques
+	@GetMapping("/retrieve-statistiques")
+	public List<CacheStatistiques> getStatistiques() {
+		return cacheService.retrieveStatistiques();
+	}
+}
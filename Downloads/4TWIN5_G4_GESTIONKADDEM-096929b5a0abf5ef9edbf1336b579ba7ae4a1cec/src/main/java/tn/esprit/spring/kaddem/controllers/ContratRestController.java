@@ -3,9 +3,20 @@ package tn.esprit.spring.kaddem.controllers;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.kaddem.dto.ArchivageReport;
+import tn.esprit.spring.kaddem.dto.ChiffreAffaireReport;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.dto.DemandeRenouvellement;
+import tn.esprit.spring.kaddem.dto.RenouvellementReport;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
 import tn.esprit.spring.kaddem.services.ContratServiceImpl;
 import tn.esprit.spring.kaddem.services.IContratService;
 
@@ -18,15 +29,39 @@ import java.util.List;
 public class ContratRestController {
 	IContratService contratService;
 	// http://localhost:8089/Kaddem/contrat/retrieve-all-contrats
+	// with If-None-Match, a 304 costs one aggregate. No Last-Modified on lists: a delete makes the latest change older
 	@GetMapping("/retrieve-all-contrats")
-	public List<Contrat> getContrats() {
-		List<Contrat> listContrats = contratService.retrieveAllContrats();
+	public List<ContratVue> getContrats(WebRequest request) {
+		if (request.checkNotModified(contratService.revisionContrats().getEtag())) {
+			return null;
+		}
+		List<ContratVue> listContrats = contratService.retrieveAllContrats();
 		return listContrats;
 	}
+	// http://localhost:8089/Kaddem/contrat/retrieve-contrats-page?after=120&limit=50
+	@GetMapping("/retrieve-contrats-page")
+	public CursorPage<ContratVue> getContratsPage(@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer limit) {
+		return contratService.retrieveContratsPage(after, limit);
+	}
+	// http://localhost:8089/Kaddem/contrat/export?startDate=2023-01-01&endDate=2023-12-31&specialite=IA
+	@GetMapping(value = "/export", produces = "application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> exportContrats(
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date startDate,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate,
+			@RequestParam(required = false) Specialite specialite) {
+		StreamingResponseBody body = out -> contratService.exportContrats(startDate, endDate, specialite, out);
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+	}
 	// http://localhost:8089/Kaddem/contrat/retrieve-contrat/8
+	// If-None-Match / If-Modified-Since: a 304 costs one indexed lookup, no contract is loaded
 	@GetMapping("/retrieve-contrat/{contrat-id}")
-	public Contrat retrieveContrat(@PathVariable("contrat-id") Integer contratId) {
-		return contratService.retrieveContrat(contratId);
+	public ContratVue retrieveContrat(@PathVariable("contrat-id") Integer contratId, WebRequest request) {
+		Revision revision = contratService.revisionContrat(contratId);
+		if (request.checkNotModified(revision.getEtag(), revision.getDerniereModificationMs())) {
+			return null;
+		}
+		return contratService.retrieveContrat(contratId, revision);
 	}
 
 	// http://localhost:8089/Kaddem/econtrat/add-contrat
@@ -49,6 +84,13 @@ public class ContratRestController {
 		return contrat;
 	}
 
+	// http://localhost:8089/Kaddem/contrat/renew-contracts
+	// body: [{"idContrat": 12, "newDuration": 6}, ...]; one result per item, in the same order
+	@PostMapping("/renew-contracts")
+	public RenouvellementReport renewContracts(@RequestBody List<DemandeRenouvellement> demandes) {
+		return contratService.renewContracts(demandes);
+	}
+
 		/*@PutMapping(value = "/assignContratToEtudiant/{ce}/{nomE}/{prenomE}")
 		public Contrat assignContratToEtudiant (Contrat ce, String nomE, String prenomE){
 		return 	(contratService.affectContratToEtudiant(ce, nomE, prenomE));
@@ -68,12 +110,28 @@ public class ContratRestController {
 			return contratService.nbContratsValides(startDate, endDate);
 		}
 
-    //Only no-arg methods may be annotated with @Scheduled
-    @Scheduled(cron="0 0 13 * * *")//(cron="0 0 13 * * ?")(fixedRate =21600)
+	// http://localhost:8089/Kaddem/contrat/actifs/2023-06-01?specialite=IA&idEtudiant=3
+	@GetMapping("/actifs/{date}")
+	public List<ContratVue> getContratsActifsLe(@PathVariable(name = "date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date date,
+			@RequestParam(required = false) Specialite specialite,
+			@RequestParam(required = false) Integer idEtudiant) {
+		return contratService.retrieveContratsActifsLe(date, specialite, idEtudiant);
+	}
+
+	// http://localhost:8089/Kaddem/contrat/chevauchant/2023-01-01/2023-03-31?specialite=CLOUD
+	@GetMapping("/chevauchant/{startDate}/{endDate}")
+	public List<ContratVue> getContratsChevauchant(@PathVariable(name = "startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date startDate,
+			@PathVariable(name = "endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate,
+			@RequestParam(required = false) Specialite specialite,
+			@RequestParam(required = false) Integer idEtudiant) {
+		return contratService.retrieveContratsChevauchant(startDate, endDate, specialite, idEtudiant);
+	}
+
+    // on demand; the daily run is scheduled in tn.esprit.spring.kaddem.scheduling
 	@PutMapping(value = "/majStatusContrat")
-	public void majStatusContrat (){
+	public ArchivageReport majStatusContrat (){
 		//return 	(contratService.affectContratToEtudiant(ce, nomE, prenomE));
-		contratService.retrieveAndUpdateStatusContrat();
+		return contratService.retrieveAndUpdateStatusContrat();
 
 	}
 
@@ -86,6 +144,14 @@ public class ContratRestController {
 
 		return contratService.getChiffreAffaireEntreDeuxDates(startDate, endDate);
 	}
+
+	// http://localhost:8089/Kaddem/contrat/chiffreAffaireParSpecialite/2023-01-01/2023-12-31
+	@GetMapping("/chiffreAffaireParSpecialite/{startDate}/{endDate}")
+	public ChiffreAffaireReport chiffreAffaireParSpecialite(@PathVariable(name = "startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date startDate,
+			@PathVariable(name = "endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate) {
+
+		return contratService.getChiffreAffaireParSpecialite(startDate, endDate);
+	}
 }
 
 
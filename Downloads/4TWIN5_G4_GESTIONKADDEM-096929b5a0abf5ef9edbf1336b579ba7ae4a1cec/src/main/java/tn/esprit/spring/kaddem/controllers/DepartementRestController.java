@@ -2,6 +2,9 @@ package tn.esprit.spring.kaddem.controllers;
 
 import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Departement;
 import tn.esprit.spring.kaddem.services.IDepartementService;
 
@@ -13,14 +16,28 @@ import java.util.List;
 public class DepartementRestController {
 	IDepartementService departementService;
 	// http://localhost:8089/Kaddem/departement/retrieve-all-departements
+	// conditional GETs as in ContratRestController
 	@GetMapping("/retrieve-all-departements")
-	public List<Departement> getDepartements() {
+	public List<Departement> getDepartements(WebRequest request) {
+		if (request.checkNotModified(departementService.revisionDepartements().getEtag())) {
+			return null;
+		}
 		List<Departement> listDepartements = departementService.retrieveAllDepartements();
 		return listDepartements;
 	}
+	// http://localhost:8089/Kaddem/departement/retrieve-departements-page?after=120&limit=50
+	@GetMapping("/retrieve-departements-page")
+	public CursorPage<Departement> getDepartementsPage(@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer limit) {
+		return departementService.retrieveDepartementsPage(after, limit);
+	}
 	// http://localhost:8089/Kaddem/departement/retrieve-departement/8
 	@GetMapping("/retrieve-departement/{departement-id}")
-	public Departement retrieveDepartement(@PathVariable("departement-id") Integer departementId) {
+	public Departement retrieveDepartement(@PathVariable("departement-id") Integer departementId, WebRequest request) {
+		Revision revision = departementService.revisionDepartement(departementId);
+		if (request.checkNotModified(revision.getEtag(), revision.getDerniereModificationMs())) {
+			return null;
+		}
 		return departementService.retrieveDepartement(departementId);
 	}
 
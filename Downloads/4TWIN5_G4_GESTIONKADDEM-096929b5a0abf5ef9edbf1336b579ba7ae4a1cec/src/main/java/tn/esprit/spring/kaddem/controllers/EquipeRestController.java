@@ -4,6 +4,10 @@ import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
+import tn.esprit.spring.kaddem.dto.AffectationReport;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.EquipeVue;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
 import tn.esprit.spring.kaddem.entities.Equipe;
 import tn.esprit.spring.kaddem.services.IEquipeService;
 
@@ -16,13 +20,19 @@ public class EquipeRestController {
 	IEquipeService equipeService;
 	// http://localhost:8089/Kaddem/equipe/retrieve-all-equipes
 	@GetMapping("/retrieve-all-equipes")
-	public List<Equipe> getEquipes() {
-		List<Equipe> listEquipes = equipeService.retrieveAllEquipes();
+	public List<EquipeVue> getEquipes() {
+		List<EquipeVue> listEquipes = equipeService.retrieveAllEquipes();
 		return listEquipes;
 	}
+	// http://localhost:8089/Kaddem/equipe/retrieve-equipes-page?after=120&limit=50
+	@GetMapping("/retrieve-equipes-page")
+	public CursorPage<EquipeVue> getEquipesPage(@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer limit) {
+		return equipeService.retrieveEquipesPage(after, limit);
+	}
 	// http://localhost:8089/Kaddem/equipe/retrieve-equipe/8
 	@GetMapping("/retrieve-equipe/{equipe-id}")
-	public Equipe retrieveEquipe(@PathVariable("equipe-id") Integer equipeId) {
+	public EquipeVue retrieveEquipe(@PathVariable("equipe-id") Integer equipeId) {
 		return equipeService.retrieveEquipe(equipeId);
 	}
 
@@ -46,10 +56,17 @@ public class EquipeRestController {
 		return equipe;
 	}
 
+	// http://localhost:8089/Kaddem/equipe/affecter-etudiants/1
+	// body: [12, 13, 14, ...], the ids of the students to add
+	@PutMapping("/affecter-etudiants/{equipe-id}")
+	public AffectationReport affecterEtudiants(@PathVariable("equipe-id") Integer equipeId, @RequestBody List<Integer> etudiantIds) {
+		return equipeService.affecterEtudiants(equipeId, etudiantIds);
+	}
+
 	@Scheduled(cron="0 0 13 * * *")
 	@PutMapping("/faireEvoluerEquipes")
-	public void faireEvoluerEquipes() {
-		 equipeService.evoluerEquipes() ;
+	public List<PromotionEquipe> faireEvoluerEquipes() {
+		return equipeService.evoluerEquipes() ;
 	}
 }
 
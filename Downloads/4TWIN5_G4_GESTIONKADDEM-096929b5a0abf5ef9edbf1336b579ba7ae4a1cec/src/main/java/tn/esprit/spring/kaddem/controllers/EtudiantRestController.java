@@ -2,7 +2,13 @@ package tn.esprit.spring.kaddem.controllers;
 
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import tn.esprit.spring.kaddem.dto.AffectationReport;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 import tn.esprit.spring.kaddem.services.IEtudiantService;
 
@@ -15,14 +21,28 @@ public class EtudiantRestController {
 	@Autowired
 	IEtudiantService etudiantService;
 	// http://localhost:8089/Kaddem/etudiant/retrieve-all-etudiants
+	// conditional GETs as in ContratRestController
 	@GetMapping("/retrieve-all-etudiants")
-	public List<Etudiant> getEtudiants() {
-		List<Etudiant> listEtudiants = etudiantService.retrieveAllEtudiants();
+	public List<EtudiantVue> getEtudiants(WebRequest request) {
+		if (request.checkNotModified(etudiantService.revisionEtudiants().getEtag())) {
+			return null;
+		}
+		List<EtudiantVue> listEtudiants = etudiantService.retrieveAllEtudiants();
 		return listEtudiants;
 	}
+	// http://localhost:8089/Kaddem/etudiant/retrieve-etudiants-page?after=120&limit=50
+	@GetMapping("/retrieve-etudiants-page")
+	public CursorPage<EtudiantVue> getEtudiantsPage(@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer limit) {
+		return etudiantService.retrieveEtudiantsPage(after, limit);
+	}
 	// http://localhost:8089/Kaddem/etudiant/retrieve-etudiant/8
 	@GetMapping("/retrieve-etudiant/{etudiant-id}")
-	public Etudiant retrieveEtudiant(@PathVariable("etudiant-id") Integer etudiantId) {
+	public EtudiantVue retrieveEtudiant(@PathVariable("etudiant-id") Integer etudiantId, WebRequest request) {
+		Revision revision = etudiantService.revisionEtudiant(etudiantId);
+		if (request.checkNotModified(revision.getEtag(), revision.getDerniereModificationMs())) {
+			return null;
+		}
 		return etudiantService.retrieveEtudiant(etudiantId);
 	}
 
@@ -52,6 +72,13 @@ public class EtudiantRestController {
 	public void affecterEtudiantToDepartement(@PathVariable("etudiantId") Integer etudiantId, @PathVariable("departementId")Integer departementId){
 		etudiantService.assignEtudiantToDepartement(etudiantId, departementId);
     }
+	// http://localhost:8089/Kaddem/etudiant/affecter-etudiants-departement/3
+	// body: [12, 13, 14, ...], the ids of the students to move
+	@PutMapping("/affecter-etudiants-departement/{departementId}")
+	public AffectationReport affecterEtudiantsToDepartement(@PathVariable("departementId") Integer departementId,
+			@RequestBody List<Integer> etudiantIds) {
+		return etudiantService.affecterEtudiantsADepartement(departementId, etudiantIds);
+	}
 //addAndAssignEtudiantToEquipeAndContract(Etudiant e, Integer idContrat, Integer idEquipe)
     /* Ajouter un étudiant tout en lui affectant un contrat et une équipe */
     @PostMapping("/add-assign-Etudiant/{idContrat}/{idEquipe}")
@@ -62,11 +89,21 @@ public class EtudiantRestController {
     }
 
 	@GetMapping(value = "/getEtudiantsByDepartement/{idDepartement}")
-	public List<Etudiant> getEtudiantsParDepartement(@PathVariable("idDepartement") Integer idDepartement) {
-
+	public List<EtudiantVue> getEtudiantsParDepartement(@PathVariable("idDepartement") Integer idDepartement, WebRequest request) {
+		if (request.checkNotModified(etudiantService.revisionEtudiantsByDepartement(idDepartement).getEtag())) {
+			return null;
+		}
 		return etudiantService.getEtudiantsByDepartement(idDepartement);
 	}
 
+	// http://localhost:8089/Kaddem/etudiant/recalculer-compteurs
+	// repairs the contract counters every night, in case a write went around the contract service
+	@Scheduled(cron="0 30 3 * * *")
+	@PutMapping(value = "/recalculer-compteurs")
+	public int recalculerCompteursContrats() {
+		return etudiantService.recalculerCompteursContrats();
+	}
+
 }
 
 
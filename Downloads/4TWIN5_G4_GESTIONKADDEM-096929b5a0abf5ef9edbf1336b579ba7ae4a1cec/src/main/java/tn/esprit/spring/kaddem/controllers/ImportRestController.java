@@ -0,0 +1,28 @@
+package tn.esprit.spring.kaddem.controllers;
+
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.spring.kaddem.dto.ImportReport;
+import tn.esprit.spring.kaddem.imports.ImportFormat;
+import tn.esprit.spring.kaddem.services.IImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/import")
+public class ImportRestController {
+	@Autowired
+	IImportService importService;
+
+	// http://localhost:8089/Kaddem/import/import-donnees
+	// body: CSV with a header line (Content-Type: text/csv) or NDJSON (Content-Type: application/x-ndjson)
+	@PostMapping(value = "/import-donnees", consumes = {"text/csv", "application/x-ndjson"})
+	public ImportReport importerDonnees(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream donnees)
+			throws IOException {
+		return importService.importer(donnees, ImportFormat.fromContentType(contentType));
+	}
+}
@@ -3,6 +3,9 @@ package tn.esprit.spring.kaddem.controllers;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Departement;
 import tn.esprit.spring.kaddem.entities.Universite;
 import tn.esprit.spring.kaddem.services.IUniversiteService;
@@ -17,14 +20,28 @@ public class UniversiteRestController {
 	@Autowired
 	IUniversiteService universiteService;
 	// http://localhost:8089/Kaddem/universite/retrieve-all-universites
+	// conditional GETs as in ContratRestController
 	@GetMapping("/retrieve-all-universites")
-	public List<Universite> getUniversites() {
+	public List<Universite> getUniversites(WebRequest request) {
+		if (request.checkNotModified(universiteService.revisionUniversites().getEtag())) {
+			return null;
+		}
 		List<Universite> listUniversites = universiteService.retrieveAllUniversites();
 		return listUniversites;
 	}
+	// http://localhost:8089/Kaddem/universite/retrieve-universites-page?after=120&limit=50
+	@GetMapping("/retrieve-universites-page")
+	public CursorPage<Universite> getUniversitesPage(@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer limit) {
+		return universiteService.retrieveUniversitesPage(after, limit);
+	}
 	// http://localhost:8089/Kaddem/universite/retrieve-universite/8
 	@GetMapping("/retrieve-universite/{universite-id}")
-	public Universite retrieveUniversite(@PathVariable("universite-id") Integer universiteId) {
+	public Universite retrieveUniversite(@PathVariable("universite-id") Integer universiteId, WebRequest request) {
+		Revision revision = universiteService.revisionUniversite(universiteId);
+		if (request.checkNotModified(revision.getEtag(), revision.getDerniereModificationMs())) {
+			return null;
+		}
 		return universiteService.retrieveUniversite(universiteId);
 	}
 
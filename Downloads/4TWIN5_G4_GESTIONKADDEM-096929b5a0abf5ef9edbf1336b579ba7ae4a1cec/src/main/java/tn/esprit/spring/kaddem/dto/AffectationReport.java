@@ -0,0 +1,48 @@
+package tn.esprit.spring.kaddem.dto;
+
+import java.util.List;
+
+/** Outcome of a bulk assignment of students to a department or a team. */
+public class AffectationReport {
+    private final int nbEtudiants;
+    private final int nbAffectes;
+    private final int nbDejaAffectes;
+    private final List<Integer> idsInconnus;
+    private final long dureeMs;
+
+    public AffectationReport(int nbEtudiants, int nbAffectes, int nbDejaAffectes, List<Integer> idsInconnus, long dureeMs) {
+        this.nbEtudiants = nbEtudiants;
+        this.nbAffectes = nbAffectes;
+        this.nbDejaAffectes = nbDejaAffectes;
+        this.idsInconnus = idsInconnus;
+        this.dureeMs = dureeMs;
+    }
+
+    /** Distinct ids of the request. */
+    public int getNbEtudiants() {
+        return nbEtudiants;
+    }
+
+    public int getNbAffectes() {
+        return nbAffectes;
+    }
+
+    /** Students that were already in the department or the team: left as they were. */
+    public int getNbDejaAffectes() {
+        return nbDejaAffectes;
+    }
+
+    public List<Integer> getIdsInconnus() {
+        return idsInconnus;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+
+    @Override
+    public String toString() {
+        return "AffectationReport{nbEtudiants=" + nbEtudiants + ", nbAffectes=" + nbAffectes
+                + ", nbDejaAffectes=" + nbDejaAffectes + ", nbInconnus=" + idsInconnus.size() + ", dureeMs=" + dureeMs + '}';
+    }
+}
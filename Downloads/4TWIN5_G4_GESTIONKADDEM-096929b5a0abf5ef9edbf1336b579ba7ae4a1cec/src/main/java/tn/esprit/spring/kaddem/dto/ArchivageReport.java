@@ -0,0 +1,41 @@
+package tn.esprit.spring.kaddem.dto;
+
+import java.util.Date;
+
+/** Outcome of one run of the contract archiving job. */
+public class ArchivageReport {
+    private final Date dateExecution;
+    private final int nbContratsArchives;
+    private final int nbContratsExpirantDans15Jours;
+    private final long dureeMs;
+
+    public ArchivageReport(Date dateExecution, int nbContratsArchives, int nbContratsExpirantDans15Jours, long dureeMs) {
+        this.dateExecution = dateExecution;
+        this.nbContratsArchives = nbContratsArchives;
+        this.nbContratsExpirantDans15Jours = nbContratsExpirantDans15Jours;
+        this.dureeMs = dureeMs;
+    }
+
+    public Date getDateExecution() {
+        return dateExecution;
+    }
+
+    public int getNbContratsArchives() {
+        return nbContratsArchives;
+    }
+
+    public int getNbContratsExpirantDans15Jours() {
+        return nbContratsExpirantDans15Jours;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchivageReport{nbContratsArchives=" + nbContratsArchives
+                + ", nbContratsExpirantDans15Jours=" + nbContratsExpirantDans15Jours
+                + ", dureeMs=" + dureeMs + '}';
+    }
+}
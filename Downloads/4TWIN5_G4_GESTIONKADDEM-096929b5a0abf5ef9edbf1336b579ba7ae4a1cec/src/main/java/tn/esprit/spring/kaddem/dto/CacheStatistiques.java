@@ -0,0 +1,44 @@
+package tn.esprit.spring.kaddem.dto;
+
+/** Counters of one cache since the application started. */
+public class CacheStatistiques {
+    private final String nom;
+    private final long taille;
+    private final long hits;
+    private final long misses;
+    private final double hitRate;
+    private final long evictions;
+
+    public CacheStatistiques(String nom, long taille, long hits, long misses, double hitRate, long evictions) {
+        this.nom = nom;
+        this.taille = taille;
+        this.hits = hits;
+        this.misses = misses;
+        this.hitRate = hitRate;
+        this.evictions = evictions;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public long getTaille() {
+        return taille;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
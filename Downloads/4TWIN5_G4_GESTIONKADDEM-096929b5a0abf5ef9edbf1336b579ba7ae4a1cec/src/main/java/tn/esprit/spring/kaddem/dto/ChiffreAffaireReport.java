@@ -0,0 +1,79 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.util.Date;
+import java.util.List;
+
+/** Revenue (chiffre d'affaires) between two dates, broken down per specialite. */
+public class ChiffreAffaireReport {
+    private final Date startDate;
+    private final Date endDate;
+    private final float nbMois;
+    private final List<Ligne> lignes;
+    private final float total;
+
+    public ChiffreAffaireReport(Date startDate, Date endDate, float nbMois, List<Ligne> lignes, float total) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.nbMois = nbMois;
+        this.lignes = lignes;
+        this.total = total;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public float getNbMois() {
+        return nbMois;
+    }
+
+    public List<Ligne> getLignes() {
+        return lignes;
+    }
+
+    public float getTotal() {
+        return total;
+    }
+
+    public static class Ligne {
+        private final Specialite specialite;
+        private final long nbContrats;
+        private final long montantContrats;
+        private final int tarifMensuel;
+        private final float chiffreAffaire;
+
+        public Ligne(Specialite specialite, long nbContrats, long montantContrats, int tarifMensuel, float chiffreAffaire) {
+            this.specialite = specialite;
+            this.nbContrats = nbContrats;
+            this.montantContrats = montantContrats;
+            this.tarifMensuel = tarifMensuel;
+            this.chiffreAffaire = chiffreAffaire;
+        }
+
+        public Specialite getSpecialite() {
+            return specialite;
+        }
+
+        public long getNbContrats() {
+            return nbContrats;
+        }
+
+        public long getMontantContrats() {
+            return montantContrats;
+        }
+
+        public int getTarifMensuel() {
+            return tarifMensuel;
+        }
+
+        public float getChiffreAffaire() {
+            return chiffreAffaire;
+        }
+    }
+}
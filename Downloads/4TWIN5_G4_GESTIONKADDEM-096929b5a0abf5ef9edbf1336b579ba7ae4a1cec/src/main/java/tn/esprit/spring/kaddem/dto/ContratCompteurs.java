@@ -0,0 +1,12 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Etudiant;
+
+/** The fields of a stored contract that count in its student's contract counters. */
+public interface ContratCompteurs {
+    Etudiant getEtudiant();
+
+    Boolean getArchive();
+
+    Integer getMontantContrat();
+}
@@ -0,0 +1,10 @@
+package tn.esprit.spring.kaddem.dto;
+
+import java.util.Date;
+
+/** Id and end date of a contract, all the expiry scheduler needs to know about it. */
+public interface ContratEcheance {
+    Integer getIdContrat();
+
+    Date getDateFinContrat();
+}
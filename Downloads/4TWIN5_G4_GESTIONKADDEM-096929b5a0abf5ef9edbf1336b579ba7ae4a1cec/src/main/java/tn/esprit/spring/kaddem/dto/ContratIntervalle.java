@@ -0,0 +1,10 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+/** Dates of a contract with what the period queries filter on. */
+public interface ContratIntervalle extends ContratPeriode {
+    Specialite getSpecialite();
+
+    Integer getIdEtudiant();
+}
@@ -0,0 +1,12 @@
+package tn.esprit.spring.kaddem.dto;
+
+import java.util.Date;
+
+/** Id and dates of a contract, for the in-memory date indexes. */
+public interface ContratPeriode {
+    Integer getIdContrat();
+
+    Date getDateDebutContrat();
+
+    Date getDateFinContrat();
+}
@@ -0,0 +1,26 @@
+package tn.esprit.spring.kaddem.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.time.Instant;
+import java.util.Date;
+
+/** A contract and its student as the list and lookup endpoints show them, same JSON as the entity. */
+public record ContratVue(Integer idContrat, Date dateDebutContrat, Date dateFinContrat, Specialite specialite,
+                         Boolean archive, Integer montantContrat, EtudiantVue etudiant, long version,
+                         @JsonIgnore Instant derniereModification) {
+
+    /** For {@code SELECT new}, which cannot nest: the student's columns in a row, all null without a student. */
+    public ContratVue(Integer idContrat, Date dateDebutContrat, Date dateFinContrat, Specialite specialite,
+                      Boolean archive, Integer montantContrat, Long version, Instant derniereModification,
+                      Integer idEtudiant, String nomE, String prenomE, Option op, Integer nbContratsActifs,
+                      Integer nbContratsArchives, Long montantTotalContrats, Long versionEtudiant,
+                      Instant derniereModificationEtudiant) {
+        this(idContrat, dateDebutContrat, dateFinContrat, specialite, archive, montantContrat,
+                idEtudiant == null ? null : new EtudiantVue(idEtudiant, nomE, prenomE, op, nbContratsActifs,
+                        nbContratsArchives, montantTotalContrats, versionEtudiant, derniereModificationEtudiant),
+                version, derniereModification);
+    }
+}
@@ -0,0 +1,12 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+/** One row of the "contracts grouped by specialite" aggregate. */
+public interface ContratsParSpecialite {
+    Specialite getSpecialite();
+
+    Long getNbContrats();
+
+    Long getMontantTotal();
+}
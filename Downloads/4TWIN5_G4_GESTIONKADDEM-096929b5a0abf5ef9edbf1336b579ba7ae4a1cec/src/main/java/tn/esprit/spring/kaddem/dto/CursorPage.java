@@ -0,0 +1,66 @@
+package tn.esprit.spring.kaddem.dto;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list. Rows are sorted by ascending id and
+ * {@code nextCursor} is the id to pass as {@code ?after=} to fetch the next page
+ * ({@code null} on the last page).
+ */
+public class CursorPage<T> {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 1000;
+
+    private final List<T> content;
+    private final int limit;
+    private final Integer nextCursor;
+
+    public CursorPage(List<T> content, int limit, Integer nextCursor) {
+        this.content = content;
+        this.limit = limit;
+        this.nextCursor = nextCursor;
+    }
+
+    public static <T> CursorPage<T> of(Slice<T> slice, Function<T, Integer> idExtractor) {
+        List<T> content = slice.getContent();
+        Integer nextCursor = slice.hasNext() && !content.isEmpty()
+                ? idExtractor.apply(content.get(content.size() - 1))
+                : null;
+        return new CursorPage<>(content, slice.getSize(), nextCursor);
+    }
+
+    /** No cursor means the first page: start before the smallest id. */
+    public static Integer after(Integer after) {
+        return after == null ? 0 : after;
+    }
+
+    /**
+     * Unsorted on purpose: the keyset query orders by id itself, in its @Query (ORDER BY c.idContrat in
+     * ContratRepository.findVuesApres) or in its derived name (OrderByIdDepartAsc). A Sort here would add a second ORDER BY.
+     */
+    public static Pageable limit(Integer limit) {
+        int size = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        return PageRequest.of(0, size);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,5 @@
+package tn.esprit.spring.kaddem.dto;
+
+/** One item of a bulk renewal: the contract to renew and the duration of the new one, in months. */
+public record DemandeRenouvellement(Integer idContrat, Integer newDuration) {
+}
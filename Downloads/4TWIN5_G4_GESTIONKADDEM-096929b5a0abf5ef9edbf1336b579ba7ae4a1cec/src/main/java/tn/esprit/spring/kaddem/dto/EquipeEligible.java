@@ -0,0 +1,12 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Niveau;
+
+/** A team together with the number of its students holding a qualifying contract. */
+public interface EquipeEligible {
+    Integer getIdEquipe();
+
+    Niveau getNiveau();
+
+    Long getNbEtudiants();
+}
@@ -0,0 +1,16 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Niveau;
+
+/** A team and its detail as the list and lookup endpoints show them, same JSON as the entity. */
+public record EquipeVue(Integer idEquipe, String nomEquipe, Niveau niveau, Detail detailEquipe) {
+
+    /** For {@code SELECT new}: the detail's columns in a row, all null without a detail. */
+    public EquipeVue(Integer idEquipe, String nomEquipe, Niveau niveau, Integer idDetailEquipe, Integer salle,
+                     String thematique) {
+        this(idEquipe, nomEquipe, niveau, idDetailEquipe == null ? null : new Detail(idDetailEquipe, salle, thematique));
+    }
+
+    public record Detail(Integer idDetailEquipe, Integer salle, String thematique) {
+    }
+}
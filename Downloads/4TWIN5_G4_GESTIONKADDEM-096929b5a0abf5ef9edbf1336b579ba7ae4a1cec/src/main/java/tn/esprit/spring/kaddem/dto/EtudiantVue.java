@@ -0,0 +1,15 @@
+package tn.esprit.spring.kaddem.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import tn.esprit.spring.kaddem.entities.Option;
+
+import java.time.Instant;
+
+/**
+ * A student as the list and lookup endpoints show it, same JSON as the entity. Read by a JPQL
+ * constructor expression: no managed entity, no proxy, nothing for the session to dirty-check.
+ */
+public record EtudiantVue(Integer idEtudiant, String nomE, String prenomE, Option op, int nbContratsActifs,
+                          int nbContratsArchives, long montantTotalContrats, long version,
+                          @JsonIgnore Instant derniereModification) {
+}
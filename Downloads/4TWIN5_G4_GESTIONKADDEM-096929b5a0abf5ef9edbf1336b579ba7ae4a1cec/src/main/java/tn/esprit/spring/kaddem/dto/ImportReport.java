@@ -0,0 +1,107 @@
+package tn.esprit.spring.kaddem.dto;
+
+import java.util.List;
+
+/** Outcome of a bulk import, chunk by chunk. Rejected rows are skipped, the rest of their chunk is kept. */
+public class ImportReport {
+    private final long nbLignes;
+    private final long nbImportees;
+    private final long nbRejetees;
+    private final long dureeMs;
+    private final List<Lot> lots;
+
+    public ImportReport(long nbLignes, long nbImportees, long nbRejetees, long dureeMs, List<Lot> lots) {
+        this.nbLignes = nbLignes;
+        this.nbImportees = nbImportees;
+        this.nbRejetees = nbRejetees;
+        this.dureeMs = dureeMs;
+        this.lots = lots;
+    }
+
+    public long getNbLignes() {
+        return nbLignes;
+    }
+
+    public long getNbImportees() {
+        return nbImportees;
+    }
+
+    public long getNbRejetees() {
+        return nbRejetees;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+
+    public List<Lot> getLots() {
+        return lots;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport{nbLignes=" + nbLignes + ", nbImportees=" + nbImportees
+                + ", nbRejetees=" + nbRejetees + ", dureeMs=" + dureeMs + '}';
+    }
+
+    /** One chunk, written in its own transaction. {@code echec} is set when that transaction was rolled back. */
+    public static class Lot {
+        private final int numero;
+        private final long premiereLigne;
+        private final long derniereLigne;
+        private final int nbImportees;
+        private final List<Erreur> erreurs;
+        private final String echec;
+
+        public Lot(int numero, long premiereLigne, long derniereLigne, int nbImportees, List<Erreur> erreurs, String echec) {
+            this.numero = numero;
+            this.premiereLigne = premiereLigne;
+            this.derniereLigne = derniereLigne;
+            this.nbImportees = nbImportees;
+            this.erreurs = erreurs;
+            this.echec = echec;
+        }
+
+        public int getNumero() {
+            return numero;
+        }
+
+        public long getPremiereLigne() {
+            return premiereLigne;
+        }
+
+        public long getDerniereLigne() {
+            return derniereLigne;
+        }
+
+        public int getNbImportees() {
+            return nbImportees;
+        }
+
+        public List<Erreur> getErreurs() {
+            return erreurs;
+        }
+
+        public String getEchec() {
+            return echec;
+        }
+    }
+
+    public static class Erreur {
+        private final long ligne;
+        private final String message;
+
+        public Erreur(long ligne, String message) {
+            this.ligne = ligne;
+            this.message = message;
+        }
+
+        public long getLigne() {
+            return ligne;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
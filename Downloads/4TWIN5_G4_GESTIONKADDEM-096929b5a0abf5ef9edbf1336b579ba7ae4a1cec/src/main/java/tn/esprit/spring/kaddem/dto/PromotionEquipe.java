@@ -0,0 +1,34 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Niveau;
+
+/** One team moved to the next {@link Niveau} by the promotion job. */
+public class PromotionEquipe {
+    private final Integer idEquipe;
+    private final Niveau ancienNiveau;
+    private final Niveau nouveauNiveau;
+    private final long nbEtudiants;
+
+    public PromotionEquipe(Integer idEquipe, Niveau ancienNiveau, Niveau nouveauNiveau, long nbEtudiants) {
+        this.idEquipe = idEquipe;
+        this.ancienNiveau = ancienNiveau;
+        this.nouveauNiveau = nouveauNiveau;
+        this.nbEtudiants = nbEtudiants;
+    }
+
+    public Integer getIdEquipe() {
+        return idEquipe;
+    }
+
+    public Niveau getAncienNiveau() {
+        return ancienNiveau;
+    }
+
+    public Niveau getNouveauNiveau() {
+        return nouveauNiveau;
+    }
+
+    public long getNbEtudiants() {
+        return nbEtudiants;
+    }
+}
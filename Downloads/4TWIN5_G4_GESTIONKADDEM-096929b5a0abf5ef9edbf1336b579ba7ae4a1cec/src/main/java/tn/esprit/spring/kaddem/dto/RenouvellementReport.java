@@ -0,0 +1,89 @@
+package tn.esprit.spring.kaddem.dto;
+
+import java.util.List;
+
+/** Outcome of a bulk renewal, one result per item in the order of the request. A rejected item does not stop the others. */
+public class RenouvellementReport {
+    private final int nbDemandes;
+    private final int nbRenouveles;
+    private final int nbRejetes;
+    private final long dureeMs;
+    private final List<Resultat> resultats;
+
+    public RenouvellementReport(int nbDemandes, int nbRenouveles, int nbRejetes, long dureeMs, List<Resultat> resultats) {
+        this.nbDemandes = nbDemandes;
+        this.nbRenouveles = nbRenouveles;
+        this.nbRejetes = nbRejetes;
+        this.dureeMs = dureeMs;
+        this.resultats = resultats;
+    }
+
+    public int getNbDemandes() {
+        return nbDemandes;
+    }
+
+    public int getNbRenouveles() {
+        return nbRenouveles;
+    }
+
+    public int getNbRejetes() {
+        return nbRejetes;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+
+    public List<Resultat> getResultats() {
+        return resultats;
+    }
+
+    @Override
+    public String toString() {
+        return "RenouvellementReport{nbDemandes=" + nbDemandes + ", nbRenouveles=" + nbRenouveles
+                + ", nbRejetes=" + nbRejetes + ", dureeMs=" + dureeMs + '}';
+    }
+
+    /** The new contract of a renewed item, or why the item was rejected. */
+    public static class Resultat {
+        private final Integer idContrat;
+        private final Integer idNouveauContrat;
+        private final Integer montantContrat;
+        private final String erreur;
+
+        private Resultat(Integer idContrat, Integer idNouveauContrat, Integer montantContrat, String erreur) {
+            this.idContrat = idContrat;
+            this.idNouveauContrat = idNouveauContrat;
+            this.montantContrat = montantContrat;
+            this.erreur = erreur;
+        }
+
+        public static Resultat renouvele(Integer idContrat, Integer idNouveauContrat, Integer montantContrat) {
+            return new Resultat(idContrat, idNouveauContrat, montantContrat, null);
+        }
+
+        public static Resultat rejete(Integer idContrat, String erreur) {
+            return new Resultat(idContrat, null, null, erreur);
+        }
+
+        public Integer getIdContrat() {
+            return idContrat;
+        }
+
+        public Integer getIdNouveauContrat() {
+            return idNouveauContrat;
+        }
+
+        public Integer getMontantContrat() {
+            return montantContrat;
+        }
+
+        public String getErreur() {
+            return erreur;
+        }
+
+        public boolean isRenouvele() {
+            return erreur == null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package tn.esprit.spring.kaddem.dto;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * What a conditional GET compares, read with one aggregate instead of the rows: how many rows, the sum
+ * of their versions and their latest change. An insert or a delete changes the count, an update the
+ * latest change and the versions, so the ETag built from them changes with the JSON.
+ */
+public class Revision {
+    private final long nombre;
+    private final long versions;
+    private final Instant derniereModification;
+
+    public Revision(Long nombre, Long versions, Instant derniereModification) {
+        this.nombre = nombre == null ? 0 : nombre;
+        this.versions = versions == null ? 0 : versions;
+        this.derniereModification = derniereModification;
+    }
+
+    /** The later of two changes, either of which may be unknown. */
+    public static Instant plusRecente(Instant une, Instant autre) {
+        return une == null || (autre != null && autre.isAfter(une)) ? autre : une;
+    }
+
+    /** Strong ETag, without the body: count, versions and latest change to the microsecond. */
+    public String getEtag() {
+        return "\"" + nombre + "-" + versions + "-"
+                + (derniereModification == null ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, derniereModification)) + "\"";
+    }
+
+    /** Last-Modified in milliseconds, -1 when no row has been written since the column exists. */
+    public long getDerniereModificationMs() {
+        return derniereModification == null ? -1 : derniereModification.toEpochMilli();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Revision)) return false;
+        Revision revision = (Revision) o;
+        return nombre == revision.nombre && versions == revision.versions
+                && Objects.equals(derniereModification, revision.derniereModification);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nombre, versions, derniereModification);
+    }
+
+    @Override
+    public String toString() {
+        return "Revision" + getEtag();
+    }
+}
@@ -0,0 +1,17 @@
+package tn.esprit.spring.kaddem.entities;
+
+/**
+ * Second-level cache regions. Every region must be created by
+ * {@code SecondLevelCacheConfig}: Hibernate refuses to start on a region it does not find.
+ */
+public final class CacheRegions {
+    public static final String UNIVERSITE = "kaddem.universite";
+    public static final String UNIVERSITE_DEPARTEMENTS = "kaddem.universite.departements";
+    public static final String DEPARTEMENT = "kaddem.departement";
+    public static final String DETAIL_EQUIPE = "kaddem.detail-equipe";
+
+    public static final String[] TOUTES = {UNIVERSITE, UNIVERSITE_DEPARTEMENTS, DEPARTEMENT, DETAIL_EQUIPE};
+
+    private CacheRegions() {
+    }
+}
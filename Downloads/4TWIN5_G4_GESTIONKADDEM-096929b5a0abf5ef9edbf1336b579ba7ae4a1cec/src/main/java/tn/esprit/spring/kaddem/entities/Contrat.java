@@ -1,17 +1,29 @@
 package tn.esprit.spring.kaddem.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Date;
 
 import javax.persistence.*;
 
 @Entity
-@ToString
+@Table(indexes = {
+        // expiry: archiverContratsExpires, findContratsActifsExpirantLe, findEcheances (archive = false, range on the end date)
+        @Index(name = "idx_contrat_archive_fin", columnList = "archive, dateFinContrat"),
+        // getnbContratsValides (archived contracts, range on the start date)
+        @Index(name = "idx_contrat_archive_debut_fin", columnList = "archive, dateDebutContrat, dateFinContrat")
+})
+@ToString(exclude = "etudiant")
+// an UPDATE writes the changed columns only: an assignment is the foreign key, the version and the date
+@DynamicUpdate
 public class Contrat implements Serializable{
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(generator = IdGenerators.POOLED)
     private Integer idContrat;
     @Temporal(TemporalType.DATE)
     private Date dateDebutContrat;
@@ -23,6 +35,15 @@ public class Contrat implements Serializable{
     private Integer montantContrat;
     @ManyToOne(cascade = CascadeType.ALL)
     private Etudiant etudiant;
+    // optimistic locking; existing rows start at 0
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+    // Last-Modified and ETag of the conditional GETs: set on every insert and update, and by the bulk UPDATEs
+    @UpdateTimestamp
+    @Column(columnDefinition = "datetime(6)")
+    @JsonIgnore
+    private Instant derniereModification;
 
     public Contrat() {
         // TODO Auto-generated constructor stub
@@ -94,5 +115,21 @@ public class Contrat implements Serializable{
         this.etudiant = etudiant;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Instant getDerniereModification() {
+        return derniereModification;
+    }
+
+    public void setDerniereModification(Instant derniereModification) {
+        this.derniereModification = derniereModification;
+    }
+
 
 }
@@ -3,16 +3,29 @@ package tn.esprit.spring.kaddem.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Set;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
+
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.DEPARTEMENT)
 public class Departement implements Serializable{
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(generator = IdGenerators.POOLED)
     private Integer idDepart;
     private String nomDepart;
+    // Last-Modified and ETag of the conditional GETs, set on every insert and update
+    @UpdateTimestamp
+    @Column(columnDefinition = "datetime(6)")
+    @JsonIgnore
+    private Instant derniereModification;
+    // not cached: Etudiant owns the link, so Hibernate would not invalidate this collection
     @OneToMany(mappedBy="departement")
     @JsonIgnore
     private Set<Etudiant> etudiants;
@@ -52,4 +65,12 @@ public class Departement implements Serializable{
         this.nomDepart = nomDepart;
     }
 
+    public Instant getDerniereModification() {
+        return derniereModification;
+    }
+
+    public void setDerniereModification(Instant derniereModification) {
+        this.derniereModification = derniereModification;
+    }
+
 }
@@ -1,13 +1,20 @@
 package tn.esprit.spring.kaddem.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.io.Serializable;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.DETAIL_EQUIPE)
 public class DetailEquipe implements Serializable{
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(generator = IdGenerators.POOLED)
     private Integer idDetailEquipe;
     private Integer salle;
     private String thematique;
@@ -30,6 +37,8 @@ public class DetailEquipe implements Serializable{
         this.thematique = thematique;
     }
 
+    // back-reference of Equipe.detailEquipe: the JSON of an equipe with its detail would loop
+    @JsonIgnore
     public Equipe getEquipe() {
         return equipe;
     }
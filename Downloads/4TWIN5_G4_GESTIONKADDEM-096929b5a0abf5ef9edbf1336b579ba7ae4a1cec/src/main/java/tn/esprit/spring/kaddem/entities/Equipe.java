@@ -9,14 +9,19 @@ import javax.persistence.*;
 
 @Entity
 public class Equipe implements Serializable{
+    // the names Hibernate gave the join table, fixed for the native INSERT of EquipeRepository.ajouterEtudiants
+    public static final String TABLE_ETUDIANTS = "equipe_etudiants";
+
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(generator = IdGenerators.POOLED)
     private Integer idEquipe;
     private String nomEquipe;
     @Enumerated(EnumType.STRING)
     private Niveau niveau;
     //@ManyToMany(mappedBy="equipes")
     @ManyToMany(cascade =CascadeType.ALL)
+    @JoinTable(name = TABLE_ETUDIANTS, joinColumns = @JoinColumn(name = "equipe_id_equipe"),
+            inverseJoinColumns = @JoinColumn(name = "etudiants_id_etudiant"))
 
     @JsonIgnore
     private Set<Etudiant> etudiants;
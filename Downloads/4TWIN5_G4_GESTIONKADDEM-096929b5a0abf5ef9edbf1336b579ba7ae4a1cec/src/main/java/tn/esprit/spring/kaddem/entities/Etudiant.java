@@ -2,8 +2,11 @@ package tn.esprit.spring.kaddem.entities;
 
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.List;
 import java.util.Set;
 
@@ -12,9 +15,17 @@ import javax.persistence.*;
 
 @SuppressWarnings("SpellCheckingInspection")
 @Entity
+@Table(indexes = {
+        // findByNomEAndPrenomE, findIdEtudiant (assignment by name)
+        @Index(name = "idx_etudiant_nom_prenom", columnList = "nomE, prenomE"),
+        // findVuesByDepartement
+        @Index(name = "idx_etudiant_departement", columnList = "departement_id_depart")
+})
+// an UPDATE writes the changed columns only: a department change is the foreign key, the version and the date
+@DynamicUpdate
 public class Etudiant implements Serializable{
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(generator = IdGenerators.POOLED)
     private Integer idEtudiant;
     private String nomE;
     private String prenomE;
@@ -24,6 +35,7 @@ public class Etudiant implements Serializable{
     @JsonIgnore
     private Set<Contrat> Contrats;
     @ManyToOne
+    @JoinColumn(name = "departement_id_depart")
     @JsonIgnore
     private Departement departement;
   //  @ManyToMany(cascade =CascadeType.ALL)
@@ -32,6 +44,23 @@ public class Etudiant implements Serializable{
     @JsonIgnore
   //  private Set<Equipe> equipes ;
     private List<Equipe> equipes ;
+    // contract counters, written only by UPDATE statements (see CompteursContrats) and recomputed by the repair job
+    @Column(insertable = false, updatable = false, columnDefinition = "integer default 0 not null")
+    private int nbContratsActifs;
+    @Column(insertable = false, updatable = false, columnDefinition = "integer default 0 not null")
+    private int nbContratsArchives;
+    @Column(insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long montantTotalContrats;
+    // optimistic locking, also checked and bumped by the counter UPDATEs of the writes that check the counters
+    // (see CompteursContrats.appliquerVerifie)
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+    // Last-Modified and ETag of the conditional GETs: set on every insert and update, and by the bulk UPDATEs
+    @UpdateTimestamp
+    @Column(columnDefinition = "datetime(6)")
+    @JsonIgnore
+    private Instant derniereModification;
     public Etudiant() {
         // TODO Auto-generated constructor stub
     }
@@ -56,6 +85,8 @@ public class Etudiant implements Serializable{
         this.op = op;
     }
 
+    // on the getter: Jackson names the property "contrats", which the @JsonIgnore of the field "Contrats" missed
+    @JsonIgnore
     public Set<Contrat> getContrats() {
         return Contrats;
     }
@@ -105,4 +136,44 @@ public class Etudiant implements Serializable{
         this.op = op;
     }
 
+    public int getNbContratsActifs() {
+        return nbContratsActifs;
+    }
+
+    public void setNbContratsActifs(int nbContratsActifs) {
+        this.nbContratsActifs = nbContratsActifs;
+    }
+
+    public int getNbContratsArchives() {
+        return nbContratsArchives;
+    }
+
+    public void setNbContratsArchives(int nbContratsArchives) {
+        this.nbContratsArchives = nbContratsArchives;
+    }
+
+    public long getMontantTotalContrats() {
+        return montantTotalContrats;
+    }
+
+    public void setMontantTotalContrats(long montantTotalContrats) {
+        this.montantTotalContrats = montantTotalContrats;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Instant getDerniereModification() {
+        return derniereModification;
+    }
+
+    public void setDerniereModification(Instant derniereModification) {
+        this.derniereModification = derniereModification;
+    }
+
 }
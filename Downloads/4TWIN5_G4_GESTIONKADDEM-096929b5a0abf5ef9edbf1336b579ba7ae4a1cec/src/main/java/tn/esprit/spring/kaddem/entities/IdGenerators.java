@@ -0,0 +1,11 @@
+package tn.esprit.spring.kaddem.entities;
+
+/** Names shared by the id generator declared in package-info.java and the code that seeds it. */
+public final class IdGenerators {
+    public static final String POOLED = "kaddem-pooled";
+    public static final String TABLE = "hibernate_sequences";
+    public static final int TAILLE_BLOC = 50;
+
+    private IdGenerators() {
+    }
+}
@@ -3,17 +3,35 @@ package tn.esprit.spring.kaddem.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Set;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
+
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.UNIVERSITE)
 public class Universite implements Serializable{
+    // the names Hibernate gave the join table, fixed for the native INSERT of UniversiteRepository.ajouterDepartement
+    public static final String TABLE_DEPARTEMENTS = "universite_departements";
+
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(generator = IdGenerators.POOLED)
     private Integer idUniv;
     private String nomUniv;
+    // Last-Modified and ETag of the conditional GETs, set on every insert and update
+    @UpdateTimestamp
+    @Column(columnDefinition = "datetime(6)")
+    @JsonIgnore
+    private Instant derniereModification;
     @OneToMany(cascade = CascadeType.ALL)
+    @JoinTable(name = TABLE_DEPARTEMENTS, joinColumns = @JoinColumn(name = "universite_id_univ"),
+            inverseJoinColumns = @JoinColumn(name = "departements_id_depart"))
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.UNIVERSITE_DEPARTEMENTS)
     @JsonIgnore
     private Set<Departement> departements;
     public Universite() {
@@ -52,4 +70,12 @@ public class Universite implements Serializable{
         this.nomUniv = nomUniv;
     }
 
+    public Instant getDerniereModification() {
+        return derniereModification;
+    }
+
+    public void setDerniereModification(Instant derniereModification) {
+        this.derniereModification = derniereModification;
+    }
+
 }
@@ -0,0 +1,16 @@
+/**
+ * Every entity takes its id from the {@value tn.esprit.spring.kaddem.entities.IdGenerators#POOLED} generator:
+ * a row per table in {@code hibernate_sequences}, read once per block of 50 ids (pooled-lo). Unlike IDENTITY,
+ * the id is known before the INSERT, so Hibernate can batch the inserts.
+ */
+@GenericGenerator(name = IdGenerators.POOLED, strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+        @Parameter(name = TableGenerator.TABLE_PARAM, value = IdGenerators.TABLE),
+        @Parameter(name = TableGenerator.CONFIG_PREFER_SEGMENT_PER_ENTITY, value = "true"),
+        @Parameter(name = TableGenerator.INCREMENT_PARAM, value = "" + IdGenerators.TAILLE_BLOC),
+        @Parameter(name = TableGenerator.OPT_PARAM, value = "pooled-lo")
+})
+package tn.esprit.spring.kaddem.entities;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.TableGenerator;
@@ -0,0 +1,29 @@
+package tn.esprit.spring.kaddem.events;
+
+import tn.esprit.spring.kaddem.entities.Contrat;
+
+/**
+ * Published by the contract service after a single contract was written, and by the bulk import for
+ * each contract it creates. In-memory views of the contracts listen to it (after commit) to stay in
+ * sync without rescanning the table.
+ */
+public class ContratEvent {
+    public enum Type {AJOUT, MISE_A_JOUR, SUPPRESSION}
+
+    private final Type type;
+    private final Contrat contrat;
+
+    public ContratEvent(Type type, Contrat contrat) {
+        this.type = type;
+        this.contrat = contrat;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /** State after the write; for {@link Type#SUPPRESSION}, the state that was deleted. */
+    public Contrat getContrat() {
+        return contrat;
+    }
+}
@@ -0,0 +1,22 @@
+package tn.esprit.spring.kaddem.events;
+
+import java.util.Date;
+
+/** Published after the bulk archiving of every active contract whose end date is before {@code dateLimite}. */
+public class ContratsArchivesEvent {
+    private final Date dateLimite;
+    private final int nbContrats;
+
+    public ContratsArchivesEvent(Date dateLimite, int nbContrats) {
+        this.dateLimite = dateLimite;
+        this.nbContrats = nbContrats;
+    }
+
+    public Date getDateLimite() {
+        return dateLimite;
+    }
+
+    public int getNbContrats() {
+        return nbContrats;
+    }
+}
@@ -0,0 +1,52 @@
+package tn.esprit.spring.kaddem.imports;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.kaddem.dto.ImportReport;
+import tn.esprit.spring.kaddem.services.IImportService;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command line import, then exit:
+ * {@code java -jar kaddem.jar --kaddem.import.fichier=etudiants.csv --spring.main.web-application-type=none}.
+ * The format follows the file extension (.csv, anything else is read as NDJSON).
+ * The exit code is 1 when a row was rejected.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("kaddem.import.fichier")
+public class ImportCommandLineRunner implements CommandLineRunner {
+    @Autowired
+    IImportService importService;
+    @Autowired
+    ConfigurableApplicationContext context;
+
+    @Value("${kaddem.import.fichier}")
+    String fichier;
+
+    @Override
+    public void run(String... args) throws Exception {
+        ImportReport rapport;
+        try (InputStream donnees = Files.newInputStream(Path.of(fichier))) {
+            rapport = importService.importer(donnees, ImportFormat.fromFileName(fichier));
+        }
+        for (ImportReport.Lot lot : rapport.getLots()) {
+            if (lot.getEchec() != null) {
+                log.error("Chunk {} (lines {}-{}) rolled back: {}", lot.getNumero(), lot.getPremiereLigne(),
+                        lot.getDerniereLigne(), lot.getEchec());
+            }
+            lot.getErreurs().forEach(erreur -> log.error("Line {}: {}", erreur.getLigne(), erreur.getMessage()));
+        }
+        int code = rapport.getNbRejetees() == 0 ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
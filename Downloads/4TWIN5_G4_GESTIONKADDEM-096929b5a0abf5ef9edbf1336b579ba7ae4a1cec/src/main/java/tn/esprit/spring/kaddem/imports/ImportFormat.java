@@ -0,0 +1,20 @@
+package tn.esprit.spring.kaddem.imports;
+
+/** Input formats accepted by the bulk import. */
+public enum ImportFormat {
+    /** Comma-separated values; the first line is the header naming the columns. */
+    CSV,
+    /** One JSON object per line. */
+    NDJSON;
+
+    public static ImportFormat fromContentType(String contentType) {
+        if (contentType != null && contentType.toLowerCase().startsWith("text/csv")) {
+            return CSV;
+        }
+        return NDJSON;
+    }
+
+    public static ImportFormat fromFileName(String fileName) {
+        return fileName.toLowerCase().endsWith(".csv") ? CSV : NDJSON;
+    }
+}
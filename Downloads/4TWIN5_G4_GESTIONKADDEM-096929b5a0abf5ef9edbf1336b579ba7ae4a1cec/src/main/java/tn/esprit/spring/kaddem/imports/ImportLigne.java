@@ -0,0 +1,124 @@
+package tn.esprit.spring.kaddem.imports;
+
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.util.Date;
+
+/**
+ * One validated row of an import file. {@code ref} is the key other rows of the same file use in
+ * their {@code parent} column to point at this one; a {@code parent} that is not a ref of the file
+ * is read as the id of a row already in the database.
+ */
+public class ImportLigne {
+    public enum Type {
+        /** parent: none */
+        UNIVERSITE,
+        /** parent: universite (optional) */
+        DEPARTEMENT,
+        /** parent: departement (optional) */
+        ETUDIANT,
+        /** parent: etudiant (optional) */
+        CONTRAT
+    }
+
+    private final long numero;
+    private final Type type;
+    private final String ref;
+    private final String parent;
+    private String nom;
+    private String prenom;
+    private Option option;
+    private Date dateDebut;
+    private Date dateFin;
+    private Specialite specialite;
+    private Integer montant;
+    private boolean archive;
+
+    public ImportLigne(long numero, Type type, String ref, String parent) {
+        this.numero = numero;
+        this.type = type;
+        this.ref = ref;
+        this.parent = parent;
+    }
+
+    public long getNumero() {
+        return numero;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public void setNom(String nom) {
+        this.nom = nom;
+    }
+
+    public String getPrenom() {
+        return prenom;
+    }
+
+    public void setPrenom(String prenom) {
+        this.prenom = prenom;
+    }
+
+    public Option getOption() {
+        return option;
+    }
+
+    public void setOption(Option option) {
+        this.option = option;
+    }
+
+    public Date getDateDebut() {
+        return dateDebut;
+    }
+
+    public void setDateDebut(Date dateDebut) {
+        this.dateDebut = dateDebut;
+    }
+
+    public Date getDateFin() {
+        return dateFin;
+    }
+
+    public void setDateFin(Date dateFin) {
+        this.dateFin = dateFin;
+    }
+
+    public Specialite getSpecialite() {
+        return specialite;
+    }
+
+    public void setSpecialite(Specialite specialite) {
+        this.specialite = specialite;
+    }
+
+    public Integer getMontant() {
+        return montant;
+    }
+
+    public void setMontant(Integer montant) {
+        this.montant = montant;
+    }
+
+    public boolean isArchive() {
+        return archive;
+    }
+
+    public void setArchive(boolean archive) {
+        this.archive = archive;
+    }
+}
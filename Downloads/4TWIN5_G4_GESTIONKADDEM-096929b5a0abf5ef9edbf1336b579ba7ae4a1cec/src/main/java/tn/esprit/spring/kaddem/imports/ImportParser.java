@@ -0,0 +1,187 @@
+package tn.esprit.spring.kaddem.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the lines of an import file into {@link ImportLigne}s. Columns (CSV header or JSON keys):
+ * type, ref, parent, nom, prenom, option, dateDebut, dateFin (yyyy-MM-dd), specialite, montant, archive.
+ * Stateless once built, so the parse workers share one instance.
+ */
+public class ImportParser {
+    private static final ObjectReader JSON = new ObjectMapper().readerFor(new TypeReference<Map<String, Object>>() {});
+
+    private final ImportFormat format;
+    private final String[] colonnes;
+
+    private ImportParser(ImportFormat format, String[] colonnes) {
+        this.format = format;
+        this.colonnes = colonnes;
+    }
+
+    public static ImportParser ndjson() {
+        return new ImportParser(ImportFormat.NDJSON, null);
+    }
+
+    public static ImportParser csv(String entete) {
+        List<String> colonnes = decouperCsv(entete);
+        if (!colonnes.contains("type")) {
+            throw new IllegalArgumentException("CSV header has no 'type' column: " + entete);
+        }
+        return new ImportParser(ImportFormat.CSV, colonnes.stream().map(String::trim).toArray(String[]::new));
+    }
+
+    /** @throws IllegalArgumentException with a message meant for the import report */
+    public ImportLigne parser(long numero, String ligne) {
+        Map<String, String> champs = new HashMap<>();
+        if (format == ImportFormat.CSV) {
+            List<String> valeurs = decouperCsv(ligne);
+            if (valeurs.size() > colonnes.length) {
+                throw new IllegalArgumentException(valeurs.size() + " values for " + colonnes.length + " columns");
+            }
+            for (int i = 0; i < valeurs.size(); i++) {
+                champs.put(colonnes[i], valeurs.get(i));
+            }
+        } else {
+            Map<String, Object> json;
+            try {
+                json = JSON.readValue(ligne);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("invalid JSON: " + e.getOriginalMessage());
+            }
+            json.forEach((cle, valeur) -> champs.put(cle, valeur == null ? null : valeur.toString()));
+        }
+        return valider(numero, champs);
+    }
+
+    private static ImportLigne valider(long numero, Map<String, String> champs) {
+        ImportLigne.Type type = enumeration(ImportLigne.Type.class, "type", requis(champs, "type"));
+        ImportLigne ligne = new ImportLigne(numero, type, valeur(champs, "ref"), valeur(champs, "parent"));
+        switch (type) {
+            case UNIVERSITE:
+                requis(champs, "ref");
+                if (ligne.getParent() != null) {
+                    throw new IllegalArgumentException("a universite has no parent");
+                }
+                ligne.setNom(requis(champs, "nom"));
+                break;
+            case DEPARTEMENT:
+                requis(champs, "ref");
+                ligne.setNom(requis(champs, "nom"));
+                break;
+            case ETUDIANT:
+                requis(champs, "ref");
+                ligne.setNom(requis(champs, "nom"));
+                ligne.setPrenom(requis(champs, "prenom"));
+                String option = valeur(champs, "option");
+                if (option != null) {
+                    ligne.setOption(enumeration(Option.class, "option", option));
+                }
+                break;
+            case CONTRAT:
+                ligne.setDateDebut(date("dateDebut", requis(champs, "dateDebut")));
+                ligne.setDateFin(date("dateFin", requis(champs, "dateFin")));
+                if (ligne.getDateFin().before(ligne.getDateDebut())) {
+                    throw new IllegalArgumentException("dateFin is before dateDebut");
+                }
+                ligne.setSpecialite(enumeration(Specialite.class, "specialite", requis(champs, "specialite")));
+                String montant = valeur(champs, "montant");
+                if (montant != null) {
+                    ligne.setMontant(montant(montant));
+                }
+                String archive = valeur(champs, "archive");
+                if (archive != null && !archive.equalsIgnoreCase("true") && !archive.equalsIgnoreCase("false")) {
+                    throw new IllegalArgumentException("archive must be true or false: " + archive);
+                }
+                ligne.setArchive(Boolean.parseBoolean(archive));
+                break;
+        }
+        return ligne;
+    }
+
+    private static String valeur(Map<String, String> champs, String nom) {
+        String valeur = champs.get(nom);
+        return valeur == null || valeur.isBlank() ? null : valeur.trim();
+    }
+
+    private static String requis(Map<String, String> champs, String nom) {
+        String valeur = valeur(champs, nom);
+        if (valeur == null) {
+            throw new IllegalArgumentException(nom + " is required");
+        }
+        return valeur;
+    }
+
+    private static <E extends Enum<E>> E enumeration(Class<E> type, String nom, String valeur) {
+        try {
+            return Enum.valueOf(type, valeur.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown " + nom + ": " + valeur);
+        }
+    }
+
+    private static Date date(String nom, String valeur) {
+        try {
+            return Date.from(LocalDate.parse(valeur).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(nom + " is not a yyyy-MM-dd date: " + valeur);
+        }
+    }
+
+    private static Integer montant(String valeur) {
+        try {
+            int montant = Integer.parseInt(valeur);
+            if (montant < 0) {
+                throw new IllegalArgumentException("montant is negative: " + valeur);
+            }
+            return montant;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("montant is not an integer: " + valeur);
+        }
+    }
+
+    /** Splits one CSV record; double quotes protect commas and are escaped by doubling them. */
+    static List<String> decouperCsv(String ligne) {
+        List<String> valeurs = new ArrayList<>();
+        StringBuilder courante = new StringBuilder();
+        boolean entreGuillemets = false;
+        for (int i = 0; i < ligne.length(); i++) {
+            char c = ligne.charAt(i);
+            if (entreGuillemets) {
+                if (c == '"' && i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+                    courante.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreGuillemets = false;
+                } else {
+                    courante.append(c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == ',') {
+                valeurs.add(courante.toString());
+                courante.setLength(0);
+            } else {
+                courante.append(c);
+            }
+        }
+        if (entreGuillemets) {
+            throw new IllegalArgumentException("unterminated quoted value");
+        }
+        valeurs.add(courante.toString());
+        return valeurs;
+    }
+}
@@ -3,26 +3,132 @@ package tn.esprit.spring.kaddem.repositories;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Temporal;
 import org.springframework.data.repository.query.FluentQuery;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.spring.kaddem.dto.ContratCompteurs;
+import tn.esprit.spring.kaddem.dto.ContratEcheance;
+import tn.esprit.spring.kaddem.dto.ContratIntervalle;
+import tn.esprit.spring.kaddem.dto.ContratPeriode;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.dto.ContratsParSpecialite;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
 
+import javax.persistence.QueryHint;
+import javax.persistence.TemporalType;
+
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface ContratRepository extends CrudRepository<Contrat, Integer> {
+public interface ContratRepository extends JpaRepository<Contrat, Integer> {
 
-    @Query("SELECT count(c) FROM Contrat c where ((c.archive=true) and  ((c.dateDebutContrat BETWEEN :startDate AND :endDate)) or(c.dateFinContrat BETWEEN :startDate AND :endDate))")
+    // archived contracts that start or end in the range. The parentheses used to bind "archive = true"
+    // to the start date only, so every contract ending in the range counted, archived or not.
+    // Answered from IndexContratsValides; kept as the reference the index must agree with.
+    @Query("SELECT count(c) FROM Contrat c WHERE c.archive = true" +
+            " AND (c.dateDebutContrat BETWEEN :startDate AND :endDate OR c.dateFinContrat BETWEEN :startDate AND :endDate)")
 public Integer getnbContratsValides(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
 
+    // the student is eager: without the graph, each contract of the list loads it (and its department) in a select of its own
+    @EntityGraph(attributePaths = {"etudiant", "etudiant.departement"})
 public List<Contrat> findAll();
+
+    @Query("SELECT c.specialite AS specialite, count(c) AS nbContrats, sum(c.montantContrat) AS montantTotal FROM Contrat c group by c.specialite")
+public List<ContratsParSpecialite> countContratsParSpecialite();
+
 public Contrat findByIdContrat(Integer idContrat);
+
+    // the bulk renewal: the contracts with their students, whose counters the renewal rules read
+    @EntityGraph(attributePaths = {"etudiant", "etudiant.departement"})
+public List<Contrat> findByIdContratIn(Collection<Integer> idContrats);
+
+    // the JSON of a contract embeds its student: a change to either changes the revision
+    String REVISION = "SELECT new tn.esprit.spring.kaddem.dto.Revision(count(c), sum(c.version) + coalesce(sum(e.version), 0)," +
+            " max(CASE WHEN c.derniereModification IS NULL OR e.derniereModification > c.derniereModification" +
+            " THEN e.derniereModification ELSE c.derniereModification END)) FROM Contrat c LEFT JOIN c.etudiant e";
+
+    @Query(REVISION)
+    public Revision findRevision();
+
+    @Query(REVISION + " WHERE c.idContrat = :idContrat")
+    public Revision findRevision(@Param("idContrat") Integer idContrat);
+
+    @Query("SELECT c.etudiant.idEtudiant FROM Contrat c WHERE c.idContrat = :idContrat")
+    public Integer findIdEtudiant(@Param("idContrat") Integer idContrat);
+
+    // the row as stored: no auto flush, so pending changes to the same contract are not read back
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    @Query("SELECT c.etudiant AS etudiant, c.archive AS archive, c.montantContrat AS montantContrat FROM Contrat c WHERE c.idContrat = :idContrat")
+    public Optional<ContratCompteurs> findCompteursByIdContrat(@Param("idContrat") Integer idContrat);
+
+    @Modifying
+    @Query("UPDATE Contrat c SET c.archive = true, c.derniereModification = :maintenant WHERE c.archive = false AND c.dateFinContrat < :dateLimite")
+public int archiverContratsExpires(@Param("dateLimite") @Temporal(TemporalType.DATE) Date dateLimite, @Param("maintenant") Instant maintenant);
+
+    @Query("SELECT c FROM Contrat c LEFT JOIN FETCH c.etudiant WHERE c.archive = false AND c.dateFinContrat = :dateFin")
+public List<Contrat> findContratsActifsExpirantLe(@Param("dateFin") @Temporal(TemporalType.DATE) Date dateFin);
+
+    @Query("SELECT c.idContrat AS idContrat, c.dateFinContrat AS dateFinContrat FROM Contrat c" +
+            " WHERE c.archive = false AND c.dateFinContrat >= :debut AND c.dateFinContrat <= :fin ORDER BY c.dateFinContrat")
+public List<ContratEcheance> findEcheances(@Param("debut") @Temporal(TemporalType.DATE) Date debut,
+                                           @Param("fin") @Temporal(TemporalType.DATE) Date fin, Pageable pageable);
+
+    @Query("SELECT c.idContrat AS idContrat, c.dateDebutContrat AS dateDebutContrat, c.dateFinContrat AS dateFinContrat" +
+            " FROM Contrat c WHERE c.archive = true")
+public List<ContratPeriode> findPeriodesArchivees();
+
+    // a contract without both dates, or ending before it starts, is never active
+    @Query("SELECT c.idContrat AS idContrat, c.dateDebutContrat AS dateDebutContrat, c.dateFinContrat AS dateFinContrat," +
+            " c.specialite AS specialite, e.idEtudiant AS idEtudiant" +
+            " FROM Contrat c LEFT JOIN c.etudiant e WHERE c.dateDebutContrat <= c.dateFinContrat")
+public List<ContratIntervalle> findIntervalles();
+
+    // the list and lookup endpoints: the rows go straight into records, no entity is built or managed
+    String VUE = "SELECT new tn.esprit.spring.kaddem.dto.ContratVue(c.idContrat, c.dateDebutContrat, c.dateFinContrat," +
+            " c.specialite, c.archive, c.montantContrat, c.version, c.derniereModification, e.idEtudiant, e.nomE, e.prenomE," +
+            " e.op, e.nbContratsActifs, e.nbContratsArchives, e.montantTotalContrats, e.version, e.derniereModification)" +
+            " FROM Contrat c LEFT JOIN c.etudiant e";
+
+    @Query(VUE + " ORDER BY c.idContrat")
+    public List<ContratVue> findVues();
+
+    @Query(VUE + " WHERE c.idContrat = :idContrat")
+    public Optional<ContratVue> findVueById(@Param("idContrat") Integer idContrat);
+
+    @Query(VUE + " WHERE c.idContrat IN :idContrats")
+    public List<ContratVue> findVuesById(@Param("idContrats") Collection<Integer> idContrats);
+
+    @Query(VUE + " WHERE c.idContrat > :idContrat ORDER BY c.idContrat")
+    public Slice<ContratVue> findVuesApres(@Param("idContrat") Integer idContrat, Pageable pageable);
+
+    // Server-side cursor (useCursorFetch=true on the datasource URL): MySQL sends the rows in blocks of
+    // EXPORT_FETCH_SIZE instead of buffering the whole result set in the driver.
+    String EXPORT_FETCH_SIZE = "1000";
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT c FROM Contrat c LEFT JOIN FETCH c.etudiant e LEFT JOIN FETCH e.departement" +
+            " where (:startDate is null or c.dateFinContrat >= :startDate)" +
+            " and (:endDate is null or c.dateDebutContrat <= :endDate)" +
+            " and (:specialite is null or c.specialite = :specialite)" +
+            " order by c.idContrat")
+public Stream<Contrat> streamContrats(@Param("startDate") Date startDate, @Param("endDate") Date endDate, @Param("specialite") Specialite specialite);
 }
@@ -1,12 +1,24 @@
 package tn.esprit.spring.kaddem.repositories;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Departement;
 
 @Repository
-public interface DepartementRepository extends CrudRepository<Departement,Integer> {
+public interface DepartementRepository extends JpaRepository<Departement,Integer> {
+    public Slice<Departement> findByIdDepartGreaterThanOrderByIdDepartAsc(Integer idDepart, Pageable pageable);
 
+    // no version column: the count and the latest change only
+    String REVISION = "SELECT new tn.esprit.spring.kaddem.dto.Revision(count(d), 0L, max(d.derniereModification)) FROM Departement d";
 
+    @Query(REVISION)
+    public Revision findRevision();
 
+    @Query(REVISION + " WHERE d.idDepart = :idDepart")
+    public Revision findRevision(@Param("idDepart") Integer idDepart);
 }
@@ -1,12 +1,65 @@
 package tn.esprit.spring.kaddem.repositories;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.spring.kaddem.dto.EquipeEligible;
+import tn.esprit.spring.kaddem.dto.EquipeVue;
 import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Niveau;
+
+import javax.persistence.QueryHint;
+import javax.persistence.TemporalType;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
 
 @Repository
-public interface EquipeRepository extends CrudRepository<Equipe,Integer> {
+public interface EquipeRepository extends JpaRepository<Equipe,Integer> {
+    // the list and lookup endpoints: the detail by the same join, where the entity loaded it one team at a time
+    String VUE = "SELECT new tn.esprit.spring.kaddem.dto.EquipeVue(q.idEquipe, q.nomEquipe, q.niveau, d.idDetailEquipe," +
+            " d.salle, d.thematique) FROM Equipe q LEFT JOIN q.detailEquipe d";
+
+    @Query(VUE + " ORDER BY q.idEquipe")
+    public List<EquipeVue> findVues();
+
+    @Query(VUE + " WHERE q.idEquipe = :idEquipe")
+    public Optional<EquipeVue> findVueById(@Param("idEquipe") Integer idEquipe);
+
+    @Query(VUE + " WHERE q.idEquipe > :idEquipe ORDER BY q.idEquipe")
+    public Slice<EquipeVue> findVuesApres(@Param("idEquipe") Integer idEquipe, Pageable pageable);
 
+    @Query("SELECT eq.idEquipe AS idEquipe, eq.niveau AS niveau, count(distinct et.idEtudiant) AS nbEtudiants" +
+            " FROM Equipe eq JOIN eq.etudiants et JOIN et.Contrats c" +
+            " WHERE eq.niveau IN :niveaux AND c.archive = false AND c.dateFinContrat <= :dateLimite" +
+            " GROUP BY eq.idEquipe, eq.niveau HAVING count(distinct et.idEtudiant) >= :nbEtudiantsMin")
+    public List<EquipeEligible> findEquipesAPromouvoir(@Param("niveaux") Collection<Niveau> niveaux,
+                                                       @Param("dateLimite") @Temporal(TemporalType.DATE) Date dateLimite,
+                                                       @Param("nbEtudiantsMin") long nbEtudiantsMin);
 
+    /**
+     * Adds the students to the team: one INSERT ... SELECT on the join table, which skips the unknown ids
+     * and the students already in the team, and never loads the membership collection. The query space
+     * keeps Hibernate from emptying every second-level cache region, as it does for a native update.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = Equipe.TABLE_ETUDIANTS))
+    @Query(nativeQuery = true, value = "INSERT INTO " + Equipe.TABLE_ETUDIANTS + " (equipe_id_equipe, etudiants_id_etudiant)" +
+            " SELECT :idEquipe, e.id_etudiant FROM etudiant e WHERE e.id_etudiant IN (:ids) AND NOT EXISTS" +
+            " (SELECT 1 FROM " + Equipe.TABLE_ETUDIANTS + " m WHERE m.equipe_id_equipe = :idEquipe AND m.etudiants_id_etudiant = e.id_etudiant)")
+    public int ajouterEtudiants(@Param("idEquipe") Integer idEquipe, @Param("ids") Collection<Integer> ids);
 
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Equipe e SET e.niveau = :nouveauNiveau WHERE e.niveau = :ancienNiveau AND e.idEquipe IN :ids")
+    public int changerNiveau(@Param("ids") Collection<Integer> ids, @Param("ancienNiveau") Niveau ancienNiveau,
+                             @Param("nouveauNiveau") Niveau nouveauNiveau);
 }
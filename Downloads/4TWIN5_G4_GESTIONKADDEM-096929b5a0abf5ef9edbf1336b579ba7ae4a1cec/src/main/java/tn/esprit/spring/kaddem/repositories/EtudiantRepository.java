@@ -1,16 +1,119 @@
 package tn.esprit.spring.kaddem.repositories;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Temporal;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.Revision;
+import tn.esprit.spring.kaddem.entities.Departement;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 
+import javax.persistence.QueryHint;
+import javax.persistence.TemporalType;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
 
 @Repository
-public interface EtudiantRepository extends CrudRepository<Etudiant,Integer> {
-    public List<Etudiant> findEtudiantsByDepartement_IdDepart(Integer idDepart);
+public interface EtudiantRepository extends JpaRepository<Etudiant,Integer> {
 @Query("Select e From Etudiant e where e.nomE= :nomE and e.prenomE= :prenomE")
     public Etudiant findByNomEAndPrenomE(@Param("nomE") String nomE, @Param("prenomE") String prenomE);
+
+    // the list and lookup endpoints: the rows go straight into records, no entity is built or managed
+    String VUE = "SELECT new tn.esprit.spring.kaddem.dto.EtudiantVue(e.idEtudiant, e.nomE, e.prenomE, e.op," +
+            " e.nbContratsActifs, e.nbContratsArchives, e.montantTotalContrats, e.version, e.derniereModification) FROM Etudiant e";
+
+    @Query(VUE + " ORDER BY e.idEtudiant")
+    public List<EtudiantVue> findVues();
+
+    @Query(VUE + " WHERE e.idEtudiant = :idEtudiant")
+    public Optional<EtudiantVue> findVueById(@Param("idEtudiant") Integer idEtudiant);
+
+    @Query(VUE + " WHERE e.idEtudiant > :idEtudiant ORDER BY e.idEtudiant")
+    public Slice<EtudiantVue> findVuesApres(@Param("idEtudiant") Integer idEtudiant, Pageable pageable);
+
+    // on the foreign key itself: the derived query joined departement and filtered on the joined id, which reads every student
+    @Query(VUE + " WHERE e.departement.idDepart = :idDepart")
+    public List<EtudiantVue> findVuesByDepartement(@Param("idDepart") Integer idDepart);
+
+    @Query("SELECT e.idEtudiant FROM Etudiant e WHERE e.nomE = :nomE AND e.prenomE = :prenomE")
+    public Integer findIdEtudiant(@Param("nomE") String nomE, @Param("prenomE") String prenomE);
+
+    @Query("SELECT e.idEtudiant FROM Etudiant e WHERE e.idEtudiant IN :ids")
+    public List<Integer> findIdsExistants(@Param("ids") Collection<Integer> ids);
+
+    // bulk assignment: one UPDATE for many students, the ones already in the department left untouched
+    @Modifying
+    @Query("UPDATE Etudiant e SET e.departement = :departement, e.version = e.version + 1, e.derniereModification = :maintenant" +
+            " WHERE e.idEtudiant IN :ids AND (e.departement IS NULL OR e.departement <> :departement)")
+    public int affecterDepartement(@Param("ids") Collection<Integer> ids, @Param("departement") Departement departement,
+                                   @Param("maintenant") Instant maintenant);
+
+    String AJUSTER_COMPTEURS = "UPDATE Etudiant e SET e.nbContratsActifs = e.nbContratsActifs + :actifs," +
+            " e.nbContratsArchives = e.nbContratsArchives + :archives," +
+            " e.montantTotalContrats = e.montantTotalContrats + :montant, e.derniereModification = :maintenant";
+
+    @Modifying
+    @Query(AJUSTER_COMPTEURS + " WHERE e.idEtudiant = :idEtudiant")
+    public int ajusterCompteurs(@Param("idEtudiant") Integer idEtudiant, @Param("actifs") int actifs,
+                                @Param("archives") int archives, @Param("montant") long montant,
+                                @Param("maintenant") Instant maintenant);
+
+    // the writes that decided on the counters: the version is checked and bumped by the same UPDATE, 0 rows is a conflict
+    @Modifying
+    @Query(AJUSTER_COMPTEURS + ", e.version = e.version + 1 WHERE e.idEtudiant = :idEtudiant AND e.version = :version")
+    public int ajusterCompteurs(@Param("idEtudiant") Integer idEtudiant, @Param("actifs") int actifs,
+                                @Param("archives") int archives, @Param("montant") long montant,
+                                @Param("version") long version, @Param("maintenant") Instant maintenant);
+
+    /**
+     * Moves to the archived counter the contracts that {@code ContratRepository.archiverContratsExpires} is about to archive.
+     * Native: JPQL has no join in an UPDATE, and a correlated subquery would count the contracts of each student once
+     * per column. The derived table counts them once, on the (archive, date_fin_contrat) index, and joins on the key.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "etudiant"))
+    @Query(nativeQuery = true, value = "UPDATE etudiant e" +
+            " JOIN (SELECT c.etudiant_id_etudiant AS id_etudiant, count(*) AS nb FROM contrat c" +
+            " WHERE c.archive = false AND c.date_fin_contrat < :dateLimite AND c.etudiant_id_etudiant IS NOT NULL" +
+            " GROUP BY c.etudiant_id_etudiant) a ON a.id_etudiant = e.id_etudiant" +
+            " SET e.nb_contrats_actifs = e.nb_contrats_actifs - a.nb, e.nb_contrats_archives = e.nb_contrats_archives + a.nb," +
+            " e.derniere_modification = :maintenant")
+    public int archiverCompteurs(@Param("dateLimite") @Temporal(TemporalType.DATE) Date dateLimite, @Param("maintenant") Instant maintenant);
+
+    // a contract without archive flag counts as active, like in the renewal rules
+    String RECALCUL_COMPTEURS = "UPDATE Etudiant e SET" +
+            " e.nbContratsActifs = (SELECT count(c) FROM Contrat c WHERE c.etudiant = e AND (c.archive = false OR c.archive IS NULL))," +
+            " e.nbContratsArchives = (SELECT count(c) FROM Contrat c WHERE c.etudiant = e AND c.archive = true)," +
+            " e.montantTotalContrats = (SELECT COALESCE(SUM(c.montantContrat), 0) FROM Contrat c WHERE c.etudiant = e)," +
+            " e.derniereModification = :maintenant";
+
+    @Modifying
+    @Query(RECALCUL_COMPTEURS)
+    public int recalculerCompteurs(@Param("maintenant") Instant maintenant);
+
+    @Modifying
+    @Query(RECALCUL_COMPTEURS + " WHERE e.idEtudiant IN :ids")
+    public int recalculerCompteurs(@Param("ids") Collection<Integer> ids, @Param("maintenant") Instant maintenant);
+
+    String REVISION = "SELECT new tn.esprit.spring.kaddem.dto.Revision(count(e), sum(e.version), max(e.derniereModification)) FROM Etudiant e";
+
+    @Query(REVISION)
+    public Revision findRevision();
+
+    @Query(REVISION + " WHERE e.idEtudiant = :idEtudiant")
+    public Revision findRevision(@Param("idEtudiant") Integer idEtudiant);
+
+    @Query(REVISION + " WHERE e.departement.idDepart = :idDepart")
+    public Revision findRevisionByDepartement(@Param("idDepart") Integer idDepart);
 }
@@ -1,11 +1,46 @@
 package tn.esprit.spring.kaddem.repositories;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Universite;
 
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+
 @Repository
-public interface UniversiteRepository extends CrudRepository<Universite,Integer> {
+public interface UniversiteRepository extends JpaRepository<Universite,Integer> {
+    public Slice<Universite> findByIdUnivGreaterThanOrderByIdUnivAsc(Integer idUniv, Pageable pageable);
+
+    // no version column: the count and the latest change only
+    String REVISION = "SELECT new tn.esprit.spring.kaddem.dto.Revision(count(u), 0L, max(u.derniereModification)) FROM Universite u";
+
+    @Query(REVISION)
+    public Revision findRevision();
 
+    @Query(REVISION + " WHERE u.idUniv = :idUniv")
+    public Revision findRevision(@Param("idUniv") Integer idUniv);
 
+    /**
+     * Adds the department to the university: one INSERT ... SELECT on the join table, no row when either
+     * id is unknown or the department is already there. The departments of the university are not loaded.
+     * Hibernate matches the query spaces against the entity tables only, then evicts the collections
+     * holding the matched entities: the departement space is what evicts the cached departements of the
+     * universities (with the cached departments); the universities and the other regions stay cached.
+     */
+    @Modifying
+    @QueryHints({@QueryHint(name = HINT_NATIVE_SPACES, value = "departement"),
+            @QueryHint(name = HINT_NATIVE_SPACES, value = Universite.TABLE_DEPARTEMENTS)})
+    @Query(nativeQuery = true, value = "INSERT INTO " + Universite.TABLE_DEPARTEMENTS + " (universite_id_univ, departements_id_depart)" +
+            " SELECT u.id_univ, d.id_depart FROM universite u, departement d WHERE u.id_univ = :idUniv AND d.id_depart = :idDepart" +
+            " AND NOT EXISTS (SELECT 1 FROM " + Universite.TABLE_DEPARTEMENTS + " m" +
+            " WHERE m.universite_id_univ = :idUniv AND m.departements_id_depart = :idDepart)")
+    public int ajouterDepartement(@Param("idUniv") Integer idUniv, @Param("idDepart") Integer idDepart);
 }
@@ -0,0 +1,27 @@
+package tn.esprit.spring.kaddem.scheduling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.kaddem.services.IEtudiantService;
+
+/**
+ * Recomputes the per-student contract counters once at startup, so that a database filled or
+ * edited outside the application (or by a version without the counters) starts from exact values.
+ * Off unless {@code kaddem.compteurs.recalcul-au-demarrage=true}: it rewrites every student row, a
+ * migration step for the first start on such a database, not something for each start. Otherwise
+ * PUT /etudiant/recalculer-compteurs does the same on demand.
+ */
+@Component
+@ConditionalOnProperty(name = "kaddem.compteurs.recalcul-au-demarrage", havingValue = "true")
+public class CompteursContratsRecalcul {
+    @Autowired
+    IEtudiantService etudiantService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recalculer() {
+        etudiantService.recalculerCompteursContrats();
+    }
+}
@@ -0,0 +1,24 @@
+package tn.esprit.spring.kaddem.scheduling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.kaddem.services.IContratService;
+
+/**
+ * The daily archiving and "15 days left" notices, when {@link ContratExpiryScheduler} is turned off
+ * ({@code kaddem.expiry.enabled=false}). With it on, the notices come from its index and only its
+ * archiving safety net runs at 13:00.
+ */
+@Component
+@ConditionalOnProperty(name = "kaddem.expiry.enabled", havingValue = "false")
+public class ContratArchivageQuotidien {
+    @Autowired
+    IContratService contratService;
+
+    @Scheduled(cron = "0 0 13 * * *")
+    public void archiver() {
+        contratService.retrieveAndUpdateStatusContrat();
+    }
+}
@@ -0,0 +1,337 @@
+package tn.esprit.spring.kaddem.scheduling;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tn.esprit.spring.kaddem.dto.ContratEcheance;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.events.ContratEvent;
+import tn.esprit.spring.kaddem.events.ContratsArchivesEvent;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.services.IContratService;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+
+import static tn.esprit.spring.kaddem.services.ContratServiceImpl.JOURS_AVANT_EXPIRATION;
+
+/**
+ * Archives contracts and logs the "15 days left" notices when they are due, instead of waiting for
+ * the daily scan.
+ * <p>
+ * Keeps the active contracts that end within the next {@code kaddem.expiry.horizon-jours} days in a
+ * map ordered by end date (at most {@code kaddem.expiry.max-contrats} of them) and sleeps until the
+ * next day something happens: a contract to archive, a notice to send, or the window to slide.
+ * The index is rebuilt from the database at startup, on the task scheduler, right after a catch-up
+ * archiving pass (retried after {@code kaddem.expiry.delai-reprise-minutes} if it fails), and
+ * follows the writes made through the contract service. The notices are sent from here only: the
+ * 13:00 job stays as a safety net for the archiving, without the scan of the contracts ending in 15 days.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kaddem.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class ContratExpiryScheduler {
+    @Autowired
+    ContratRepository contratRepository;
+    @Autowired
+    IContratService contratService;
+    @Autowired
+    TaskScheduler taskScheduler;
+
+    @Value("${kaddem.expiry.horizon-jours:31}")
+    int horizonJours;
+    @Value("${kaddem.expiry.max-contrats:200000}")
+    int maxContrats;
+    @Value("${kaddem.expiry.delai-reprise-minutes:5}")
+    int delaiRepriseMinutes;
+    // replaced by the tests to move the days forward
+    Clock horloge = Clock.systemDefaultZone();
+
+    private final TreeMap<LocalDate, Set<Integer>> parEcheance = new TreeMap<>();
+    final Map<Integer, LocalDate> echeances = new HashMap<>();
+    // last end date covered by the index (inclusive); null until the index is built
+    LocalDate horizon;
+    // the last extension stopped short of today + horizonJours for lack of capacity
+    private boolean fenetrePleine;
+    private LocalDate dernierJourNotifie;
+    // not null while an extension reads the database: the events received meanwhile, replayed over its rows
+    private List<ContratEvent> pendantExtension;
+    private ScheduledFuture<?> prochainReveil;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void demarrer() {
+        // on the task scheduler: the catch-up pass may archive a long backlog, the startup does not wait for it
+        planifierA(this::rattraper, horloge.instant());
+    }
+
+    void rattraper() {
+        try {
+            // catch-up pass: archives what expired while the application was down and logs today's notices
+            contratService.retrieveAndUpdateStatusContrat();
+            LocalDate aujourdhui = LocalDate.now(horloge);
+            synchronized (this) {
+                parEcheance.clear();
+                echeances.clear();
+                horizon = aujourdhui.minusDays(1);
+                dernierJourNotifie = aujourdhui;
+            }
+            etendreHorizon(aujourdhui);
+            synchronized (this) {
+                log.info("Contract expiry index ready: {} contracts up to {}", echeances.size(), horizon);
+                planifier();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Contract expiry catch-up failed, next attempt in {} minutes: {}", delaiRepriseMinutes, e.toString());
+            synchronized (this) {
+                // the index is not usable yet: the listeners ignore the events until the next attempt rebuilds it
+                horizon = null;
+                planifierA(this::rattraper, horloge.instant().plus(Duration.ofMinutes(delaiRepriseMinutes)));
+            }
+        }
+    }
+
+    void reveil() {
+        boolean fait = false;
+        try {
+            LocalDate aujourdhui = LocalDate.now(horloge);
+            boolean archiver;
+            synchronized (this) {
+                archiver = !parEcheance.isEmpty() && parEcheance.firstKey().isBefore(aujourdhui);
+            }
+            // the database work runs outside the lock: listeners wait on it while holding a connection
+            if (archiver) {
+                int nbContrats = contratService.archiverContratsExpires();
+                log.info("Archived {} expired contracts", nbContrats);
+            }
+            Map<Integer, LocalDate> aNotifier;
+            synchronized (this) {
+                retirerAvant(aujourdhui);
+                aNotifier = aNotifier(aujourdhui);
+            }
+            aNotifier.forEach(this::notifier);
+            etendreHorizon(aujourdhui);
+            fait = true;
+        } catch (RuntimeException e) {
+            log.warn("Contract expiry wake-up failed, next attempt in {} minutes: {}", delaiRepriseMinutes, e.toString());
+        } finally {
+            // whatever happened, the chain of wake-ups goes on
+            synchronized (this) {
+                if (fait) {
+                    planifier();
+                } else {
+                    planifierA(this::reveil, horloge.instant().plus(Duration.ofMinutes(delaiRepriseMinutes)));
+                }
+            }
+        }
+    }
+
+    /** Catches up on the archiving if a wake-up was missed; the index already sent today's notices. */
+    @Scheduled(cron = "0 0 13 * * *")
+    public void archivageQuotidien() {
+        int nbContrats = contratService.archiverContratsExpires();
+        log.info("Daily archiving safety net: {} expired contracts archived", nbContrats);
+    }
+
+    void notifier(Integer idContrat, LocalDate fin) {
+        log.info("Contrat {} expires on {} ({} days left)", idContrat, fin, JOURS_AVANT_EXPIRATION);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onContrat(ContratEvent event) {
+        Contrat contrat = event.getContrat();
+        if (horizon == null || contrat == null || contrat.getIdContrat() == null) {
+            return;
+        }
+        if (pendantExtension != null) {
+            // the running read may miss the new end date or return the old one, whatever the dates: replayed after it
+            pendantExtension.add(event);
+        }
+        appliquer(event);
+        planifier();
+    }
+
+    private void appliquer(ContratEvent event) {
+        Contrat contrat = event.getContrat();
+        retirer(contrat.getIdContrat());
+        if (event.getType() == ContratEvent.Type.SUPPRESSION || Boolean.TRUE.equals(contrat.getArchive())
+                || contrat.getDateFinContrat() == null) {
+            return;
+        }
+        LocalDate fin = toLocalDate(contrat.getDateFinContrat());
+        if (fin.isAfter(horizon)) {
+            // picked up when the window slides over that date
+            return;
+        }
+        ajouter(contrat.getIdContrat(), fin);
+        if (echeances.size() > maxContrats) {
+            // give up the furthest day, it is reloaded when the window slides
+            LocalDate dernier = parEcheance.lastKey();
+            parEcheance.remove(dernier).forEach(echeances::remove);
+            horizon = dernier.minusDays(1);
+            fenetrePleine = true;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onContratsArchives(ContratsArchivesEvent event) {
+        if (horizon != null) {
+            retirerAvant(toLocalDate(event.getDateLimite()));
+        }
+    }
+
+    @PreDestroy
+    public synchronized void arreter() {
+        if (prochainReveil != null) {
+            prochainReveil.cancel(false);
+        }
+    }
+
+    /** Loads the contracts ending after the current horizon, up to today + horizonJours and within capacity. */
+    private void etendreHorizon(LocalDate aujourdhui) {
+        LocalDate debut;
+        LocalDate fin = aujourdhui.plusDays(horizonJours);
+        int capacite;
+        synchronized (this) {
+            if (!horizon.isBefore(fin)) {
+                fenetrePleine = false;
+                return;
+            }
+            debut = horizon.plusDays(1);
+            capacite = maxContrats - echeances.size();
+            if (capacite <= 0) {
+                log.warn("Contract expiry index is full ({} contracts), horizon stays at {}", maxContrats, horizon);
+                fenetrePleine = true;
+                return;
+            }
+            pendantExtension = new ArrayList<>();
+        }
+        // read outside the lock: the listeners only queue their events meanwhile
+        List<ContratEcheance> lignes;
+        try {
+            lignes = contratRepository.findEcheances(toDate(debut), toDate(fin), PageRequest.of(0, capacite + 1));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                // the events were applied within the old horizon, which stays
+                pendantExtension = null;
+            }
+            throw e;
+        }
+        LocalDate nouvelHorizon = fin;
+        if (lignes.size() > capacite) {
+            // the last day did not fit entirely: stop the window the day before
+            nouvelHorizon = toLocalDate(lignes.get(lignes.size() - 1).getDateFinContrat()).minusDays(1);
+            log.warn("Contract expiry index is full ({} contracts), horizon limited to {}", maxContrats, nouvelHorizon);
+        }
+        synchronized (this) {
+            for (ContratEcheance ligne : lignes) {
+                LocalDate echeance = toLocalDate(ligne.getDateFinContrat());
+                if (!echeance.isAfter(nouvelHorizon)) {
+                    ajouter(ligne.getIdContrat(), echeance);
+                }
+            }
+            if (nouvelHorizon.isAfter(horizon)) {
+                horizon = nouvelHorizon;
+            }
+            fenetrePleine = lignes.size() > capacite;
+            // over the new horizon: drops the stale rows, adds what the read missed
+            pendantExtension.forEach(this::appliquer);
+            pendantExtension = null;
+        }
+    }
+
+    /** Contracts whose 15-day notice falls in (dernierJourNotifie, aujourdhui]. */
+    private Map<Integer, LocalDate> aNotifier(LocalDate aujourdhui) {
+        Map<Integer, LocalDate> aNotifier = new HashMap<>();
+        if (aujourdhui.isAfter(dernierJourNotifie)) {
+            parEcheance.subMap(dernierJourNotifie.plusDays(JOURS_AVANT_EXPIRATION + 1L), true,
+                            aujourdhui.plusDays(JOURS_AVANT_EXPIRATION), true)
+                    .forEach((fin, ids) -> ids.forEach(id -> aNotifier.put(id, fin)));
+            dernierJourNotifie = aujourdhui;
+        }
+        return aNotifier;
+    }
+
+    /** Schedules the next wake-up at the start of the first day with something to do. */
+    private void planifier() {
+        List<LocalDate> candidats = new ArrayList<>();
+        if (!parEcheance.isEmpty()) {
+            // archived the day after its end date
+            candidats.add(parEcheance.firstKey().plusDays(1));
+        }
+        LocalDate prochaineEcheanceANotifier = parEcheance.ceilingKey(dernierJourNotifie.plusDays(JOURS_AVANT_EXPIRATION + 1L));
+        if (prochaineEcheanceANotifier != null) {
+            candidats.add(prochaineEcheanceANotifier.minusDays(JOURS_AVANT_EXPIRATION));
+        }
+        // slide before the window stops covering the notices. Not when it is full: it could not move, and the
+        // slide date may be past, an immediate wake-up again and again. The archiving wake-ups make room
+        if (!fenetrePleine) {
+            candidats.add(horizon.minusDays(JOURS_AVANT_EXPIRATION));
+        }
+        // an empty index that cannot grow (max-contrats 0): look again tomorrow
+        LocalDate jour = candidats.stream().min(LocalDate::compareTo).orElse(LocalDate.now(horloge).plusDays(1));
+        planifierA(this::reveil, jour.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private void planifierA(Runnable tache, Instant instant) {
+        if (instant.isBefore(horloge.instant())) {
+            instant = horloge.instant();
+        }
+        if (prochainReveil != null) {
+            prochainReveil.cancel(false);
+        }
+        prochainReveil = taskScheduler.schedule(tache, instant);
+        log.debug("Next contract expiry wake-up at {}", instant);
+    }
+
+    private void ajouter(Integer idContrat, LocalDate fin) {
+        echeances.put(idContrat, fin);
+        parEcheance.computeIfAbsent(fin, d -> new HashSet<>()).add(idContrat);
+    }
+
+    private void retirer(Integer idContrat) {
+        LocalDate fin = echeances.remove(idContrat);
+        if (fin != null) {
+            Set<Integer> ids = parEcheance.get(fin);
+            ids.remove(idContrat);
+            if (ids.isEmpty()) {
+                parEcheance.remove(fin);
+            }
+        }
+    }
+
+    private void retirerAvant(LocalDate date) {
+        Map<LocalDate, Set<Integer>> expires = parEcheance.headMap(date, false);
+        expires.values().forEach(ids -> ids.forEach(echeances::remove));
+        expires.clear();
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        // getTime() rather than toInstant(): java.sql.Date does not support toInstant()
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
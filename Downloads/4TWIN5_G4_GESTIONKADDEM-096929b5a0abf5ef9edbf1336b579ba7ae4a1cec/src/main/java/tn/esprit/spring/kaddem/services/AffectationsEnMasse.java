@@ -0,0 +1,55 @@
+package tn.esprit.spring.kaddem.services;
+
+import tn.esprit.spring.kaddem.dto.AffectationReport;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs a bulk assignment statement over the ids of a request, {@code TAILLE_LOT_IN} ids per statement,
+ * and builds its report. The ids are only looked up when fewer rows than ids were written, to tell the
+ * unknown students from the ones already assigned.
+ */
+final class AffectationsEnMasse {
+	// keeps the IN lists of the bulk statements to a reasonable size
+	static final int TAILLE_LOT_IN = 1000;
+
+	private AffectationsEnMasse() {
+	}
+
+	static AffectationReport affecter(Collection<Integer> idEtudiants, ToIntFunction<List<Integer>> affecter,
+			Function<List<Integer>, List<Integer>> existants) {
+		long debut = System.currentTimeMillis();
+		List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(idEtudiants));
+		ids.remove(null);
+		int nbAffectes = 0;
+		for (List<Integer> lot : lots(ids)) {
+			nbAffectes += affecter.applyAsInt(lot);
+		}
+		List<Integer> inconnus = new ArrayList<>();
+		if (nbAffectes < ids.size()) {
+			Set<Integer> trouves = new HashSet<>();
+			for (List<Integer> lot : lots(ids)) {
+				trouves.addAll(existants.apply(lot));
+			}
+			ids.stream().filter(id -> !trouves.contains(id)).forEach(inconnus::add);
+		}
+		return new AffectationReport(ids.size(), nbAffectes, ids.size() - nbAffectes - inconnus.size(), inconnus,
+				System.currentTimeMillis() - debut);
+	}
+
+	/** {@code ids} cut into views of at most {@code TAILLE_LOT_IN} ids, one per bulk statement. */
+	static <T> List<List<T>> lots(List<T> ids) {
+		List<List<T>> lots = new ArrayList<>();
+		for (int i = 0; i < ids.size(); i += TAILLE_LOT_IN) {
+			lots.add(ids.subList(i, Math.min(i + TAILLE_LOT_IN, ids.size())));
+		}
+		return lots;
+	}
+}
@@ -0,0 +1,37 @@
+package tn.esprit.spring.kaddem.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tn.esprit.spring.kaddem.cache.ContratCache;
+import tn.esprit.spring.kaddem.dto.CacheStatistiques;
+import tn.esprit.spring.kaddem.entities.CacheRegions;
+
+import javax.cache.CacheManager;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class CacheServiceImpl implements ICacheService {
+	@Autowired
+	CacheManager secondLevelCacheManager;
+	@Autowired
+	ContratCache contratCache;
+
+	public List<CacheStatistiques> retrieveStatistiques() {
+		List<CacheStatistiques> statistiques = new ArrayList<>();
+		statistiques.add(statistiques(ContratCache.NOM, contratCache.getCache()));
+		for (String region : CacheRegions.TOUTES) {
+			Cache<?, ?> cache = secondLevelCacheManager.getCache(region).unwrap(Cache.class);
+			statistiques.add(statistiques(region, cache));
+		}
+		return statistiques;
+	}
+
+	private static CacheStatistiques statistiques(String nom, Cache<?, ?> cache) {
+		CacheStats stats = cache.stats();
+		return new CacheStatistiques(nom, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+				stats.evictionCount());
+	}
+}
@@ -0,0 +1,97 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.kaddem.dto.ContratCompteurs;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+
+import java.time.Instant;
+
+/**
+ * Keeps the contract counters of {@link Etudiant} in step with the writes on contracts. Each change
+ * is one relative UPDATE on the student row, in the transaction of the write, so concurrent writes
+ * add up instead of overwriting each other.
+ */
+@Component
+public class CompteursContrats {
+	@Autowired
+	EtudiantRepository etudiantRepository;
+
+	/** What one contract adds to its student's counters; null when the contract has no student. */
+	public record Etat(Etudiant etudiant, boolean archive, long montant) {
+		public static Etat of(Contrat contrat) {
+			if (contrat == null || contrat.getEtudiant() == null) {
+				return null;
+			}
+			Integer montant = contrat.getMontantContrat();
+			return new Etat(contrat.getEtudiant(), Boolean.TRUE.equals(contrat.getArchive()), montant == null ? 0 : montant);
+		}
+
+		public static Etat of(ContratCompteurs contrat) {
+			Integer montant = contrat.getMontantContrat();
+			return new Etat(contrat.getEtudiant(), Boolean.TRUE.equals(contrat.getArchive()), montant == null ? 0 : montant);
+		}
+	}
+
+	/**
+	 * Replaces the contribution {@code avant} by {@code apres}: null before for a new contract, null
+	 * after for a deleted one. Must run inside the transaction of the write.
+	 */
+	public void appliquer(Etat avant, Etat apres) {
+		appliquer(avant, apres, false);
+	}
+
+	/**
+	 * Same as {@link #appliquer}, for the writes that decided on the counters of the student of
+	 * {@code apres} (at most N active contracts...): its UPDATE also checks and bumps the version it
+	 * was read with, so that two transactions that read the same counters cannot both commit. The
+	 * loser gets an {@link ObjectOptimisticLockingFailureException}, which ConcurrenceEtudiants retries.
+	 */
+	public void appliquerVerifie(Etat avant, Etat apres) {
+		appliquer(avant, apres, true);
+	}
+
+	private void appliquer(Etat avant, Etat apres, boolean verifier) {
+		if (avant != null && apres != null
+				&& avant.etudiant().getIdEtudiant() != null
+				&& avant.etudiant().getIdEtudiant().equals(apres.etudiant().getIdEtudiant())) {
+			ajuster(apres.etudiant(), actifs(apres) - actifs(avant), archives(apres) - archives(avant),
+					apres.montant() - avant.montant(), verifier);
+			return;
+		}
+		if (avant != null) {
+			ajuster(avant.etudiant(), -actifs(avant), -archives(avant), -avant.montant(), false);
+		}
+		if (apres != null) {
+			ajuster(apres.etudiant(), actifs(apres), archives(apres), apres.montant(), verifier);
+		}
+	}
+
+	private void ajuster(Etudiant etudiant, int actifs, int archives, long montant, boolean verifier) {
+		if (etudiant.getIdEtudiant() == null || (actifs == 0 && archives == 0 && montant == 0)) {
+			return;
+		}
+		// the instance keeps its Last-Modified: setting it would make the student dirty, one more UPDATE
+		if (!verifier) {
+			etudiantRepository.ajusterCompteurs(etudiant.getIdEtudiant(), actifs, archives, montant, Instant.now());
+		} else if (etudiantRepository.ajusterCompteurs(etudiant.getIdEtudiant(), actifs, archives, montant,
+				etudiant.getVersion(), Instant.now()) == 0) {
+			throw new ObjectOptimisticLockingFailureException(Etudiant.class, etudiant.getIdEtudiant());
+		}
+		// the columns are read-only for JPA: keep the caller's instance in line with the row
+		etudiant.setNbContratsActifs(etudiant.getNbContratsActifs() + actifs);
+		etudiant.setNbContratsArchives(etudiant.getNbContratsArchives() + archives);
+		etudiant.setMontantTotalContrats(etudiant.getMontantTotalContrats() + montant);
+	}
+
+	private static int actifs(Etat etat) {
+		return etat.archive() ? 0 : 1;
+	}
+
+	private static int archives(Etat etat) {
+		return etat.archive() ? 1 : 0;
+	}
+}
@@ -0,0 +1,103 @@
+package tn.esprit.spring.kaddem.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs the writes that check a student's contract counters (assignment, renewal) with optimistic
+ * concurrency: each attempt is its own transaction, and a version conflict at flush or commit
+ * rolls it back and retries it after a random, growing pause, up to {@code kaddem.concurrence.tentatives}
+ * attempts.
+ * <p>
+ * Inside this JVM, the attempts for the same student also take one of {@code kaddem.concurrence.verrous}
+ * striped locks, so that they queue instead of failing each other; the version check is what
+ * protects against the other instances. 0 stripes disables the locks.
+ */
+@Slf4j
+@Component
+public class ConcurrenceEtudiants {
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Value("${kaddem.concurrence.tentatives:5}")
+	int tentatives;
+	@Value("${kaddem.concurrence.pause-initiale-ms:10}")
+	long pauseInitialeMs;
+	@Value("${kaddem.concurrence.pause-max-ms:200}")
+	long pauseMaxMs;
+	@Value("${kaddem.concurrence.verrous:64}")
+	int nbVerrous;
+
+	private ReentrantLock[] verrous;
+	private TransactionTemplate transaction;
+
+	@PostConstruct
+	void init() {
+		verrous = new ReentrantLock[nbVerrous];
+		for (int i = 0; i < nbVerrous; i++) {
+			verrous[i] = new ReentrantLock();
+		}
+		transaction = new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * Runs {@code action} in a transaction, retried on version conflicts. Within a caller's
+	 * transaction it runs once: a rolled back attempt cannot be retried inside it.
+	 */
+	public <T> T executer(Integer idEtudiant, Supplier<T> action) {
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			return action.get();
+		}
+		ReentrantLock verrou = verrou(idEtudiant);
+		for (int tentative = 1; ; tentative++) {
+			if (verrou != null) {
+				verrou.lock();
+			}
+			try {
+				return transaction.execute(status -> action.get());
+			} catch (ConcurrencyFailureException e) {
+				if (tentative >= tentatives) {
+					log.warn("Giving up after {} conflicting attempts for student {}", tentative, idEtudiant);
+					throw e;
+				}
+				log.debug("Attempt {} for student {} conflicted, retrying: {}", tentative, idEtudiant, e.getMessage());
+			} finally {
+				if (verrou != null) {
+					verrou.unlock();
+				}
+			}
+			pause(tentative);
+		}
+	}
+
+	private ReentrantLock verrou(Integer idEtudiant) {
+		if (idEtudiant == null || verrous.length == 0) {
+			return null;
+		}
+		// spread the ids: consecutive ids would otherwise only differ in the low bits
+		int h = idEtudiant * 0x9E3779B9;
+		return verrous[Math.floorMod(h ^ (h >>> 16), verrous.length)];
+	}
+
+	/** Exponential backoff with full jitter, so the losers of a conflict do not collide again. */
+	private void pause(int tentative) {
+		long plafond = Math.min(pauseMaxMs, pauseInitialeMs << Math.min(tentative - 1, 20));
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(plafond + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting to retry", e);
+		}
+	}
+}
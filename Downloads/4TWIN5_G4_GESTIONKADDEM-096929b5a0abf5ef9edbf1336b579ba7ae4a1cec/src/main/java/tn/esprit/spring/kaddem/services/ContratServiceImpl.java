@@ -1,19 +1,55 @@
 package tn.esprit.spring.kaddem.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import lombok.extern.slf4j.Slf4j;
+import tn.esprit.spring.kaddem.cache.ContratCache;
+import tn.esprit.spring.kaddem.cache.IndexContratsValides;
+import tn.esprit.spring.kaddem.cache.IndexPeriodesContrats;
+import tn.esprit.spring.kaddem.dto.ArchivageReport;
+import tn.esprit.spring.kaddem.dto.ChiffreAffaireReport;
+import tn.esprit.spring.kaddem.dto.ContratsParSpecialite;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.DemandeRenouvellement;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.RenouvellementReport;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Contrat;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.events.ContratEvent;
+import tn.esprit.spring.kaddem.events.ContratsArchivesEvent;
 import tn.esprit.spring.kaddem.repositories.ContratRepository;
 import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Calendar;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -22,94 +58,243 @@ public class ContratServiceImpl implements IContratService{
 ContratRepository contratRepository;
 @Autowired
 	EtudiantRepository etudiantRepository;
-	public List<Contrat> retrieveAllContrats(){
-		return (List<Contrat>) contratRepository.findAll();
+@Autowired
+	ObjectMapper objectMapper;
+@PersistenceContext
+	EntityManager entityManager;
+@Autowired
+	ApplicationEventPublisher eventPublisher;
+@Autowired
+	ContratCache contratCache;
+@Autowired
+	CompteursContrats compteursContrats;
+@Autowired
+	ConcurrenceEtudiants concurrenceEtudiants;
+@Autowired
+	IndexContratsValides indexContratsValides;
+@Autowired
+	IndexPeriodesContrats indexPeriodesContrats;
+@Value("${kaddem.renouvellement.taille-lot:500}")
+	int tailleLotRenouvellement;
+
+	private static final int EXPORT_FLUSH_EVERY = 500;
+	public static final int JOURS_AVANT_EXPIRATION = 15;
+
+	// the list and lookup endpoints read records (ContratVue), in read-only transactions: no flush, no dirty check
+	@Transactional(readOnly = true)
+	public List<ContratVue> retrieveAllContrats(){
+		return contratRepository.findVues();
+	}
+
+	@Transactional(readOnly = true)
+	public CursorPage<ContratVue> retrieveContratsPage(Integer after, Integer limit){
+		return CursorPage.of(contratRepository.findVuesApres(CursorPage.after(after), CursorPage.limit(limit)),
+				ContratVue::idContrat);
 	}
 
+	@Transactional(readOnly = true)
+	public void exportContrats(Date startDate, Date endDate, Specialite specialite, OutputStream out) throws IOException {
+		ObjectWriter writer = objectMapper.writerFor(Contrat.class);
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+		// one document per line: the '\n' is written explicitly, not as a root separator
+		generator.setRootValueSeparator(null);
+		long nbLignes = 0;
+		try (Stream<Contrat> contrats = contratRepository.streamContrats(startDate, endDate, specialite)) {
+			Iterator<Contrat> it = contrats.iterator();
+			while (it.hasNext()) {
+				Contrat contrat = it.next();
+				writer.writeValue(generator, contrat);
+				generator.writeRaw('\n');
+				// cascade ALL on etudiant: the student is detached along with the contract
+				entityManager.detach(contrat);
+				if (++nbLignes % EXPORT_FLUSH_EVERY == 0) {
+					generator.flush();
+				}
+			}
+		}
+		generator.flush();
+		log.info("Exported {} contracts (startDate={}, endDate={}, specialite={})", nbLignes, startDate, endDate, specialite);
+	}
+
+	@Transactional
 	public Contrat updateContrat (Contrat  ce){
-		return contratRepository.save(ce);
+		CompteursContrats.Etat avant = ce.getIdContrat() == null ? null
+				: contratRepository.findCompteursByIdContrat(ce.getIdContrat()).map(CompteursContrats.Etat::of).orElse(null);
+		Contrat contrat = contratRepository.save(ce);
+		compteursContrats.appliquer(avant, CompteursContrats.Etat.of(contrat));
+		eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.MISE_A_JOUR, contrat));
+		return contrat;
 	}
 
+	@Transactional
 	public  Contrat addContrat (Contrat ce){
-		return contratRepository.save(ce);
+		Contrat contrat = contratRepository.save(ce);
+		compteursContrats.appliquer(null, CompteursContrats.Etat.of(contrat));
+		eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.AJOUT, contrat));
+		return contrat;
+	}
+
+	public ContratVue retrieveContrat (Integer  idContrat){
+		return contratCache.get(idContrat, contratRepository::findVueById);
 	}
 
-	public Contrat retrieveContrat (Integer  idContrat){
-		return contratRepository.findById(idContrat).orElse(null);
+	public Revision revisionContrat(Integer idContrat){
+		return contratRepository.findRevision(idContrat);
+	}
+
+	public ContratVue retrieveContrat(Integer idContrat, Revision revision){
+		ContratVue contrat = retrieveContrat(idContrat);
+		// a change to the student does not invalidate the cached contract: its ETag would then describe another body
+		if (contrat != null && !revision.equals(revision(contrat))) {
+			contratCache.invalider(idContrat);
+			contrat = retrieveContrat(idContrat);
+		}
+		return contrat;
 	}
 
+	public Revision revisionContrats(){
+		return contratRepository.findRevision();
+	}
+
+	// the revision ContratRepository.REVISION reads for this contract
+	private static Revision revision(ContratVue contrat) {
+		EtudiantVue etudiant = contrat.etudiant();
+		return etudiant == null
+				? new Revision(1L, contrat.version(), contrat.derniereModification())
+				: new Revision(1L, contrat.version() + etudiant.version(),
+						Revision.plusRecente(contrat.derniereModification(), etudiant.derniereModification()));
+	}
+
+	@Transactional
 	public  void removeContrat(Integer idContrat){
-		Contrat c=retrieveContrat(idContrat);
+		// straight from the database: the cached copy is for readers
+		Contrat c=contratRepository.findById(idContrat).orElse(null);
+		// Contrat.etudiant cascades ALL: the student and its other contracts go too, tell the listeners
+		Set<Contrat> supprimes = new HashSet<>();
+		supprimes.add(c);
+		if (c.getEtudiant() != null && c.getEtudiant().getContrats() != null) {
+			supprimes.addAll(c.getEtudiant().getContrats());
+		}
 		contratRepository.delete(c);
+		compteursContrats.appliquer(CompteursContrats.Etat.of(c), null);
+		supprimes.forEach(supprime -> eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.SUPPRESSION, supprime)));
 	}
 
 
 
 	public Contrat affectContratToEtudiant (Integer idContrat, String nomE, String prenomE){
+		// the active contracts check must hold when two assignments race for the same student
+		return concurrenceEtudiants.executer(etudiantRepository.findIdEtudiant(nomE, prenomE),
+				() -> affecter(idContrat, nomE, prenomE));
+	}
+
+	private Contrat affecter (Integer idContrat, String nomE, String prenomE){
 		Etudiant e=etudiantRepository.findByNomEAndPrenomE(nomE, prenomE);
 		Contrat ce=contratRepository.findByIdContrat(idContrat);
-		Set<Contrat> contrats= e.getContrats();
-		Integer nbContratssActifs=0;
-		if (contrats.size()!=0) {
-			for (Contrat contrat : contrats) {
-				if (((contrat.getArchive())!=null)&& ((contrat.getArchive())!=false))  {
-					nbContratssActifs++;
-				}
-			}
-		}
-		if (nbContratssActifs<=4){
+		if (e.getNbContratsActifs()<=4){
+		CompteursContrats.Etat avant = CompteursContrats.Etat.of(ce);
+		// managed: the dirty check writes the foreign key, without the merge cascading into the student
 		ce.setEtudiant(e);
-		contratRepository.save(ce);}
+		// the counters decided: their UPDATE checks and bumps the version e was read with
+		compteursContrats.appliquerVerifie(avant, CompteursContrats.Etat.of(ce));
+		eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.MISE_A_JOUR, ce));}
 		return ce;
 	}
 	public 	Integer nbContratsValides(Date startDate, Date endDate){
-		return contratRepository.getnbContratsValides(startDate, endDate);
-	}
-
-	public void retrieveAndUpdateStatusContrat(){
-		List<Contrat>contrats=contratRepository.findAll();
-		List<Contrat>contrats15j=null;
-		List<Contrat>contratsAarchiver=null;
-		for (Contrat contrat : contrats) {
-			Date dateSysteme = new Date();
-			if (contrat.getArchive()==false) {
-				long difference_In_Time = dateSysteme.getTime() - contrat.getDateFinContrat().getTime();
-				long difference_In_Days = (difference_In_Time / (1000 * 60 * 60 * 24)) % 365;
-				if (difference_In_Days==15){
-					contrats15j.add(contrat);
-					log.info(" Contrat : " + contrat);
-				}
-				if (difference_In_Days==0) {
-					contratsAarchiver.add(contrat);
-					contrat.setArchive(true);
-					contratRepository.save(contrat);
-				}
+		return indexContratsValides.compter(startDate, endDate);
+	}
+
+	@Transactional(readOnly = true)
+	public List<ContratVue> retrieveContratsActifsLe(Date date, Specialite specialite, Integer idEtudiant){
+		return retrieveContrats(indexPeriodesContrats.actifsLe(date, specialite, idEtudiant));
+	}
+
+	@Transactional(readOnly = true)
+	public List<ContratVue> retrieveContratsChevauchant(Date startDate, Date endDate, Specialite specialite, Integer idEtudiant){
+		return retrieveContrats(indexPeriodesContrats.chevauchant(startDate, endDate, specialite, idEtudiant));
+	}
+
+	/** The contracts in the order of the ids; one query, whatever the number of ids. */
+	private List<ContratVue> retrieveContrats(List<Integer> ids){
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Map<Integer, ContratVue> parId = new HashMap<>(ids.size() * 2);
+		contratRepository.findVuesById(ids).forEach(contrat -> parId.put(contrat.idContrat(), contrat));
+		List<ContratVue> contrats = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			// deleted since the index answered
+			if (parId.containsKey(id)) {
+				contrats.add(parId.get(id));
 			}
 		}
+		return contrats;
 	}
+
+	@Transactional
+	public ArchivageReport retrieveAndUpdateStatusContrat(){
+		long debut = System.currentTimeMillis();
+		LocalDate aujourdhui = LocalDate.now();
+		int nbContratsArchives = archiverContratsExpires();
+		List<Contrat> contrats15j = contratRepository.findContratsActifsExpirantLe(toDate(aujourdhui.plusDays(JOURS_AVANT_EXPIRATION)));
+		for (Contrat contrat : contrats15j) {
+			log.info("Contrat : {}", contrat);
+		}
+		ArchivageReport report = new ArchivageReport(new Date(), nbContratsArchives, contrats15j.size(),
+				System.currentTimeMillis() - debut);
+		log.info("Contract archiving done: {}", report);
+		return report;
+	}
+
+	@Transactional
+	public int archiverContratsExpires(){
+		Date dateLimite = toDate(LocalDate.now());
+		// one UPDATE for the counters of the students concerned, one for every active contract whose end date has passed
+		Instant maintenant = Instant.now();
+		etudiantRepository.archiverCompteurs(dateLimite, maintenant);
+		int nbContratsArchives = contratRepository.archiverContratsExpires(dateLimite, maintenant);
+		if (nbContratsArchives > 0) {
+			eventPublisher.publishEvent(new ContratsArchivesEvent(dateLimite, nbContratsArchives));
+		}
+		return nbContratsArchives;
+	}
+
+	private static Date toDate(LocalDate date) {
+		return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
 	public float getChiffreAffaireEntreDeuxDates(Date startDate, Date endDate){
+		return getChiffreAffaireParSpecialite(startDate, endDate).getTotal();
+	}
+
+	public ChiffreAffaireReport getChiffreAffaireParSpecialite(Date startDate, Date endDate){
 		float difference_In_Time = endDate.getTime() - startDate.getTime();
 		float difference_In_Days = (difference_In_Time / (1000 * 60 * 60 * 24)) % 365;
 		float difference_In_months =difference_In_Days/30;
-        List<Contrat> contrats=contratRepository.findAll();
+		// every contract bills the monthly rate of its specialite: one row per specialite is enough
+		List<ChiffreAffaireReport.Ligne> lignes = new ArrayList<>();
 		float chiffreAffaireEntreDeuxDates=0;
-		for (Contrat contrat : contrats) {
-			if (contrat.getSpecialite()== Specialite.IA){
-				chiffreAffaireEntreDeuxDates+=(difference_In_months*300);
-			} else if (contrat.getSpecialite()== Specialite.CLOUD) {
-				chiffreAffaireEntreDeuxDates+=(difference_In_months*400);
-			}
-			else if (contrat.getSpecialite()== Specialite.RESEAUX) {
-				chiffreAffaireEntreDeuxDates+=(difference_In_months*350);
-			}
-			else //if (contrat.getSpecialite()== Specialite.SECURITE)
-			 {
-				 chiffreAffaireEntreDeuxDates+=(difference_In_months*450);
-			}
+		for (ContratsParSpecialite groupe : contratRepository.countContratsParSpecialite()) {
+			int tarifMensuel = tarifMensuel(groupe.getSpecialite());
+			float chiffreAffaire = groupe.getNbContrats() * difference_In_months * tarifMensuel;
+			long montantContrats = groupe.getMontantTotal() == null ? 0 : groupe.getMontantTotal();
+			lignes.add(new ChiffreAffaireReport.Ligne(groupe.getSpecialite(), groupe.getNbContrats(), montantContrats,
+					tarifMensuel, chiffreAffaire));
+			chiffreAffaireEntreDeuxDates += chiffreAffaire;
 		}
-		return chiffreAffaireEntreDeuxDates;
-
+		return new ChiffreAffaireReport(startDate, endDate, difference_In_months, lignes, chiffreAffaireEntreDeuxDates);
+	}
 
+	private int tarifMensuel(Specialite specialite) {
+		if (specialite == Specialite.IA) {
+			return 300;
+		} else if (specialite == Specialite.CLOUD) {
+			return 400;
+		} else if (specialite == Specialite.RESEAUX) {
+			return 350;
+		}
+		// SECURITE, and contracts without a specialite
+		return 450;
 	}
 
     @Override
@@ -117,6 +302,12 @@ ContratRepository contratRepository;
         log.info("Starting contract renewal process for contract ID: {}", idContrat);
         log.debug("Requested new duration: {} months", newDuration);
 
+        // retried as a whole on a version conflict, the checks included
+        return concurrenceEtudiants.executer(contratRepository.findIdEtudiant(idContrat),
+                () -> renouveler(idContrat, newDuration));
+    }
+
+    private Contrat renouveler(Integer idContrat, Integer newDuration) {
         // Get existing contract
         Contrat existingContract = contratRepository.findById(idContrat)
                 .orElseThrow(() -> {
@@ -129,46 +320,158 @@ ContratRepository contratRepository;
             existingContract.getMontantContrat(),
             existingContract.getArchive());
 
-        // Validation 1: Contract must not be archived
-        if (Boolean.TRUE.equals(existingContract.getArchive())) {
-            log.error("Attempted to renew archived contract: {}", idContrat);
-            throw new IllegalStateException("Cannot renew an archived contract");
+        String refus = refusRenouvellement(existingContract, System.currentTimeMillis());
+        if (refus != null) {
+            log.error("Contract {} renewal rejected: {}", idContrat, refus);
+            throw new IllegalStateException(refus);
+        }
+        Contrat renewedContract = contratRenouvele(existingContract, newDuration);
+
+        // Archive old contract
+        CompteursContrats.Etat avant = CompteursContrats.Etat.of(existingContract);
+        existingContract.setArchive(true);
+        contratRepository.save(existingContract);
+        // the counters decided: this UPDATE checks and bumps the student's version, the next one runs under its row lock
+        compteursContrats.appliquerVerifie(avant, CompteursContrats.Etat.of(existingContract));
+        eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.MISE_A_JOUR, existingContract));
+        log.info("Archived original contract: {}", idContrat);
+
+        // Save and return new contract
+        Contrat savedContract = contratRepository.save(renewedContract);
+        compteursContrats.appliquer(null, CompteursContrats.Etat.of(savedContract));
+        eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.AJOUT, savedContract));
+        log.info("Successfully created renewed contract with ID: {}", savedContract.getIdContrat());
+        
+        return savedContract;
+    }
+
+    @Override
+    public RenouvellementReport renewContracts(List<DemandeRenouvellement> demandes) {
+        long debut = System.currentTimeMillis();
+        List<RenouvellementReport.Resultat> resultats = new ArrayList<>(demandes.size());
+        for (int i = 0; i < demandes.size(); i += tailleLotRenouvellement) {
+            List<DemandeRenouvellement> lot = demandes.subList(i, Math.min(i + tailleLotRenouvellement, demandes.size()));
+            try {
+                // one transaction per chunk, retried as a whole on a version conflict, the prefetch and the checks included
+                resultats.addAll(concurrenceEtudiants.executer(null, () -> renouvelerLot(lot)));
+            } catch (RuntimeException e) {
+                String echec = NestedExceptionUtils.getMostSpecificCause(e).toString();
+                log.warn("Renewal chunk of {} contracts starting at item {} rolled back: {}", lot.size(), i, echec);
+                lot.forEach(demande -> resultats.add(RenouvellementReport.Resultat.rejete(demande.idContrat(), echec)));
+            } finally {
+                // the chunk is committed: under open-in-view, do not carry its contracts into the next one
+                if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                    entityManager.clear();
+                }
+            }
+        }
+        int nbRenouveles = (int) resultats.stream().filter(RenouvellementReport.Resultat::isRenouvele).count();
+        RenouvellementReport rapport = new RenouvellementReport(demandes.size(), nbRenouveles, demandes.size() - nbRenouveles,
+                System.currentTimeMillis() - debut, resultats);
+        log.info("Bulk renewal done: {}", rapport);
+        return rapport;
+    }
+
+    /**
+     * One chunk: a select for its contracts and their students, the rules checked in parallel on what
+     * it read, then the archived contracts and the new ones flushed together (JDBC batches) and one
+     * statement for the counters of the chunk's students.
+     */
+    private List<RenouvellementReport.Resultat> renouvelerLot(List<DemandeRenouvellement> lot) {
+        Set<Integer> ids = new HashSet<>();
+        lot.forEach(demande -> {
+            if (demande.idContrat() != null) {
+                ids.add(demande.idContrat());
+            }
+        });
+        Map<Integer, Contrat> contrats = new HashMap<>(ids.size() * 2);
+        if (!ids.isEmpty()) {
+            contratRepository.findByIdContratIn(ids).forEach(contrat -> contrats.put(contrat.getIdContrat(), contrat));
+        }
+
+        // the checks only read the loaded rows, never the session: safe on the common pool
+        long maintenant = System.currentTimeMillis();
+        String[] refus = new String[lot.size()];
+        IntStream.range(0, lot.size()).parallel().forEach(i -> {
+            DemandeRenouvellement demande = lot.get(i);
+            Contrat contrat = contrats.get(demande.idContrat());
+            if (contrat == null) {
+                refus[i] = "Contract not found with ID: " + demande.idContrat();
+            } else if (demande.newDuration() == null || demande.newDuration() < 1) {
+                refus[i] = "Duration must be at least one month";
+            } else {
+                refus[i] = refusRenouvellement(contrat, maintenant);
+            }
+        });
+
+        List<RenouvellementReport.Resultat> resultats = new ArrayList<>(lot.size());
+        Map<Integer, Etudiant> etudiants = new HashMap<>();
+        List<Contrat> archives = new ArrayList<>();
+        List<Contrat> nouveaux = new ArrayList<>();
+        for (int i = 0; i < lot.size(); i++) {
+            DemandeRenouvellement demande = lot.get(i);
+            Contrat existant = contrats.get(demande.idContrat());
+            // the same contract twice: the second one finds it archived, as with one call each
+            if (refus[i] == null && Boolean.TRUE.equals(existant.getArchive())) {
+                refus[i] = "Cannot renew an archived contract";
+            }
+            if (refus[i] != null) {
+                resultats.add(RenouvellementReport.Resultat.rejete(demande.idContrat(), refus[i]));
+                continue;
+            }
+            Etudiant etudiant = existant.getEtudiant();
+            Contrat nouveau = contratRenouvele(existant, demande.newDuration());
+            existant.setArchive(true);
+            entityManager.persist(nouveau);
+            // in memory only, so that a later renewal of the same student gets its loyalty bonus;
+            // the row is recomputed once for the chunk
+            etudiant.setNbContratsArchives(etudiant.getNbContratsArchives() + 1);
+            etudiant.setMontantTotalContrats(etudiant.getMontantTotalContrats() + nouveau.getMontantContrat());
+            etudiants.putIfAbsent(etudiant.getIdEtudiant(), etudiant);
+            archives.add(existant);
+            nouveaux.add(nouveau);
+            resultats.add(RenouvellementReport.Resultat.renouvele(demande.idContrat(), nouveau.getIdContrat(), nouveau.getMontantContrat()));
         }
+        // No student lock here: a renewal leaves the number of active contracts unchanged, so it cannot
+        // break the rule other writes check. Renewing the same contract twice concurrently fails on its version.
+        entityManager.flush();
+        if (!etudiants.isEmpty()) {
+            etudiantRepository.recalculerCompteurs(etudiants.keySet(), Instant.now());
+        }
+        archives.forEach(contrat -> eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.MISE_A_JOUR, contrat)));
+        nouveaux.forEach(contrat -> eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.AJOUT, contrat)));
+        return resultats;
+    }
 
+    /** Why the contract cannot be renewed at {@code maintenant} (epoch ms), null when it can. Reads the loaded entities only. */
+    private static String refusRenouvellement(Contrat contrat, long maintenant) {
+        // Validation 1: Contract must not be archived
+        if (Boolean.TRUE.equals(contrat.getArchive())) {
+            return "Cannot renew an archived contract";
+        }
         // Validation 2: Contract must be within 1 month of expiration
-        Date now = new Date();
         long monthInMillis = 30L * 24 * 60 * 60 * 1000;
-        long timeUntilExpiration = existingContract.getDateFinContrat().getTime() - now.getTime();
-        long daysUntilExpiration = timeUntilExpiration / (24 * 60 * 60 * 1000);
-        
-        log.debug("Contract expiration check - Days until expiration: {}", daysUntilExpiration);
-        
+        if (contrat.getDateFinContrat() == null) {
+            return "Contract can only be renewed within 1 month of expiration";
+        }
+        long timeUntilExpiration = contrat.getDateFinContrat().getTime() - maintenant;
         if (timeUntilExpiration < 0 || timeUntilExpiration > monthInMillis) {
-            log.error("Contract {} renewal rejected - Not within renewal window. Days until expiration: {}", 
-                idContrat, daysUntilExpiration);
-            throw new IllegalStateException("Contract can only be renewed within 1 month of expiration");
+            return "Contract can only be renewed within 1 month of expiration";
         }
-
         // Validation 3: Check student's active contracts
-        Etudiant student = existingContract.getEtudiant();
+        Etudiant student = contrat.getEtudiant();
         if (student == null) {
-            log.error("Contract {} is not assigned to any student", idContrat);
-            throw new IllegalStateException("Contract is not assigned to any student");
+            return "Contract is not assigned to any student";
         }
-
-        log.debug("Checking active contracts for student: id={}, nom={}, prenom={}", 
-            student.getIdEtudiant(), student.getNomE(), student.getPrenomE());
-
-        long activeContracts = student.getContrats().stream()
-                .filter(c -> !Boolean.TRUE.equals(c.getArchive()))
-                .count();
-        
-        log.debug("Student has {} active contracts", activeContracts);
-        
-        if (activeContracts > 3) {
-            log.error("Student {} has too many active contracts: {}", student.getIdEtudiant(), activeContracts);
-            throw new IllegalStateException("Student has too many active contracts");
+        if (student.getNbContratsActifs() > 3) {
+            return "Student has too many active contracts";
         }
+        return null;
+    }
+
+    /** The contract that follows {@code existingContract}, priced from the history of its student. Not saved. */
+    private Contrat contratRenouvele(Contrat existingContract, Integer newDuration) {
+        Etudiant student = existingContract.getEtudiant();
 
         // Calculate new contract amount with bonus/penalty based on history
         int baseAmount = calculateBaseAmount(existingContract.getSpecialite());
@@ -198,17 +501,7 @@ ContratRepository contratRepository;
             renewedContract.getDateFinContrat(),
             renewedContract.getSpecialite(),
             renewedContract.getMontantContrat());
-
-        // Archive old contract
-        existingContract.setArchive(true);
-        contratRepository.save(existingContract);
-        log.info("Archived original contract: {}", idContrat);
-
-        // Save and return new contract
-        Contrat savedContract = contratRepository.save(renewedContract);
-        log.info("Successfully created renewed contract with ID: {}", savedContract.getIdContrat());
-        
-        return savedContract;
+        return renewedContract;
     }
 
     private int calculateBaseAmount(Specialite specialite) {
@@ -223,11 +516,10 @@ ContratRepository contratRepository;
         return amount;
     }
 
-    private float calculateMultiplier(Etudiant student) {
+    // package-private for the benchmarks
+    float calculateMultiplier(Etudiant student) {
         // Count successfully completed contracts
-        long completedContracts = student.getContrats().stream()
-                .filter(c -> Boolean.TRUE.equals(c.getArchive()))
-                .count();
+        long completedContracts = student.getNbContratsArchives();
         
         log.debug("Student {} has {} completed contracts", student.getIdEtudiant(), completedContracts);
 
@@ -4,6 +4,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import lombok.extern.slf4j.Slf4j;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Departement;
 import tn.esprit.spring.kaddem.entities.Equipe;
 import tn.esprit.spring.kaddem.repositories.ContratRepository;
@@ -21,6 +23,11 @@ public class DepartementServiceImpl implements IDepartementService{
 		return (List<Departement>) departementRepository.findAll();
 	}
 
+	public CursorPage<Departement> retrieveDepartementsPage(Integer after, Integer limit){
+		return CursorPage.of(departementRepository.findByIdDepartGreaterThanOrderByIdDepartAsc(CursorPage.after(after), CursorPage.limit(limit)),
+				Departement::getIdDepart);
+	}
+
 	public Departement addDepartement (Departement d){
 		return departementRepository.save(d);
 	}
@@ -32,6 +39,14 @@ public class DepartementServiceImpl implements IDepartementService{
 	public  Departement retrieveDepartement (Integer idDepart){
 		return departementRepository.findById(idDepart).get();
 	}
+
+	public Revision revisionDepartement(Integer idDepart){
+		return departementRepository.findRevision(idDepart);
+	}
+
+	public Revision revisionDepartements(){
+		return departementRepository.findRevision();
+	}
 	public  void deleteDepartement(Integer idDepartement){
 		Departement d=retrieveDepartement(idDepartement);
 		departementRepository.delete(d);
@@ -2,81 +2,102 @@ package tn.esprit.spring.kaddem.services;
 
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import lombok.extern.slf4j.Slf4j;
-import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.dto.AffectationReport;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.EquipeEligible;
+import tn.esprit.spring.kaddem.dto.EquipeVue;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
 import tn.esprit.spring.kaddem.entities.Equipe;
-import tn.esprit.spring.kaddem.entities.Etudiant;
 import tn.esprit.spring.kaddem.entities.Niveau;
 import tn.esprit.spring.kaddem.repositories.EquipeRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 @Slf4j
 @AllArgsConstructor
 @Service
 public class EquipeServiceImpl implements IEquipeService{
 	EquipeRepository equipeRepository;
+	EtudiantRepository etudiantRepository;
 
+	private static final long NB_ETUDIANTS_PROMOTION = 3;
 
-	public List<Equipe> retrieveAllEquipes(){
-	return  (List<Equipe>) equipeRepository.findAll();
+
+	@Transactional(readOnly = true)
+	public List<EquipeVue> retrieveAllEquipes(){
+	return  equipeRepository.findVues();
+	}
+
+	@Transactional(readOnly = true)
+	public CursorPage<EquipeVue> retrieveEquipesPage(Integer after, Integer limit){
+		return CursorPage.of(equipeRepository.findVuesApres(CursorPage.after(after), CursorPage.limit(limit)),
+				EquipeVue::idEquipe);
 	}
 	public Equipe addEquipe(Equipe e){
 		return (equipeRepository.save(e));
 	}
 
 	public  void deleteEquipe(Integer idEquipe){
-		Equipe e=retrieveEquipe(idEquipe);
+		Equipe e=equipeRepository.findById(idEquipe).get();
 		equipeRepository.delete(e);
 	}
 
-	public Equipe retrieveEquipe(Integer equipeId){
-		return equipeRepository.findById(equipeId).get();
+	@Transactional(readOnly = true)
+	public EquipeVue retrieveEquipe(Integer equipeId){
+		return equipeRepository.findVueById(equipeId).get();
 	}
 
 	public Equipe updateEquipe(Equipe e){
 	return (	equipeRepository.save(e));
 	}
 
-	public void evoluerEquipes(){
-		List<Equipe> equipes = (List<Equipe>) equipeRepository.findAll();
-		for (Equipe equipe : equipes) {
-			if ((equipe.getNiveau().equals(Niveau.JUNIOR)) || (equipe.getNiveau().equals(Niveau.SENIOR))) {
-				List<Etudiant> etudiants = (List<Etudiant>) equipe.getEtudiants();
-				Integer nbEtudiantsAvecContratsActifs=0;
-				for (Etudiant etudiant : etudiants) {
-					Set<Contrat> contrats = etudiant.getContrats();
-					//Set<Contrat> contratsActifs=null;
-					for (Contrat contrat : contrats) {
-						Date dateSysteme = new Date();
-						long difference_In_Time = dateSysteme.getTime() - contrat.getDateFinContrat().getTime();
-						long difference_In_Years = (difference_In_Time / (1000l * 60 * 60 * 24 * 365));
-						if ((contrat.getArchive() == false) && (difference_In_Years > 1)) {
-							//	contratsActifs.add(contrat);
-							nbEtudiantsAvecContratsActifs++;
-							break;
-						}
-						if (nbEtudiantsAvecContratsActifs >= 3) break;
-					}
-				}
-					if (nbEtudiantsAvecContratsActifs >= 3){
-						if (equipe.getNiveau().equals(Niveau.JUNIOR)){
-							equipe.setNiveau(Niveau.SENIOR);
-							equipeRepository.save(equipe);
-							break;
-						}
-						if (equipe.getNiveau().equals(Niveau.SENIOR)){
-							equipe.setNiveau(Niveau.EXPERT);
-							equipeRepository.save(equipe);
-							break;
-						}
-				}
-			}
-
+	@Transactional
+	public AffectationReport affecterEtudiants(Integer idEquipe, List<Integer> idEtudiants){
+		if (!equipeRepository.existsById(idEquipe)) {
+			throw new IllegalArgumentException("Equipe not found with ID: " + idEquipe);
 		}
+		AffectationReport rapport = AffectationsEnMasse.affecter(idEtudiants,
+				ids -> equipeRepository.ajouterEtudiants(idEquipe, ids), etudiantRepository::findIdsExistants);
+		log.info("Students added to equipe {}: {}", idEquipe, rapport);
+		return rapport;
+	}
 
+	/**
+	 * Promotes JUNIOR teams to SENIOR and SENIOR teams to EXPERT when at least 3 of their students hold
+	 * a non-archived contract that ended two full years ago or more (the rule of the former loop).
+	 * One grouped query finds the teams and one UPDATE per level promotes them; the candidates are
+	 * selected before any update, so a team moves up at most one level per run.
+	 */
+	@Transactional
+	public List<PromotionEquipe> evoluerEquipes(){
+		Date dateLimite = Date.from(LocalDate.now().minusDays(2 * 365L).atStartOfDay(ZoneId.systemDefault()).toInstant());
+		List<EquipeEligible> eligibles = equipeRepository.findEquipesAPromouvoir(
+				EnumSet.of(Niveau.JUNIOR, Niveau.SENIOR), dateLimite, NB_ETUDIANTS_PROMOTION);
+		List<PromotionEquipe> promotions = new ArrayList<>();
+		Map<Niveau, List<Integer>> idsParNiveau = new EnumMap<>(Niveau.class);
+		for (EquipeEligible equipe : eligibles) {
+			Niveau nouveauNiveau = equipe.getNiveau() == Niveau.JUNIOR ? Niveau.SENIOR : Niveau.EXPERT;
+			promotions.add(new PromotionEquipe(equipe.getIdEquipe(), equipe.getNiveau(), nouveauNiveau, equipe.getNbEtudiants()));
+			idsParNiveau.computeIfAbsent(equipe.getNiveau(), n -> new ArrayList<>()).add(equipe.getIdEquipe());
+		}
+		idsParNiveau.forEach((niveau, ids) -> {
+			Niveau nouveauNiveau = niveau == Niveau.JUNIOR ? Niveau.SENIOR : Niveau.EXPERT;
+			for (List<Integer> lot : AffectationsEnMasse.lots(ids)) {
+				equipeRepository.changerNiveau(lot, niveau, nouveauNiveau);
+			}
+		});
+		log.info("Team promotion done: {} teams promoted", promotions.size());
+		return promotions;
 	}
-}
\ No newline at end of file
+}
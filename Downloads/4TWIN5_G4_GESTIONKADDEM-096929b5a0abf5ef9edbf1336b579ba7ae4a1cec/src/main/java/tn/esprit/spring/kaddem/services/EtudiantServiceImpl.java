@@ -1,22 +1,28 @@
 package tn.esprit.spring.kaddem.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import lombok.extern.slf4j.Slf4j;
 
+import tn.esprit.spring.kaddem.dto.AffectationReport;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Contrat;
 import tn.esprit.spring.kaddem.entities.Departement;
-import tn.esprit.spring.kaddem.entities.Equipe;
 import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.events.ContratEvent;
 import tn.esprit.spring.kaddem.repositories.ContratRepository;
 import tn.esprit.spring.kaddem.repositories.DepartementRepository;
 import tn.esprit.spring.kaddem.repositories.EquipeRepository;
 import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
 
-import javax.transaction.Transactional;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 @Service
 @Slf4j
@@ -29,8 +35,19 @@ public class EtudiantServiceImpl implements IEtudiantService{
 	EquipeRepository equipeRepository;
     @Autowired
     DepartementRepository departementRepository;
-	public List<Etudiant> retrieveAllEtudiants(){
-	return (List<Etudiant>) etudiantRepository.findAll();
+	@Autowired
+	CompteursContrats compteursContrats;
+	@Autowired
+	ApplicationEventPublisher eventPublisher;
+	@Transactional(readOnly = true)
+	public List<EtudiantVue> retrieveAllEtudiants(){
+	return etudiantRepository.findVues();
+	}
+
+	@Transactional(readOnly = true)
+	public CursorPage<EtudiantVue> retrieveEtudiantsPage(Integer after, Integer limit){
+		return CursorPage.of(etudiantRepository.findVuesApres(CursorPage.after(after), CursorPage.limit(limit)),
+				EtudiantVue::idEtudiant);
 	}
 
 	public Etudiant addEtudiant (Etudiant e){
@@ -41,31 +58,74 @@ public class EtudiantServiceImpl implements IEtudiantService{
 		return etudiantRepository.save(e);
 	}
 
-	public Etudiant retrieveEtudiant(Integer  idEtudiant){
-		return etudiantRepository.findById(idEtudiant).get();
+	@Transactional(readOnly = true)
+	public EtudiantVue retrieveEtudiant(Integer  idEtudiant){
+		return etudiantRepository.findVueById(idEtudiant).get();
+	}
+
+	public Revision revisionEtudiant(Integer idEtudiant){
+		return etudiantRepository.findRevision(idEtudiant);
+	}
+
+	public Revision revisionEtudiants(){
+		return etudiantRepository.findRevision();
+	}
+
+	public Revision revisionEtudiantsByDepartement(Integer idDepartement){
+		return etudiantRepository.findRevisionByDepartement(idDepartement);
 	}
 
+	@Transactional
 	public void removeEtudiant(Integer idEtudiant){
-	Etudiant e=retrieveEtudiant(idEtudiant);
+	Etudiant e=etudiantRepository.findById(idEtudiant).get();
+	// the contracts are deleted with the student (cascade): tell the in-memory views of the contracts
+	List<Contrat> contrats = e.getContrats() == null ? List.of() : new ArrayList<>(e.getContrats());
 	etudiantRepository.delete(e);
+	contrats.forEach(contrat -> eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.SUPPRESSION, contrat)));
 	}
 
+	@Transactional
 	public void assignEtudiantToDepartement (Integer etudiantId, Integer departementId){
-        Etudiant etudiant = etudiantRepository.findById(etudiantId).orElse(null);
-        Departement departement = departementRepository.findById(departementId).orElse(null);
-        etudiant.setDepartement(departement);
-        etudiantRepository.save(etudiant);
+		Etudiant etudiant = etudiantRepository.findById(etudiantId)
+				.orElseThrow(() -> new IllegalArgumentException("Etudiant not found with ID: " + etudiantId));
+		// a reference: the department is not read, its id is the foreign key. No save: the dirty
+		// check writes the column, where a merge would reload the student with its contracts
+		etudiant.setDepartement(departementRepository.getReferenceById(departementId));
 	}
+	@Transactional
+	public AffectationReport affecterEtudiantsADepartement(Integer idDepartement, List<Integer> idEtudiants){
+		Departement departement = departementRepository.findById(idDepartement)
+				.orElseThrow(() -> new IllegalArgumentException("Departement not found with ID: " + idDepartement));
+		Instant maintenant = Instant.now();
+		AffectationReport rapport = AffectationsEnMasse.affecter(idEtudiants,
+				ids -> etudiantRepository.affecterDepartement(ids, departement, maintenant), etudiantRepository::findIdsExistants);
+		log.info("Students assigned to departement {}: {}", idDepartement, rapport);
+		return rapport;
+	}
+
 	@Transactional
 	public Etudiant addAndAssignEtudiantToEquipeAndContract(Etudiant e, Integer idContrat, Integer idEquipe){
 		Contrat c=contratRepository.findById(idContrat).orElse(null);
-		Equipe eq=equipeRepository.findById(idEquipe).orElse(null);
+		CompteursContrats.Etat avant = CompteursContrats.Etat.of(c);
+		// flushed: the join row below is written in SQL, Hibernate would not order it after the student
+		e=etudiantRepository.saveAndFlush(e);
 		c.setEtudiant(e);
-		eq.getEtudiants().add(e);
+		// one join row, the team's members are not loaded
+		equipeRepository.ajouterEtudiants(idEquipe, List.of(e.getIdEtudiant()));
+		compteursContrats.appliquer(avant, CompteursContrats.Etat.of(c));
+		eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.MISE_A_JOUR, c));
 return e;
 	}
 
-	public 	List<Etudiant> getEtudiantsByDepartement (Integer idDepartement){
-return  etudiantRepository.findEtudiantsByDepartement_IdDepart((idDepartement));
+	@Transactional
+	public int recalculerCompteursContrats(){
+		int nbEtudiants = etudiantRepository.recalculerCompteurs(Instant.now());
+		log.info("Contract counters recomputed for {} students", nbEtudiants);
+		return nbEtudiants;
+	}
+
+	@Transactional(readOnly = true)
+	public 	List<EtudiantVue> getEtudiantsByDepartement (Integer idDepartement){
+return  etudiantRepository.findVuesByDepartement((idDepartement));
 	}
 }
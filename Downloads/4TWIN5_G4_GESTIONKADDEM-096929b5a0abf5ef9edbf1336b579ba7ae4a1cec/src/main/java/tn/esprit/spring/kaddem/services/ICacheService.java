@@ -0,0 +1,9 @@
+package tn.esprit.spring.kaddem.services;
+
+import tn.esprit.spring.kaddem.dto.CacheStatistiques;
+
+import java.util.List;
+
+public interface ICacheService {
+    public List<CacheStatistiques> retrieveStatistiques();
+}
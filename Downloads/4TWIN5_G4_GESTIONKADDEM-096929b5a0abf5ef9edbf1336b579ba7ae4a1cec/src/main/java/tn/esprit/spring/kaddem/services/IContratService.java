@@ -1,17 +1,46 @@
 package tn.esprit.spring.kaddem.services;
 
+import tn.esprit.spring.kaddem.dto.ArchivageReport;
+import tn.esprit.spring.kaddem.dto.ChiffreAffaireReport;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.DemandeRenouvellement;
+import tn.esprit.spring.kaddem.dto.RenouvellementReport;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 
 public interface IContratService {
-    public List<Contrat> retrieveAllContrats();
+    public List<ContratVue> retrieveAllContrats();
+
+    public CursorPage<ContratVue> retrieveContratsPage(Integer after, Integer limit);
+
+    /**
+     * Writes the matching contracts to {@code out} as NDJSON (one contract per line), reading them
+     * through a database cursor so heap use does not depend on the table size.
+     * Every filter is optional; the date range keeps the contracts that overlap [startDate, endDate].
+     */
+    public void exportContrats(Date startDate, Date endDate, Specialite specialite, OutputStream out) throws IOException;
 
     public Contrat updateContrat (Contrat  ce);
 
     public  Contrat addContrat (Contrat ce);
 
-    public Contrat retrieveContrat (Integer  idContrat);
+    public ContratVue retrieveContrat (Integer  idContrat);
+
+    /** Revision of retrieve-contrat: the contract and its student, one indexed lookup. */
+    public Revision revisionContrat(Integer idContrat);
+
+    /** The contract as of {@code revision} or later, never the cached copy of an older one. */
+    public ContratVue retrieveContrat(Integer idContrat, Revision revision);
+
+    /** Revision of retrieve-all-contrats, one aggregate. */
+    public Revision revisionContrats();
 
     public  void removeContrat(Integer idContrat);
 
@@ -19,10 +48,28 @@ public interface IContratService {
 
         public 	Integer nbContratsValides(Date startDate, Date endDate);
 
+    /**
+     * Contracts active on {@code date} (start day <= date <= end day), by start date, from an in-memory
+     * index. Specialite and student filters are optional.
+     */
+    public List<ContratVue> retrieveContratsActifsLe(Date date, Specialite specialite, Integer idEtudiant);
+
+    /** Contracts that share at least one day with [startDate, endDate], by start date; same filters. */
+    public List<ContratVue> retrieveContratsChevauchant(Date startDate, Date endDate, Specialite specialite, Integer idEtudiant);
+
 
     public float getChiffreAffaireEntreDeuxDates(Date startDate, Date endDate);
 
-    public void retrieveAndUpdateStatusContrat();
+    public ChiffreAffaireReport getChiffreAffaireParSpecialite(Date startDate, Date endDate);
+
+    /**
+     * Archives, in one statement, every active contract whose end date has passed and lists the
+     * active contracts that expire in exactly 15 days.
+     */
+    public ArchivageReport retrieveAndUpdateStatusContrat();
+
+    /** Archives every active contract whose end date is before today; returns the number of rows updated. */
+    public int archiverContratsExpires();
 
     /**
      * Renews a contract with validation rules:
@@ -37,5 +84,12 @@ public interface IContratService {
      * @throws IllegalStateException if renewal conditions are not met
      */
     public Contrat renewContract(Integer idContrat, Integer newDuration);
+
+    /**
+     * Renews many contracts under the rules of {@link #renewContract}, in chunks of
+     * {@code kaddem.renouvellement.taille-lot} items, each chunk in its own transaction. A rejected item
+     * is reported and skipped; a chunk that fails is reported item by item and the others are kept.
+     */
+    public RenouvellementReport renewContracts(List<DemandeRenouvellement> demandes);
 }
 
@@ -1,5 +1,7 @@
 package tn.esprit.spring.kaddem.services;
 
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Departement;
 
 import java.util.List;
@@ -7,12 +9,19 @@ import java.util.List;
 public interface IDepartementService {
     public List<Departement> retrieveAllDepartements();
 
+    public CursorPage<Departement> retrieveDepartementsPage(Integer after, Integer limit);
+
     public Departement addDepartement (Departement d);
 
     public   Departement updateDepartement (Departement d);
 
     public  Departement retrieveDepartement (Integer idDepart);
 
+    /** Revisions of retrieve-departement and retrieve-all-departements, one aggregate each. */
+    public Revision revisionDepartement(Integer idDepart);
+
+    public Revision revisionDepartements();
+
     public  void deleteDepartement(Integer idDepartement);
 
 }
@@ -1,14 +1,21 @@
 package tn.esprit.spring.kaddem.services;
 
+import tn.esprit.spring.kaddem.dto.AffectationReport;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.EquipeVue;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
 import tn.esprit.spring.kaddem.entities.Equipe;
 
 import java.util.List;
 
 public interface IEquipeService {
-    public List<Equipe> retrieveAllEquipes();
+    public List<EquipeVue> retrieveAllEquipes();
+    public CursorPage<EquipeVue> retrieveEquipesPage(Integer after, Integer limit);
     public Equipe addEquipe(Equipe e);
     public  void deleteEquipe(Integer idEquipe);
     public Equipe updateEquipe(Equipe e);
-    public Equipe retrieveEquipe(Integer equipeId);
-    public void evoluerEquipes();
+    public EquipeVue retrieveEquipe(Integer equipeId);
+    public List<PromotionEquipe> evoluerEquipes();
+    /** Adds the students to the team, with set-based INSERTs on the join table: the members are never loaded. */
+    public AffectationReport affecterEtudiants(Integer idEquipe, List<Integer> idEtudiants);
 }
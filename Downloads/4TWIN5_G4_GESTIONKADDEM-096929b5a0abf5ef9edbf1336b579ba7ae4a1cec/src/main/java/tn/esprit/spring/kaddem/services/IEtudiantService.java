@@ -1,23 +1,42 @@
 package tn.esprit.spring.kaddem.services;
 
+import tn.esprit.spring.kaddem.dto.AffectationReport;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 
 import java.util.List;
 
 public interface IEtudiantService {
-    public List<Etudiant> retrieveAllEtudiants();
+    public List<EtudiantVue> retrieveAllEtudiants();
+
+    public CursorPage<EtudiantVue> retrieveEtudiantsPage(Integer after, Integer limit);
 
     public Etudiant addEtudiant (Etudiant e);
 
     public Etudiant updateEtudiant (Etudiant e);
 
-    public Etudiant retrieveEtudiant(Integer  idEtudiant);
+    public EtudiantVue retrieveEtudiant(Integer  idEtudiant);
+
+    /** Revisions of retrieve-etudiant, retrieve-all-etudiants and getEtudiantsByDepartement, one aggregate each. */
+    public Revision revisionEtudiant(Integer idEtudiant);
+
+    public Revision revisionEtudiants();
+
+    public Revision revisionEtudiantsByDepartement(Integer idDepartement);
 
     public void removeEtudiant(Integer idEtudiant);
 
     public void assignEtudiantToDepartement (Integer etudiantId, Integer departementId);
 
+    /** Moves the students to the department, with set-based UPDATEs: no student is loaded. */
+    public AffectationReport affecterEtudiantsADepartement(Integer idDepartement, List<Integer> idEtudiants);
+
     public Etudiant addAndAssignEtudiantToEquipeAndContract(Etudiant e, Integer idContrat, Integer idEquipe);
 
-    public 	List<Etudiant> getEtudiantsByDepartement (Integer idDepartement);
+    public 	List<EtudiantVue> getEtudiantsByDepartement (Integer idDepartement);
+
+    /** Recomputes the contract counters of every student from the contracts; returns the number of students updated. */
+    public int recalculerCompteursContrats();
 }
@@ -0,0 +1,11 @@
+package tn.esprit.spring.kaddem.services;
+
+import tn.esprit.spring.kaddem.dto.ImportReport;
+import tn.esprit.spring.kaddem.imports.ImportFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface IImportService {
+    public ImportReport importer(InputStream donnees, ImportFormat format) throws IOException;
+}
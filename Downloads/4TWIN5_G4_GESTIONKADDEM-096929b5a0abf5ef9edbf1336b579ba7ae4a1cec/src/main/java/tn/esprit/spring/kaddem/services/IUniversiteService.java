@@ -1,5 +1,7 @@
 package tn.esprit.spring.kaddem.services;
 
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Departement;
 import tn.esprit.spring.kaddem.entities.Universite;
 
@@ -9,12 +11,19 @@ import java.util.Set;
 public interface IUniversiteService {
    public List<Universite> retrieveAllUniversites();
 
+   public CursorPage<Universite> retrieveUniversitesPage(Integer after, Integer limit);
+
     Universite addUniversite (Universite  u);
 
     Universite updateUniversite (Universite  u);
 
     Universite retrieveUniversite (Integer idUniversite);
 
+    /** Revisions of retrieve-universite and retrieve-all-universites, one aggregate each. */
+    Revision revisionUniversite(Integer idUniversite);
+
+    Revision revisionUniversites();
+
     public  void deleteUniversite(Integer idUniversite);
 
     public void assignUniversiteToDepartement(Integer idUniversite, Integer idDepartement);
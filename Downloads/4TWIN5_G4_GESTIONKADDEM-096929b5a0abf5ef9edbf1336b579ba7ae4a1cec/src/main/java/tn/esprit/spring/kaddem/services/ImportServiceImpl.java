@@ -0,0 +1,371 @@
+package tn.esprit.spring.kaddem.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.dto.ImportReport;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Universite;
+import tn.esprit.spring.kaddem.events.ContratEvent;
+import tn.esprit.spring.kaddem.imports.ImportFormat;
+import tn.esprit.spring.kaddem.imports.ImportLigne;
+import tn.esprit.spring.kaddem.imports.ImportParser;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk import of universites, departements, etudiants and contrats from a CSV or NDJSON stream.
+ * <p>
+ * Three stages: one thread reads the lines and cuts them into chunks, a pool parses and validates
+ * the chunks in parallel, and the calling thread writes them, in file order, each chunk in its own
+ * transaction (flushed with Hibernate JDBC batching). The queue between reading and writing is
+ * bounded, so a slow database makes the reader wait instead of buffering the whole file.
+ * <p>
+ * Foreign keys are resolved in memory: the ids of the rows written so far are kept by {@code ref},
+ * and the database ids used as {@code parent} are checked with one query per chunk. A parent must
+ * appear before its children in the file.
+ */
+@Slf4j
+@Service
+public class ImportServiceImpl implements IImportService {
+	private static final Map<ImportLigne.Type, ImportLigne.Type> TYPE_PARENT = Map.of(
+			ImportLigne.Type.DEPARTEMENT, ImportLigne.Type.UNIVERSITE,
+			ImportLigne.Type.ETUDIANT, ImportLigne.Type.DEPARTEMENT,
+			ImportLigne.Type.CONTRAT, ImportLigne.Type.ETUDIANT);
+
+	@PersistenceContext
+	EntityManager entityManager;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	@Autowired
+	ApplicationEventPublisher eventPublisher;
+	@Autowired
+	EtudiantRepository etudiantRepository;
+
+	@Value("${kaddem.import.taille-lot:1000}")
+	int tailleLot;
+	// 0: one parser per processor
+	@Value("${kaddem.import.threads:0}")
+	int threads;
+	// 0: twice the number of parsers
+	@Value("${kaddem.import.lots-en-attente:0}")
+	int lotsEnAttente;
+
+	public ImportReport importer(InputStream donnees, ImportFormat format) throws IOException {
+		long debut = System.currentTimeMillis();
+		int nbThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		BlockingQueue<Future<LotLu>> file = new ArrayBlockingQueue<>(lotsEnAttente > 0 ? lotsEnAttente : 2 * nbThreads);
+		ExecutorService parseurs = Executors.newFixedThreadPool(nbThreads);
+		BufferedReader lecteur = new BufferedReader(new InputStreamReader(donnees, StandardCharsets.UTF_8));
+		Thread lecture = new Thread(() -> lire(lecteur, format, parseurs, file), "kaddem-import-lecture");
+		lecture.start();
+
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		Refs refs = new Refs();
+		List<ImportReport.Lot> lots = new ArrayList<>();
+		long nbLignes = 0;
+		long nbImportees = 0;
+		try {
+			while (true) {
+				LotLu lot = file.take().get();
+				if (lot == LotLu.FIN) {
+					break;
+				}
+				ImportReport.Lot rapport = ecrire(lot, refs, transaction);
+				lots.add(rapport);
+				nbLignes += lot.derniereLigne - lot.premiereLigne + 1;
+				nbImportees += rapport.getNbImportees();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("import interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw new IllegalStateException("import failed", e.getCause());
+		} finally {
+			lecture.interrupt();
+			parseurs.shutdownNow();
+		}
+		ImportReport rapport = new ImportReport(nbLignes, nbImportees, nbLignes - nbImportees,
+				System.currentTimeMillis() - debut, lots);
+		log.info("Import done: {}", rapport);
+		return rapport;
+	}
+
+	/** Reading stage: blocks on the queue when the writer is behind. */
+	private void lire(BufferedReader lecteur, ImportFormat format, ExecutorService parseurs, BlockingQueue<Future<LotLu>> file) {
+		try {
+			try {
+				String ligne = lecteur.readLine();
+				long numero = 1;
+				ImportParser parser;
+				if (format == ImportFormat.CSV) {
+					parser = ImportParser.csv(ligne == null ? "type" : ligne);
+					ligne = lecteur.readLine();
+					numero++;
+				} else {
+					parser = ImportParser.ndjson();
+				}
+				int numeroLot = 1;
+				List<String> lignes = new ArrayList<>(tailleLot);
+				long premiereLigne = numero;
+				for (; ligne != null; ligne = lecteur.readLine(), numero++) {
+					lignes.add(ligne);
+					if (lignes.size() == tailleLot) {
+						file.put(soumettre(parseurs, parser, numeroLot++, premiereLigne, lignes));
+						lignes = new ArrayList<>(tailleLot);
+						premiereLigne = numero + 1;
+					}
+				}
+				if (!lignes.isEmpty()) {
+					file.put(soumettre(parseurs, parser, numeroLot, premiereLigne, lignes));
+				}
+				file.put(CompletableFuture.completedFuture(LotLu.FIN));
+			} catch (IOException e) {
+				file.put(CompletableFuture.failedFuture(new UncheckedIOException(e)));
+			} catch (RuntimeException e) {
+				file.put(CompletableFuture.failedFuture(e));
+			}
+		} catch (InterruptedException e) {
+			// the writer gave up
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Parsing stage: pure CPU work, no database access. */
+	private static Future<LotLu> soumettre(ExecutorService parseurs, ImportParser parser, int numeroLot, long premiereLigne,
+			List<String> lignes) {
+		return parseurs.submit(() -> {
+			LotLu lot = new LotLu(numeroLot, premiereLigne, premiereLigne + lignes.size() - 1);
+			long numero = premiereLigne;
+			for (String ligne : lignes) {
+				if (!ligne.isBlank()) {
+					try {
+						lot.lignes.add(parser.parser(numero, ligne));
+					} catch (IllegalArgumentException e) {
+						lot.erreurs.add(new ImportReport.Erreur(numero, e.getMessage()));
+					}
+				} else {
+					lot.erreurs.add(new ImportReport.Erreur(numero, "empty line"));
+				}
+				numero++;
+			}
+			return lot;
+		});
+	}
+
+	/** Writing stage: one transaction per chunk; the refs of a rolled back chunk are forgotten. */
+	private ImportReport.Lot ecrire(LotLu lot, Refs refs, TransactionTemplate transaction) {
+		List<ImportReport.Erreur> erreurs = new ArrayList<>(lot.erreurs);
+		Refs nouvelles = new Refs();
+		int nbImportees = 0;
+		String echec = null;
+		try {
+			nbImportees = transaction.execute(status -> persister(lot, refs, nouvelles, erreurs));
+			refs.ajouter(nouvelles);
+		} catch (RuntimeException e) {
+			echec = NestedExceptionUtils.getMostSpecificCause(e).toString();
+			log.warn("Import chunk {} (lines {}-{}) rolled back: {}", lot.numero, lot.premiereLigne, lot.derniereLigne, echec);
+		} finally {
+			// under open-in-view the EntityManager lives as long as the request: without this it would keep
+			// every imported row, and dirty-check all of them at each flush
+			if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+				entityManager.clear();
+			}
+		}
+		erreurs.sort((a, b) -> Long.compare(a.getLigne(), b.getLigne()));
+		return new ImportReport.Lot(lot.numero, lot.premiereLigne, lot.derniereLigne, nbImportees, erreurs, echec);
+	}
+
+	private int persister(LotLu lot, Refs refs, Refs nouvelles, List<ImportReport.Erreur> erreurs) {
+		chargerParentsExistants(lot, refs);
+		Map<Integer, Universite> universites = new HashMap<>();
+		List<Contrat> contrats = new ArrayList<>();
+		Set<Integer> etudiantsContrats = new HashSet<>();
+		int nbImportees = 0;
+		for (ImportLigne ligne : lot.lignes) {
+			Integer idParent = null;
+			if (ligne.getParent() != null) {
+				ImportLigne.Type typeParent = TYPE_PARENT.get(ligne.getType());
+				idParent = nouvelles.get(typeParent, ligne.getParent());
+				if (idParent == null) {
+					idParent = refs.resoudre(typeParent, ligne.getParent());
+				}
+				if (idParent == null) {
+					erreurs.add(new ImportReport.Erreur(ligne.getNumero(),
+							"unknown " + typeParent.name().toLowerCase() + ": " + ligne.getParent()));
+					continue;
+				}
+			}
+			if (ligne.getRef() != null && ligne.getType() != ImportLigne.Type.CONTRAT
+					&& (refs.get(ligne.getType(), ligne.getRef()) != null || nouvelles.get(ligne.getType(), ligne.getRef()) != null)) {
+				erreurs.add(new ImportReport.Erreur(ligne.getNumero(), "duplicate ref: " + ligne.getRef()));
+				continue;
+			}
+			switch (ligne.getType()) {
+				case UNIVERSITE:
+					Universite universite = new Universite(ligne.getNom());
+					universite.setDepartements(new HashSet<>());
+					entityManager.persist(universite);
+					universites.put(universite.getIdUniv(), universite);
+					nouvelles.put(ImportLigne.Type.UNIVERSITE, ligne.getRef(), universite.getIdUniv());
+					break;
+				case DEPARTEMENT:
+					Departement departement = new Departement(ligne.getNom());
+					entityManager.persist(departement);
+					if (idParent != null) {
+						// the universite side owns the association (join table)
+						universites.computeIfAbsent(idParent, id -> entityManager.find(Universite.class, id))
+								.getDepartements().add(departement);
+					}
+					nouvelles.put(ImportLigne.Type.DEPARTEMENT, ligne.getRef(), departement.getIdDepart());
+					break;
+				case ETUDIANT:
+					Etudiant etudiant = new Etudiant(ligne.getNom(), ligne.getPrenom(), ligne.getOption());
+					if (idParent != null) {
+						etudiant.setDepartement(entityManager.getReference(Departement.class, idParent));
+					}
+					entityManager.persist(etudiant);
+					nouvelles.put(ImportLigne.Type.ETUDIANT, ligne.getRef(), etudiant.getIdEtudiant());
+					break;
+				case CONTRAT:
+					Contrat contrat = new Contrat(ligne.getDateDebut(), ligne.getDateFin(), ligne.getSpecialite(),
+							ligne.isArchive(), ligne.getMontant());
+					if (idParent != null) {
+						contrat.setEtudiant(entityManager.getReference(Etudiant.class, idParent));
+						etudiantsContrats.add(idParent);
+					}
+					entityManager.persist(contrat);
+					contrats.add(contrat);
+					break;
+			}
+			nbImportees++;
+		}
+		entityManager.flush();
+		// one statement for the counters of the chunk's students rather than one update per contract
+		if (!etudiantsContrats.isEmpty()) {
+			etudiantRepository.recalculerCompteurs(etudiantsContrats, Instant.now());
+		}
+		// delivered after commit, like the events of the contract service
+		contrats.forEach(contrat -> eventPublisher.publishEvent(new ContratEvent(ContratEvent.Type.AJOUT, contrat)));
+		return nbImportees;
+	}
+
+	/** One query per parent type for the database ids the chunk refers to and that are not known yet. */
+	private void chargerParentsExistants(LotLu lot, Refs refs) {
+		Map<ImportLigne.Type, Set<Integer>> inconnus = new EnumMap<>(ImportLigne.Type.class);
+		for (ImportLigne ligne : lot.lignes) {
+			ImportLigne.Type typeParent = TYPE_PARENT.get(ligne.getType());
+			Integer id = ligne.getParent() == null ? null : Refs.id(ligne.getParent());
+			if (id != null && refs.resoudre(typeParent, ligne.getParent()) == null) {
+				inconnus.computeIfAbsent(typeParent, t -> new HashSet<>()).add(id);
+			}
+		}
+		inconnus.forEach((type, ids) -> refs.existants(type).addAll(entityManager.createQuery(
+				"SELECT e." + Refs.ATTRIBUT_ID.get(type) + " FROM " + Refs.ENTITE.get(type).getSimpleName() + " e WHERE e."
+						+ Refs.ATTRIBUT_ID.get(type) + " IN :ids", Integer.class)
+				.setParameter("ids", ids)
+				.getResultList()));
+	}
+
+	/** Lookup maps of the import: ids by ref for the rows written so far, plus the database ids known to exist. */
+	private static class Refs {
+		static final Map<ImportLigne.Type, Class<?>> ENTITE = Map.of(
+				ImportLigne.Type.UNIVERSITE, Universite.class,
+				ImportLigne.Type.DEPARTEMENT, Departement.class,
+				ImportLigne.Type.ETUDIANT, Etudiant.class);
+		static final Map<ImportLigne.Type, String> ATTRIBUT_ID = Map.of(
+				ImportLigne.Type.UNIVERSITE, "idUniv",
+				ImportLigne.Type.DEPARTEMENT, "idDepart",
+				ImportLigne.Type.ETUDIANT, "idEtudiant");
+
+		private final Map<ImportLigne.Type, Map<String, Integer>> parRef = new EnumMap<>(ImportLigne.Type.class);
+		private final Map<ImportLigne.Type, Set<Integer>> existants = new EnumMap<>(ImportLigne.Type.class);
+
+		Integer get(ImportLigne.Type type, String ref) {
+			return parRef.getOrDefault(type, Collections.emptyMap()).get(ref);
+		}
+
+		void put(ImportLigne.Type type, String ref, Integer id) {
+			parRef.computeIfAbsent(type, t -> new HashMap<>()).put(ref, id);
+		}
+
+		/** A ref of the file first, then a database id. */
+		Integer resoudre(ImportLigne.Type type, String parent) {
+			Integer id = get(type, parent);
+			if (id == null) {
+				id = id(parent);
+				if (id != null && !existants(type).contains(id)) {
+					id = null;
+				}
+			}
+			return id;
+		}
+
+		Set<Integer> existants(ImportLigne.Type type) {
+			return existants.computeIfAbsent(type, t -> new HashSet<>());
+		}
+
+		void ajouter(Refs autres) {
+			autres.parRef.forEach((type, ids) -> parRef.computeIfAbsent(type, t -> new HashMap<>()).putAll(ids));
+		}
+
+		static Integer id(String valeur) {
+			// most parents are refs: test before parsing rather than pay for an exception each time
+			if (valeur.length() > 9 || !valeur.chars().allMatch(Character::isDigit)) {
+				return null;
+			}
+			return Integer.valueOf(valeur);
+		}
+	}
+
+	private static class LotLu {
+		static final LotLu FIN = new LotLu(0, 0, -1);
+
+		final int numero;
+		final long premiereLigne;
+		final long derniereLigne;
+		final List<ImportLigne> lignes = new ArrayList<>();
+		final List<ImportReport.Erreur> erreurs = new ArrayList<>();
+
+		LotLu(int numero, long premiereLigne, long derniereLigne) {
+			this.numero = numero;
+			this.premiereLigne = premiereLigne;
+			this.derniereLigne = derniereLigne;
+		}
+	}
+}
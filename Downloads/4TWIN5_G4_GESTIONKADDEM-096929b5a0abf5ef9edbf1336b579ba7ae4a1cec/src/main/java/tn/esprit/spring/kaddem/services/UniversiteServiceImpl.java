@@ -2,6 +2,9 @@ package tn.esprit.spring.kaddem.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.Revision;
 import tn.esprit.spring.kaddem.entities.Departement;
 import tn.esprit.spring.kaddem.entities.Universite;
 import tn.esprit.spring.kaddem.repositories.DepartementRepository;
@@ -23,6 +26,11 @@ public class UniversiteServiceImpl implements IUniversiteService{
 return (List<Universite>) universiteRepository.findAll();
     }
 
+    public CursorPage<Universite> retrieveUniversitesPage(Integer after, Integer limit){
+        return CursorPage.of(universiteRepository.findByIdUnivGreaterThanOrderByIdUnivAsc(CursorPage.after(after), CursorPage.limit(limit)),
+                Universite::getIdUniv);
+    }
+
  public    Universite addUniversite (Universite  u){
 return  (universiteRepository.save(u));
     }
@@ -35,15 +43,30 @@ return  (universiteRepository.save(u));
 Universite u = universiteRepository.findById(idUniversite).get();
 return  u;
     }
+
+    public Revision revisionUniversite(Integer idUniversite){
+        return universiteRepository.findRevision(idUniversite);
+    }
+
+    public Revision revisionUniversites(){
+        return universiteRepository.findRevision();
+    }
     public  void deleteUniversite(Integer idUniversite){
         universiteRepository.delete(retrieveUniversite(idUniversite));
     }
 
+    @Transactional
     public void assignUniversiteToDepartement(Integer idUniversite, Integer idDepartement){
-        Universite u= universiteRepository.findById(idUniversite).orElse(null);
-        Departement d= departementRepository.findById(idDepartement).orElse(null);
-        u.getDepartements().add(d);
-        universiteRepository.save(u);
+        // one join row: no load of the university's departments, no cascading merge over them
+        if (universiteRepository.ajouterDepartement(idUniversite, idDepartement) == 0) {
+            // no row: already assigned, or an unknown id
+            if (!universiteRepository.existsById(idUniversite)) {
+                throw new IllegalArgumentException("Universite not found with ID: " + idUniversite);
+            }
+            if (!departementRepository.existsById(idDepartement)) {
+                throw new IllegalArgumentException("Departement not found with ID: " + idDepartement);
+            }
+        }
     }
 
     public Set<Departement> retrieveDepartementsByUniversite(Integer idUniversite){
@@ -0,0 +1,199 @@
+package tn.esprit.spring.kaddem.reactif;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.DetailEquipe;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.entities.Universite;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Read-only queries of the reactive API, over R2DBC: nothing blocks, and a {@link Flux} pulls its rows
+ * from the driver as the client reads them. The rows are mapped onto detached entities without their
+ * lazy associations, so that the JSON is the one of the servlet endpoints.
+ * <p>
+ * The connection pool is its own, never a bean: a {@code ConnectionFactory} in the context would turn
+ * off the JDBC data source the JPA side runs on.
+ */
+public class LecturesReactives {
+    private static final String ETUDIANT = "SELECT e.id_etudiant, e.nome, e.prenome, e.op, e.nb_contrats_actifs,"
+            + " e.nb_contrats_archives, e.montant_total_contrats, e.version AS version_etudiant FROM etudiant e";
+    private static final String CONTRAT = "SELECT c.id_contrat, c.date_debut_contrat, c.date_fin_contrat, c.specialite,"
+            + " c.archive, c.montant_contrat, c.version, e.id_etudiant, e.nome, e.prenome, e.op, e.nb_contrats_actifs,"
+            + " e.nb_contrats_archives, e.montant_total_contrats, e.version AS version_etudiant"
+            + " FROM contrat c LEFT JOIN etudiant e ON e.id_etudiant = c.etudiant_id_etudiant";
+    private static final String DEPARTEMENT = "SELECT d.id_depart, d.nom_depart FROM departement d";
+    private static final String UNIVERSITE = "SELECT u.id_univ, u.nom_univ FROM universite u";
+    private static final String EQUIPE = "SELECT q.id_equipe, q.nom_equipe, q.niveau, d.id_detail_equipe, d.salle, d.thematique"
+            + " FROM equipe q LEFT JOIN detail_equipe d ON d.id_detail_equipe = q.detail_equipe_id_detail_equipe";
+
+    private final ConnectionPool pool;
+    private final DatabaseClient client;
+
+    LecturesReactives(ConnectionPool pool) {
+        this.pool = pool;
+        this.client = DatabaseClient.create(pool);
+    }
+
+    public Flux<Contrat> contrats() {
+        return tous(CONTRAT, "c.id_contrat", LecturesReactives::ligneContrat);
+    }
+
+    public Mono<CursorPage<Contrat>> pageContrats(Integer after, Integer limit) {
+        return page(CONTRAT, "c.id_contrat", after, limit, LecturesReactives::ligneContrat, Contrat::getIdContrat);
+    }
+
+    public Mono<Contrat> contrat(Integer idContrat) {
+        return un(CONTRAT, "c.id_contrat", idContrat, LecturesReactives::ligneContrat);
+    }
+
+    public Flux<Etudiant> etudiants() {
+        return tous(ETUDIANT, "e.id_etudiant", LecturesReactives::ligneEtudiant);
+    }
+
+    public Mono<CursorPage<Etudiant>> pageEtudiants(Integer after, Integer limit) {
+        return page(ETUDIANT, "e.id_etudiant", after, limit, LecturesReactives::ligneEtudiant, Etudiant::getIdEtudiant);
+    }
+
+    public Mono<Etudiant> etudiant(Integer idEtudiant) {
+        return un(ETUDIANT, "e.id_etudiant", idEtudiant, LecturesReactives::ligneEtudiant);
+    }
+
+    public Flux<Etudiant> etudiantsParDepartement(Integer idDepartement) {
+        return client.sql(ETUDIANT + " WHERE e.departement_id_depart = :idDepartement ORDER BY e.id_etudiant")
+                .bind("idDepartement", idDepartement)
+                .map(LecturesReactives::ligneEtudiant)
+                .all();
+    }
+
+    public Flux<Departement> departements() {
+        return tous(DEPARTEMENT, "d.id_depart", LecturesReactives::ligneDepartement);
+    }
+
+    public Mono<CursorPage<Departement>> pageDepartements(Integer after, Integer limit) {
+        return page(DEPARTEMENT, "d.id_depart", after, limit, LecturesReactives::ligneDepartement, Departement::getIdDepart);
+    }
+
+    public Mono<Departement> departement(Integer idDepart) {
+        return un(DEPARTEMENT, "d.id_depart", idDepart, LecturesReactives::ligneDepartement);
+    }
+
+    public Flux<Universite> universites() {
+        return tous(UNIVERSITE, "u.id_univ", LecturesReactives::ligneUniversite);
+    }
+
+    public Mono<CursorPage<Universite>> pageUniversites(Integer after, Integer limit) {
+        return page(UNIVERSITE, "u.id_univ", after, limit, LecturesReactives::ligneUniversite, Universite::getIdUniv);
+    }
+
+    public Mono<Universite> universite(Integer idUniv) {
+        return un(UNIVERSITE, "u.id_univ", idUniv, LecturesReactives::ligneUniversite);
+    }
+
+    public Flux<Equipe> equipes() {
+        return tous(EQUIPE, "q.id_equipe", LecturesReactives::ligneEquipe);
+    }
+
+    public Mono<CursorPage<Equipe>> pageEquipes(Integer after, Integer limit) {
+        return page(EQUIPE, "q.id_equipe", after, limit, LecturesReactives::ligneEquipe, Equipe::getIdEquipe);
+    }
+
+    public Mono<Equipe> equipe(Integer idEquipe) {
+        return un(EQUIPE, "q.id_equipe", idEquipe, LecturesReactives::ligneEquipe);
+    }
+
+    /** Closes the pooled connections. */
+    public void close() {
+        pool.dispose();
+    }
+
+    private <T> Flux<T> tous(String select, String id, BiFunction<Row, RowMetadata, T> ligne) {
+        return client.sql(select + " ORDER BY " + id).map(ligne).all();
+    }
+
+    private <T> Mono<T> un(String select, String id, Integer valeur, BiFunction<Row, RowMetadata, T> ligne) {
+        return client.sql(select + " WHERE " + id + " = :id").bind("id", valeur).map(ligne).one();
+    }
+
+    /** Same pages as the servlet endpoints: one row more than the limit tells whether there is a next page. */
+    private <T> Mono<CursorPage<T>> page(String select, String id, Integer after, Integer limit,
+                                         BiFunction<Row, RowMetadata, T> ligne, Function<T, Integer> idLigne) {
+        int taille = CursorPage.limit(limit).getPageSize();
+        return client.sql(select + " WHERE " + id + " > :after ORDER BY " + id + " LIMIT :taille")
+                .bind("after", CursorPage.after(after))
+                .bind("taille", taille + 1)
+                .map(ligne)
+                .all()
+                .collectList()
+                .map(lignes -> {
+                    boolean suite = lignes.size() > taille;
+                    List<T> contenu = suite ? lignes.subList(0, taille) : lignes;
+                    return new CursorPage<>(contenu, taille, suite ? idLigne.apply(contenu.get(taille - 1)) : null);
+                });
+    }
+
+    private static Contrat ligneContrat(Row row, RowMetadata metadata) {
+        Contrat contrat = new Contrat(row.get("id_contrat", Integer.class), date(row, "date_debut_contrat"),
+                date(row, "date_fin_contrat"), enumeration(row, "specialite", Specialite.class),
+                row.get("archive", Boolean.class), row.get("montant_contrat", Integer.class));
+        contrat.setVersion(row.get("version", Long.class));
+        if (row.get("id_etudiant", Integer.class) != null) {
+            contrat.setEtudiant(ligneEtudiant(row, metadata));
+        }
+        return contrat;
+    }
+
+    private static Etudiant ligneEtudiant(Row row, RowMetadata metadata) {
+        Etudiant etudiant = new Etudiant(row.get("id_etudiant", Integer.class), row.get("nome", String.class),
+                row.get("prenome", String.class), enumeration(row, "op", Option.class));
+        etudiant.setNbContratsActifs(row.get("nb_contrats_actifs", Integer.class));
+        etudiant.setNbContratsArchives(row.get("nb_contrats_archives", Integer.class));
+        etudiant.setMontantTotalContrats(row.get("montant_total_contrats", Long.class));
+        etudiant.setVersion(row.get("version_etudiant", Long.class));
+        return etudiant;
+    }
+
+    private static Departement ligneDepartement(Row row, RowMetadata metadata) {
+        return new Departement(row.get("id_depart", Integer.class), row.get("nom_depart", String.class));
+    }
+
+    private static Universite ligneUniversite(Row row, RowMetadata metadata) {
+        return new Universite(row.get("id_univ", Integer.class), row.get("nom_univ", String.class));
+    }
+
+    private static Equipe ligneEquipe(Row row, RowMetadata metadata) {
+        Equipe equipe = new Equipe(row.get("id_equipe", Integer.class), row.get("nom_equipe", String.class),
+                enumeration(row, "niveau", Niveau.class));
+        Integer idDetailEquipe = row.get("id_detail_equipe", Integer.class);
+        if (idDetailEquipe != null) {
+            equipe.setDetailEquipe(new DetailEquipe(idDetailEquipe, row.get("salle", Integer.class), row.get("thematique", String.class)));
+        }
+        return equipe;
+    }
+
+    // what Hibernate hands out for a @Temporal(DATE) column, so that the JSON is the same
+    private static java.sql.Date date(Row row, String colonne) {
+        LocalDate jour = row.get(colonne, LocalDate.class);
+        return jour == null ? null : java.sql.Date.valueOf(jour);
+    }
+
+    private static <E extends Enum<E>> E enumeration(Row row, String colonne, Class<E> type) {
+        String valeur = row.get(colonne, String.class);
+        return valeur == null ? null : Enum.valueOf(type, valeur);
+    }
+}
@@ -0,0 +1,99 @@
+package tn.esprit.spring.kaddem.reactif;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Universite;
+
+/**
+ * Routes of the reactive read API: the retrieve-* and getEtudiantsByDepartement paths of the servlet
+ * controllers, same parameters and same JSON, on the port of {@link ServeurReactif}.
+ * <p>
+ * The lists are a JSON array, or with {@code Accept: application/x-ndjson} one row per line written as
+ * the rows arrive: the socket's demand then reaches the database driver, a slow client slows the read
+ * down instead of making the server buffer the result.
+ */
+public class LecturesReactivesHandler {
+    private final LecturesReactives lectures;
+
+    LecturesReactivesHandler(LecturesReactives lectures) {
+        this.lectures = lectures;
+    }
+
+    RouterFunction<ServerResponse> routes(String contextPath) {
+        RouterFunction<ServerResponse> routes = RouterFunctions.route()
+                // http://localhost:8091/kaddem/contrat/retrieve-all-contrats
+                .GET("/contrat/retrieve-all-contrats", requete -> liste(requete, lectures.contrats(), Contrat.class))
+                .GET("/contrat/retrieve-contrats-page", requete -> page(lectures.pageContrats(after(requete), limit(requete)),
+                        new ParameterizedTypeReference<CursorPage<Contrat>>() {}))
+                .GET("/contrat/retrieve-contrat/{contrat-id}", requete -> un(lectures.contrat(id(requete, "contrat-id")), Contrat.class))
+                .GET("/etudiant/retrieve-all-etudiants", requete -> liste(requete, lectures.etudiants(), Etudiant.class))
+                .GET("/etudiant/retrieve-etudiants-page", requete -> page(lectures.pageEtudiants(after(requete), limit(requete)),
+                        new ParameterizedTypeReference<CursorPage<Etudiant>>() {}))
+                .GET("/etudiant/retrieve-etudiant/{etudiant-id}", requete -> un(lectures.etudiant(id(requete, "etudiant-id")), Etudiant.class))
+                .GET("/etudiant/getEtudiantsByDepartement/{idDepartement}",
+                        requete -> liste(requete, lectures.etudiantsParDepartement(id(requete, "idDepartement")), Etudiant.class))
+                .GET("/departement/retrieve-all-departements", requete -> liste(requete, lectures.departements(), Departement.class))
+                .GET("/departement/retrieve-departements-page", requete -> page(lectures.pageDepartements(after(requete), limit(requete)),
+                        new ParameterizedTypeReference<CursorPage<Departement>>() {}))
+                .GET("/departement/retrieve-departement/{departement-id}",
+                        requete -> un(lectures.departement(id(requete, "departement-id")), Departement.class))
+                .GET("/universite/retrieve-all-universites", requete -> liste(requete, lectures.universites(), Universite.class))
+                .GET("/universite/retrieve-universites-page", requete -> page(lectures.pageUniversites(after(requete), limit(requete)),
+                        new ParameterizedTypeReference<CursorPage<Universite>>() {}))
+                .GET("/universite/retrieve-universite/{universite-id}",
+                        requete -> un(lectures.universite(id(requete, "universite-id")), Universite.class))
+                .GET("/equipe/retrieve-all-equipes", requete -> liste(requete, lectures.equipes(), Equipe.class))
+                .GET("/equipe/retrieve-equipes-page", requete -> page(lectures.pageEquipes(after(requete), limit(requete)),
+                        new ParameterizedTypeReference<CursorPage<Equipe>>() {}))
+                .GET("/equipe/retrieve-equipe/{equipe-id}", requete -> un(lectures.equipe(id(requete, "equipe-id")), Equipe.class))
+                .build();
+        return contextPath.isEmpty() ? routes : RouterFunctions.nest(RequestPredicates.path(contextPath), routes);
+    }
+
+    private static <T> Mono<ServerResponse> liste(ServerRequest requete, Flux<T> lignes, Class<T> type) {
+        boolean ndjson = requete.headers().accept().stream().anyMatch(media -> media.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+        return ServerResponse.ok().contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON).body(lignes, type);
+    }
+
+    private static <T> Mono<ServerResponse> page(Mono<CursorPage<T>> page, ParameterizedTypeReference<CursorPage<T>> type) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(page, type);
+    }
+
+    // an unknown id is a 200 with an empty body, like the servlet endpoints returning null
+    private static <T> Mono<ServerResponse> un(Mono<T> ligne, Class<T> type) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(ligne, type);
+    }
+
+    private static Integer id(ServerRequest requete, String variable) {
+        return entier(requete.pathVariable(variable), variable);
+    }
+
+    private static Integer after(ServerRequest requete) {
+        return requete.queryParam("after").map(valeur -> entier(valeur, "after")).orElse(null);
+    }
+
+    private static Integer limit(ServerRequest requete) {
+        return requete.queryParam("limit").map(valeur -> entier(valeur, "limit")).orElse(null);
+    }
+
+    private static Integer entier(String valeur, String nom) {
+        try {
+            return Integer.valueOf(valeur);
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException(nom + " is not an integer: " + valeur);
+        }
+    }
+}
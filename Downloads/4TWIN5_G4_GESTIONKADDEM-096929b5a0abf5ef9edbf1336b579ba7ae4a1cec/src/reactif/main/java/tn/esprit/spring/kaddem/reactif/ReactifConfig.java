@@ -0,0 +1,69 @@
+package tn.esprit.spring.kaddem.reactif;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import java.time.Duration;
+
+/**
+ * Opt-in ({@code kaddem.reactif.enabled=true}) non-blocking read API: the read endpoints of the servlet
+ * controllers served again by Netty on {@code kaddem.reactif.port}, over an R2DBC pool on the same
+ * database. The writes stay on the servlet endpoints.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kaddem.reactif.enabled", havingValue = "true")
+public class ReactifConfig {
+    @Value("${kaddem.reactif.port:8091}")
+    int port;
+    @Value("${kaddem.reactif.url}")
+    String url;
+    @Value("${kaddem.reactif.username:${spring.datasource.username:}}")
+    String username;
+    @Value("${kaddem.reactif.password:${spring.datasource.password:}}")
+    String password;
+    @Value("${kaddem.reactif.pool.taille-max:20}")
+    int tailleMaxPool;
+    @Value("${kaddem.reactif.pool.attente:30s}")
+    Duration attente;
+    @Value("${server.servlet.context-path:}")
+    String contextPath;
+
+    @Bean(destroyMethod = "close")
+    public LecturesReactives lecturesReactives() {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username).option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .initialSize(1)
+                .maxSize(tailleMaxPool)
+                .maxAcquireTime(attente)
+                .build());
+        return new LecturesReactives(pool);
+    }
+
+    @Bean
+    public ServeurReactif serveurReactif(LecturesReactives lecturesReactives, ObjectMapper objectMapper) {
+        // the application's ObjectMapper: dates and enums are written as by the servlet endpoints
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        return new ServeurReactif(new NettyReactiveWebServerFactory(port),
+                RouterFunctions.toHttpHandler(new LecturesReactivesHandler(lecturesReactives).routes(contextPath), strategies));
+    }
+}
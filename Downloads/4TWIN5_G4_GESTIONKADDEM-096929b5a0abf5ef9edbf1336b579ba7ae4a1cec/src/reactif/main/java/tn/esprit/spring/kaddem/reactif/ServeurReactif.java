@@ -0,0 +1,51 @@
+package tn.esprit.spring.kaddem.reactif;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+
+/**
+ * The Netty server of the reactive read API, next to the servlet one: started and stopped with the
+ * application context, on {@code kaddem.reactif.port}.
+ */
+@Slf4j
+public class ServeurReactif implements SmartLifecycle {
+    private final NettyReactiveWebServerFactory fabrique;
+    private final HttpHandler httpHandler;
+    private volatile WebServer serveur;
+
+    ServeurReactif(NettyReactiveWebServerFactory fabrique, HttpHandler httpHandler) {
+        this.fabrique = fabrique;
+        this.httpHandler = httpHandler;
+    }
+
+    @Override
+    public void start() {
+        WebServer webServer = fabrique.getWebServer(httpHandler);
+        webServer.start();
+        serveur = webServer;
+        log.info("Reactive read API on port {}", webServer.getPort());
+    }
+
+    @Override
+    public void stop() {
+        WebServer webServer = serveur;
+        serveur = null;
+        if (webServer != null) {
+            webServer.stop();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return serveur != null;
+    }
+
+    /** The port the server listens on, -1 when it is stopped. */
+    public int getPort() {
+        WebServer webServer = serveur;
+        return webServer == null ? -1 : webServer.getPort();
+    }
+}
@@ -0,0 +1,115 @@
+package tn.esprit.spring.kaddem.reactif;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.KaddemApplication;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.repositories.DepartementRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Requests per core of getEtudiantsByDepartement under {@code kaddem.benchmark.connexions} concurrent
+ * connections (10000), servlet endpoint against reactive endpoint, with an in-memory H2 as the stand-in
+ * for MySQL (JDBC and R2DBC on the same database). Client and servers share the machine: the figures
+ * compare the two stacks, they do not size a production node. Not part of the regular build:
+ * {@code mvn -P reactif test -Dtest=LecturesReactivesChargeTest -Dkaddem.benchmark=true}, with {@code ulimit -n}
+ * above twice the connections.
+ */
+@EnabledIfSystemProperty(named = "kaddem.benchmark", matches = "true")
+@Slf4j
+public class LecturesReactivesChargeTest {
+    private static final int NB_ETUDIANTS = 20;
+
+    @Test
+    public void benchmarkServletContreReactif() throws Exception {
+        int connexions = Integer.getInteger("kaddem.benchmark.connexions", 10000);
+        int requetes = Integer.getInteger("kaddem.benchmark.requetes", 100000);
+        String base = "jdbc:h2:mem:kaddem-charge-reactif;DB_CLOSE_DELAY=-1";
+
+        // command-line arguments: SpringApplicationBuilder.properties() are defaults, application.properties wins over them
+        try (ConfigurableApplicationContext contexte = new SpringApplicationBuilder(KaddemApplication.class)
+                .run("--server.port=0", "--management.server.port=-1", "--spring.jpa.show-sql=false",
+                        "--kaddem.expiry.enabled=false", "--kaddem.compteurs.recalcul-au-demarrage=false",
+                        "--spring.datasource.url=" + base + ";MODE=MySQL", "--spring.datasource.username=sa", "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--kaddem.reactif.enabled=true", "--kaddem.reactif.port=0",
+                        "--kaddem.reactif.url=r2dbc:h2:mem:///kaddem-charge-reactif;DB_CLOSE_DELAY=-1",
+                        // every connection accepted by Tomcat, so that both stacks see the same load
+                        "--server.tomcat.max-connections=" + (connexions + 100), "--server.tomcat.accept-count=" + connexions)) {
+            Integer idDepartement = seed(contexte);
+            String chemin = "/kaddem/etudiant/getEtudiantsByDepartement/" + idDepartement;
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(60)).build();
+            int coeurs = Runtime.getRuntime().availableProcessors();
+
+            URI servlet = URI.create("http://localhost:" + contexte.getEnvironment().getProperty("local.server.port") + chemin);
+            URI reactif = URI.create("http://localhost:" + contexte.getBean(ServeurReactif.class).getPort() + chemin);
+            for (URI uri : new URI[]{servlet, reactif}) {
+                // warm-up, which also opens the connections
+                lancer(client, uri, connexions, connexions);
+                long debut = System.nanoTime();
+                long[] latences = lancer(client, uri, connexions, requetes);
+                double parSeconde = requetes / ((System.nanoTime() - debut) / 1e9);
+                Arrays.sort(latences);
+                log.info("{}, {} connections: {} requests/s, {} per core ({} cores), p50 {} ms, p99 {} ms",
+                        uri == servlet ? "servlet" : "reactive", connexions, Math.round(parSeconde), Math.round(parSeconde / coeurs), coeurs,
+                        latences[requetes / 2], latences[requetes * 99 / 100]);
+            }
+        }
+    }
+
+    private static Integer seed(ConfigurableApplicationContext contexte) {
+        DepartementRepository departementRepository = contexte.getBean(DepartementRepository.class);
+        EtudiantRepository etudiantRepository = contexte.getBean(EtudiantRepository.class);
+        return contexte.getBean(TransactionTemplate.class).execute(status -> {
+            Departement departement = departementRepository.save(new Departement("Charge"));
+            for (int i = 0; i < NB_ETUDIANTS; i++) {
+                Etudiant etudiant = new Etudiant("Nom" + i, "Prenom" + i);
+                etudiant.setDepartement(departement);
+                etudiantRepository.save(etudiant);
+            }
+            return departement.getIdDepart();
+        });
+    }
+
+    /** Latencies in ms of {@code requetes} calls, at most {@code connexions} in flight. */
+    private static long[] lancer(HttpClient client, URI uri, int connexions, int requetes) throws Exception {
+        Semaphore enVol = new Semaphore(connexions);
+        long[] latences = new long[requetes];
+        AtomicInteger echecs = new AtomicInteger();
+        CompletableFuture<?>[] reponses = new CompletableFuture<?>[requetes];
+        for (int i = 0; i < requetes; i++) {
+            enVol.acquire();
+            int numero = i;
+            long envoi = System.nanoTime();
+            reponses[i] = client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((reponse, erreur) -> {
+                        latences[numero] = (System.nanoTime() - envoi) / 1_000_000;
+                        if (erreur != null || reponse.statusCode() != 200) {
+                            echecs.incrementAndGet();
+                        }
+                        enVol.release();
+                    });
+        }
+        CompletableFuture.allOf(reponses).exceptionally(erreur -> null).join();
+        assertEquals(0, echecs.get(), "failed requests");
+        return latences;
+    }
+}
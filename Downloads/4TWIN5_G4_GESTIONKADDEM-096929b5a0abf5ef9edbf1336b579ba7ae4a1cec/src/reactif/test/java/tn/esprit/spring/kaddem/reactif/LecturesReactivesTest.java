@@ -0,0 +1,137 @@
+package tn.esprit.spring.kaddem.reactif;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.DepartementRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The reactive read API answers with the JSON of the servlet endpoints, and streams the lists as
+ * NDJSON on request. An in-memory H2 stands in for MySQL, behind JDBC and R2DBC alike.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.show-sql=false", "kaddem.expiry.enabled=false", "management.server.port=0",
+                "kaddem.compteurs.recalcul-au-demarrage=false",
+                "spring.datasource.url=jdbc:h2:mem:kaddem-reactif;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "spring.datasource.username=sa", "spring.datasource.password=",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "kaddem.reactif.enabled=true", "kaddem.reactif.port=0",
+                "kaddem.reactif.url=r2dbc:h2:mem:///kaddem-reactif;DB_CLOSE_DELAY=-1"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class LecturesReactivesTest {
+    private static final int NB_ETUDIANTS = 12;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private ServeurReactif serveurReactif;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ContratRepository contratRepository;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private DepartementRepository departementRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final RestTemplate reactif = new RestTemplate();
+    private Departement departement;
+    private final List<Contrat> contrats = new ArrayList<>();
+
+    @BeforeAll
+    public void seed() {
+        transactionTemplate.executeWithoutResult(status -> {
+            departement = departementRepository.save(new Departement("Reactif" + System.nanoTime()));
+            for (int i = 0; i < NB_ETUDIANTS; i++) {
+                Etudiant etudiant = new Etudiant("Reactif" + System.nanoTime(), "E" + i, i % 2 == 0 ? Option.GAMIX : null);
+                etudiant.setDepartement(departement);
+                etudiant = etudiantRepository.save(etudiant);
+                Contrat contrat = new Contrat(date(LocalDate.now().minusMonths(i)), date(LocalDate.now().plusMonths(12 - i)),
+                        Specialite.values()[i % Specialite.values().length], i % 3 == 0, 100 * i);
+                // one contract in four without a student
+                if (i % 4 != 0) {
+                    contrat.setEtudiant(etudiant);
+                }
+                contrats.add(contratRepository.save(contrat));
+            }
+        });
+    }
+
+    @Test
+    public void testMemeJsonQueLesServlets() throws Exception {
+        Integer premier = contrats.get(0).getIdContrat();
+        assertMemeJson("/contrat/retrieve-contrats-page?after=" + (premier - 1) + "&limit=" + NB_ETUDIANTS);
+        assertMemeJson("/contrat/retrieve-contrats-page?after=" + (premier - 1) + "&limit=" + (NB_ETUDIANTS / 2));
+        assertMemeJson("/contrat/retrieve-contrat/" + contrats.get(1).getIdContrat());
+        assertMemeJson("/etudiant/getEtudiantsByDepartement/" + departement.getIdDepart());
+        assertMemeJson("/etudiant/retrieve-etudiant/" + contrats.get(1).getEtudiant().getIdEtudiant());
+        assertMemeJson("/departement/retrieve-departement/" + departement.getIdDepart());
+    }
+
+    @Test
+    public void testListeEnNdjson() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        ResponseEntity<String> reponse = reactif.exchange(urlReactive("/contrat/retrieve-all-contrats"), HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+
+        assertTrue(MediaType.APPLICATION_NDJSON.isCompatibleWith(reponse.getHeaders().getContentType()));
+        String[] lignes = reponse.getBody().split("\n");
+        assertTrue(lignes.length >= NB_ETUDIANTS);
+        List<Integer> ids = new ArrayList<>();
+        for (String ligne : lignes) {
+            ids.add(objectMapper.readTree(ligne).get("idContrat").asInt());
+        }
+        assertTrue(ids.containsAll(contrats.stream().map(Contrat::getIdContrat).toList()));
+    }
+
+    @Test
+    public void testIdInvalide() {
+        ResponseEntity<String> reponse = new TestRestTemplate().getForEntity(urlReactive("/contrat/retrieve-contrat/abc"), String.class);
+        assertEquals(400, reponse.getStatusCodeValue());
+    }
+
+    private void assertMemeJson(String chemin) throws Exception {
+        JsonNode servlet = objectMapper.readTree(restTemplate.getForObject(chemin, String.class));
+        JsonNode reactive = objectMapper.readTree(reactif.getForObject(urlReactive(chemin), String.class));
+        assertEquals(servlet, reactive, chemin);
+    }
+
+    private String urlReactive(String chemin) {
+        return "http://localhost:" + serveurReactif.getPort() + "/kaddem" + chemin;
+    }
+
+    private static Date date(LocalDate jour) {
+        return Date.from(jour.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,64 @@
+package tn.esprit.spring.kaddem;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The Prometheus scrape on the management port carries the endpoint and repository latencies with
+ * their percentiles, the Hibernate statistics and the connection pool gauges.
+ */
+// @SpringBootTest turns the metrics export off by default
+@AutoConfigureMetrics
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.show-sql=false", "kaddem.expiry.enabled=false", "management.server.port=0"})
+public class MetricsEndpointTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    public void testPrometheusScrape() {
+        for (int i = 0; i < 5; i++) {
+            restTemplate.getForObject("/contrat/retrieve-contrat/" + (-1 - i), String.class);
+            restTemplate.getForObject("/universite/retrieve-all-universites", String.class);
+        }
+
+        String scrape = new RestTemplate().getForObject("http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+        List<String> lignes = Arrays.stream(scrape.split("\n")).filter(ligne -> !ligne.startsWith("#")).collect(Collectors.toList());
+
+        String uri = "uri=\"/contrat/retrieve-contrat/{contrat-id}\"";
+        assertPresent(lignes, "http_server_requests_seconds{", uri, "quantile=\"0.5\"");
+        assertPresent(lignes, "http_server_requests_seconds{", uri, "quantile=\"0.95\"");
+        assertPresent(lignes, "http_server_requests_seconds{", uri, "quantile=\"0.99\"");
+        assertPresent(lignes, "http_server_requests_seconds_bucket{", uri);
+
+        String methode = "method=\"findAll\"";
+        assertPresent(lignes, "spring_data_repository_invocations_seconds{", "repository=\"UniversiteRepository\"", methode, "quantile=\"0.99\"");
+        assertPresent(lignes, "spring_data_repository_invocations_seconds_bucket{", "repository=\"UniversiteRepository\"", methode);
+
+        assertPresent(lignes, "hibernate_query_executions_total{");
+        assertPresent(lignes, "hibernate_entities_loads_total{");
+        assertPresent(lignes, "hibernate_second_level_cache_requests_total{", "result=\"hit\"");
+        assertPresent(lignes, "hikaricp_connections_active{");
+        assertPresent(lignes, "hikaricp_connections_pending{");
+    }
+
+    private static void assertPresent(List<String> lignes, String prefixe, String... etiquettes) {
+        assertFalse(lignes.stream().noneMatch(ligne -> ligne.startsWith(prefixe) && Arrays.stream(etiquettes).allMatch(ligne::contains)),
+                prefixe + " " + String.join(", ", etiquettes) + " not in the scrape");
+    }
+}
@@ -0,0 +1,108 @@
+package tn.esprit.spring.kaddem;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Load comparison of the two execution modes: {@code kaddem.benchmark.clients} concurrent clients
+ * (1000, five times the 200 Tomcat threads) call an endpoint that blocks {@code kaddem.benchmark.latence-ms}
+ * (50 ms, a slow downstream call) before a query. Prints the throughput and the latency percentiles of
+ * each mode. Not part of the regular build:
+ * {@code mvn test -Dtest=ThreadsVirtuelsChargeTest -Dkaddem.benchmark=true}, on a Java 21 runtime for the
+ * virtual-thread mode.
+ */
+@EnabledIfSystemProperty(named = "kaddem.benchmark", matches = "true")
+@Slf4j
+public class ThreadsVirtuelsChargeTest {
+
+    @Test
+    public void benchmarkThreadsPlateformeContreVirtuels() throws Exception {
+        int clients = Integer.getInteger("kaddem.benchmark.clients", 1000);
+        int requetes = Integer.getInteger("kaddem.benchmark.requetes", 20000);
+        int latenceMs = Integer.getInteger("kaddem.benchmark.latence-ms", 50);
+
+        mesurer(false, clients, requetes, latenceMs);
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21, this is " + Runtime.version());
+        mesurer(true, clients, requetes, latenceMs);
+    }
+
+    private static void mesurer(boolean virtuels, int clients, int requetes, int latenceMs) throws Exception {
+        // command-line arguments: SpringApplicationBuilder.properties() are defaults, application.properties wins over them
+        try (ConfigurableApplicationContext contexte = new SpringApplicationBuilder(KaddemApplication.class, ChargeController.class)
+                .run("--server.port=0", "--management.server.port=-1", "--spring.jpa.show-sql=false",
+                        "--kaddem.expiry.enabled=false", "--kaddem.compteurs.recalcul-au-demarrage=false",
+                        "--server.tomcat.threads.max=200", "--kaddem.threads.virtuels=" + virtuels)) {
+            URI uri = URI.create("http://localhost:" + contexte.getEnvironment().getProperty("local.server.port")
+                    + contexte.getEnvironment().getProperty("server.servlet.context-path", "") + "/charge/" + latenceMs);
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(30)).build();
+            // warm-up
+            lancer(client, uri, clients, clients);
+
+            long debut = System.nanoTime();
+            long[] latences = lancer(client, uri, clients, requetes);
+            double dureeS = (System.nanoTime() - debut) / 1e9;
+            Arrays.sort(latences);
+            log.info("{} threads, {} clients, {} ms blocking: {} requests/s, p50 {} ms, p99 {} ms, max {} ms",
+                    virtuels ? "virtual" : "platform", clients, latenceMs, Math.round(requetes / dureeS),
+                    latences[requetes / 2], latences[requetes * 99 / 100], latences[requetes - 1]);
+        }
+    }
+
+    /** Latencies in ms of {@code requetes} calls, at most {@code clients} in flight. */
+    private static long[] lancer(HttpClient client, URI uri, int clients, int requetes) throws Exception {
+        Semaphore enVol = new Semaphore(clients);
+        long[] latences = new long[requetes];
+        AtomicInteger echecs = new AtomicInteger();
+        CompletableFuture<?>[] reponses = new CompletableFuture<?>[requetes];
+        for (int i = 0; i < requetes; i++) {
+            enVol.acquire();
+            int numero = i;
+            long envoi = System.nanoTime();
+            reponses[i] = client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((reponse, erreur) -> {
+                        latences[numero] = (System.nanoTime() - envoi) / 1_000_000;
+                        if (erreur != null || reponse.statusCode() != 200) {
+                            echecs.incrementAndGet();
+                        }
+                        enVol.release();
+                    });
+        }
+        CompletableFuture.allOf(reponses).exceptionally(erreur -> null).join();
+        assertEquals(0, echecs.get(), "failed requests");
+        return latences;
+    }
+
+    @RestController
+    public static class ChargeController {
+        @Autowired
+        ContratRepository contratRepository;
+
+        // a blocking call elsewhere (another service, a file), then the database
+        @GetMapping("/charge/{latence-ms}")
+        public long charge(@PathVariable("latence-ms") long latenceMs) throws InterruptedException {
+            Thread.sleep(latenceMs);
+            return contratRepository.count();
+        }
+    }
+}
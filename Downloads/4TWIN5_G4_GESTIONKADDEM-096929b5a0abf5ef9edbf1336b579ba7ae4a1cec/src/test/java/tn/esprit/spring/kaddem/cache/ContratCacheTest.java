@@ -0,0 +1,108 @@
+package tn.esprit.spring.kaddem.cache;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import tn.esprit.spring.kaddem.config.InstructionsSqlExtension;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.services.IContratService;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tn.esprit.spring.kaddem.support.DonneesTest.date;
+import static tn.esprit.spring.kaddem.support.DonneesTest.nom;
+
+/**
+ * The read-through cache of {@code retrieveContrat}: a second read runs no statement, and the writes
+ * of the contract service drop the entry once they have committed. No transaction around the tests:
+ * the listeners run after commit.
+ */
+@SpringBootTest
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ContratCacheTest {
+    @RegisterExtension
+    InstructionsSqlExtension sql = new InstructionsSqlExtension();
+
+    @Autowired
+    private IContratService contratService;
+    @Autowired
+    private ContratRepository contratRepository;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private DonneesTest donnees;
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testLecture() {
+        Integer idContrat = creerContrat(false);
+        ContratVue contrat = sql.auPlus(1, () -> contratService.retrieveContrat(idContrat));
+        assertEquals(idContrat, contrat.idContrat());
+        assertEquals(contrat, sql.auPlus(0, () -> contratService.retrieveContrat(idContrat)));
+
+        // unknown ids are cached too
+        assertNull(contratService.retrieveContrat(-1));
+        assertNull(sql.auPlus(0, () -> contratService.retrieveContrat(-1)));
+    }
+
+    @Test
+    public void testMiseAJour() {
+        Integer idContrat = creerContrat(false);
+        assertEquals(500, contratService.retrieveContrat(idContrat).montantContrat());
+
+        Contrat contrat = contratRepository.findById(idContrat).get();
+        contrat.setMontantContrat(750);
+        contratService.updateContrat(contrat);
+
+        assertEquals(750, sql.auPlus(1, () -> contratService.retrieveContrat(idContrat)).montantContrat());
+    }
+
+    @Test
+    public void testRenouvellement() {
+        Integer idContrat = creerContrat(true);
+        assertFalse(contratService.retrieveContrat(idContrat).archive());
+
+        Contrat renouvele = contratService.renewContract(idContrat, 12);
+
+        assertTrue(sql.auPlus(1, () -> contratService.retrieveContrat(idContrat)).archive());
+        assertFalse(contratService.retrieveContrat(renouvele.getIdContrat()).archive());
+    }
+
+    @Test
+    public void testSuppression() {
+        Integer idContrat = creerContrat(false);
+        assertNotNull(contratService.retrieveContrat(idContrat));
+
+        contratService.removeContrat(idContrat);
+
+        assertNull(sql.auPlus(1, () -> contratService.retrieveContrat(idContrat)));
+    }
+
+    /** A contract of 500 ending in 10 days, renewable when it has a student. */
+    private Integer creerContrat(boolean avecEtudiant) {
+        return donnees.creer(() -> {
+            Contrat contrat = new Contrat(date(LocalDate.now().minusMonths(11)), date(LocalDate.now().plusDays(10)),
+                    Specialite.IA, false, 500);
+            if (avecEtudiant) {
+                contrat.setEtudiant(etudiantRepository.save(new Etudiant(nom("Cache"), "E")));
+            }
+            return contratRepository.save(contrat).getIdContrat();
+        });
+    }
+}
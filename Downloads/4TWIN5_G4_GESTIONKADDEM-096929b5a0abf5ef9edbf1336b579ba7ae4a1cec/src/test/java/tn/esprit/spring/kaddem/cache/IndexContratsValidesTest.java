@@ -0,0 +1,123 @@
+package tn.esprit.spring.kaddem.cache;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.services.IContratService;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The in-memory count of "contrats valides" must give the same answers as the query, on any data
+ * (missing dates, start after end) and after the writes of the contract service.
+ */
+@SpringBootTest(properties = "kaddem.index-contrats-valides.seuil-reconstruction=8")
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class IndexContratsValidesTest {
+
+    @Autowired
+    private IndexContratsValides index;
+
+    @Autowired
+    private IContratService contratService;
+
+    @Autowired
+    private ContratRepository contratRepository;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testSameCountsAsTheQuery() {
+        donnees.creer(() -> {
+            List<Contrat> contrats = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                contrats.add(contratAleatoire());
+            }
+            contratRepository.saveAll(contrats);
+        });
+        // written behind the service's back: start from the table
+        index.invalider();
+        verifier();
+
+        List<Contrat> ajoutes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ajoutes.add(contratService.addContrat(contratAleatoire()));
+        }
+        // far from the known dates: outside the trees' domain
+        Contrat lointain = contratAleatoire();
+        lointain.setArchive(true);
+        lointain.setDateDebutContrat(jours(new Date(), 365 * 80));
+        lointain.setDateFinContrat(jours(new Date(), 365 * 81));
+        ajoutes.add(contratService.addContrat(lointain));
+        verifier();
+
+        for (int i = 0; i < ajoutes.size(); i += 2) {
+            Contrat contrat = contratRepository.findById(ajoutes.get(i).getIdContrat()).get();
+            contrat.setArchive(!Boolean.TRUE.equals(contrat.getArchive()));
+            contrat.setDateFinContrat(jours(contrat.getDateFinContrat() == null ? new Date() : contrat.getDateFinContrat(), 40));
+            contratService.updateContrat(contrat);
+        }
+        for (int i = 1; i < ajoutes.size(); i += 4) {
+            contratService.removeContrat(ajoutes.get(i).getIdContrat());
+        }
+        verifier();
+
+        contratService.archiverContratsExpires();
+        verifier();
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    private void verifier() {
+        Date aujourdhui = new Date();
+        for (int i = 0; i < 300; i++) {
+            Date debut = heureAleatoire(jours(aujourdhui, random.nextInt(2400) - 1200));
+            Date fin = heureAleatoire(jours(debut, random.nextInt(500) - 20));
+            assertEquals(contratRepository.getnbContratsValides(debut, fin).intValue(), index.compter(debut, fin),
+                    "contrats valides between " + debut + " and " + fin);
+        }
+    }
+
+    private Contrat contratAleatoire() {
+        Date debut = random.nextInt(30) == 0 ? null : jours(new Date(), random.nextInt(2000) - 1000);
+        Date fin = random.nextInt(30) == 0 ? null : jours(debut == null ? new Date() : debut, random.nextInt(420) - 20);
+        Boolean archive = random.nextInt(20) == 0 ? null : random.nextBoolean();
+        return new Contrat(debut, fin, Specialite.IA, archive, 1000);
+    }
+
+    /** Midnight half of the time, any time of the day otherwise. */
+    private Date heureAleatoire(Date date) {
+        return random.nextBoolean() ? date : new Date(date.getTime() + random.nextInt(24 * 3600) * 1000L);
+    }
+
+    private static Date jours(Date date, int jours) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, jours);
+        return calendar.getTime();
+    }
+}
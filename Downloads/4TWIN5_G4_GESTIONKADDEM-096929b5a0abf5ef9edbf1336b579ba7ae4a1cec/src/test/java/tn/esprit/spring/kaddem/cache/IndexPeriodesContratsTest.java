@@ -0,0 +1,155 @@
+package tn.esprit.spring.kaddem.cache;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.services.IContratService;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The contracts active on a day or overlapping a range, read from the index, must be the ones a scan
+ * of the table finds, with every filter and after the writes of the contract service.
+ */
+@SpringBootTest(properties = "kaddem.index-periodes-contrats.seuil-reconstruction=8")
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class IndexPeriodesContratsTest {
+
+    @Autowired
+    private IndexPeriodesContrats index;
+
+    @Autowired
+    private IContratService contratService;
+
+    @Autowired
+    private ContratRepository contratRepository;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void testSameContratsAsAScan() {
+        List<Etudiant> etudiants = new ArrayList<>();
+        donnees.creer(() -> {
+            for (int i = 0; i < 10; i++) {
+                etudiants.add(etudiantRepository.save(new Etudiant("Periodes", "E" + i)));
+            }
+            List<Contrat> contrats = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                Contrat contrat = contratAleatoire();
+                if (random.nextBoolean()) {
+                    contrat.setEtudiant(etudiants.get(random.nextInt(etudiants.size())));
+                }
+                contrats.add(contrat);
+            }
+            contratRepository.saveAll(contrats);
+        });
+        // written behind the service's back: start from the table
+        index.invalider();
+        verifier(etudiants);
+
+        List<Contrat> ajoutes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ajoutes.add(contratService.addContrat(contratAleatoire()));
+        }
+        for (int i = 0; i < ajoutes.size(); i += 3) {
+            Etudiant etudiant = etudiants.get(random.nextInt(etudiants.size()));
+            contratService.affectContratToEtudiant(ajoutes.get(i).getIdContrat(), etudiant.getNomE(), etudiant.getPrenomE());
+        }
+        for (int i = 1; i < ajoutes.size(); i += 3) {
+            Contrat contrat = contratRepository.findById(ajoutes.get(i).getIdContrat()).get();
+            contrat.setDateDebutContrat(jours(new Date(), random.nextInt(600) - 300));
+            contrat.setSpecialite(Specialite.CLOUD);
+            contratService.updateContrat(contrat);
+        }
+        verifier(etudiants);
+
+        for (int i = 2; i < ajoutes.size(); i += 3) {
+            contratService.removeContrat(ajoutes.get(i).getIdContrat());
+        }
+        verifier(etudiants);
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    private void verifier(List<Etudiant> etudiants) {
+        List<Contrat> tous = transactionTemplate.execute(status -> contratRepository.findAll());
+        Date aujourdhui = new Date();
+        for (int i = 0; i < 200; i++) {
+            Date debut = jours(aujourdhui, random.nextInt(1600) - 800);
+            Date fin = random.nextInt(4) == 0 ? debut : jours(debut, random.nextInt(200));
+            Specialite specialite = random.nextBoolean() ? null : Specialite.values()[random.nextInt(Specialite.values().length)];
+            Integer idEtudiant = random.nextInt(3) == 0 ? etudiants.get(random.nextInt(etudiants.size())).getIdEtudiant() : null;
+
+            List<Integer> attendus = tous.stream()
+                    .filter(contrat -> chevauche(contrat, jour(debut), jour(fin)))
+                    .filter(contrat -> specialite == null || contrat.getSpecialite() == specialite)
+                    .filter(contrat -> idEtudiant == null
+                            || (contrat.getEtudiant() != null && idEtudiant.equals(contrat.getEtudiant().getIdEtudiant())))
+                    .sorted(Comparator.comparing((Contrat contrat) -> jour(contrat.getDateDebutContrat())).thenComparing(Contrat::getIdContrat))
+                    .map(Contrat::getIdContrat)
+                    .collect(Collectors.toList());
+            String requete = debut + " .. " + fin + ", " + specialite + ", etudiant " + idEtudiant;
+            assertEquals(attendus, index.chevauchant(debut, fin, specialite, idEtudiant), requete);
+            if (debut.equals(fin)) {
+                assertEquals(attendus, index.actifsLe(debut, specialite, idEtudiant), requete);
+            }
+        }
+    }
+
+    private static boolean chevauche(Contrat contrat, LocalDate de, LocalDate a) {
+        if (contrat.getDateDebutContrat() == null || contrat.getDateFinContrat() == null) {
+            return false;
+        }
+        LocalDate debut = jour(contrat.getDateDebutContrat());
+        LocalDate fin = jour(contrat.getDateFinContrat());
+        return !debut.isAfter(fin) && !debut.isAfter(a) && !fin.isBefore(de);
+    }
+
+    private Contrat contratAleatoire() {
+        Date debut = random.nextInt(30) == 0 ? null : jours(new Date(), random.nextInt(1200) - 600);
+        Date fin = random.nextInt(30) == 0 ? null : jours(debut == null ? new Date() : debut, random.nextInt(420) - 20);
+        Specialite specialite = random.nextInt(20) == 0 ? null : Specialite.values()[random.nextInt(Specialite.values().length)];
+        return new Contrat(debut, fin, specialite, random.nextBoolean(), 1000);
+    }
+
+    private static LocalDate jour(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static Date jours(Date date, int jours) {
+        return Date.from(jour(date).plusDays(jours).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,24 @@
+package tn.esprit.spring.kaddem.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompteurInstructionsSqlTest {
+
+    @Test
+    public void testFormeRepliesListesEtLitteraux() {
+        assertEquals("select * from contrat c where c.id in (...) and c.specialite=? and c.montant>?",
+                CompteurInstructionsSql.forme("select *\n  from contrat c where c.id in ( ?, ?,? ) and c.specialite='l''IA' and c.montant>100"));
+    }
+
+    @Test
+    public void testFormeGrandeListeIn() {
+        // a lookup by ids of a whole export: the list must fold without overflowing the stack
+        String liste = String.join(", ", Collections.nCopies(50_000, "?"));
+        assertEquals("select * from contrat where id_contrat in (...)",
+                CompteurInstructionsSql.forme("select * from contrat where id_contrat in (" + liste + ")"));
+    }
+}
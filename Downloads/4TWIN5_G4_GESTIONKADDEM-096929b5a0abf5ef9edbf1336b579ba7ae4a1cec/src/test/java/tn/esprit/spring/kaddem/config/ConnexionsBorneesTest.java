@@ -0,0 +1,69 @@
+package tn.esprit.spring.kaddem.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConnexionsBorneesTest {
+
+    @Test
+    public void testPermisRendusALaFermeture() throws Exception {
+        DataSource pool = mock(DataSource.class);
+        Connection connexion = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(connexion);
+        ConnexionsBornees connexions = new ConnexionsBornees(pool, 2, Duration.ofMillis(50));
+
+        Connection premiere = connexions.getConnection();
+        Connection seconde = connexions.getConnection();
+        assertEquals(0, connexions.disponibles());
+        assertThrows(SQLTransientConnectionException.class, connexions::getConnection);
+        verify(pool, times(2)).getConnection();
+
+        premiere.close();
+        premiere.close();
+        assertEquals(1, connexions.disponibles());
+        seconde.close();
+        assertEquals(2, connexions.disponibles());
+        verify(connexion, times(3)).close();
+    }
+
+    @Test
+    public void testPermisRenduSiLePoolEchoue() throws Exception {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        ConnexionsBornees connexions = new ConnexionsBornees(pool, 1, Duration.ofMillis(50));
+
+        assertThrows(SQLException.class, connexions::getConnection);
+        assertEquals(1, connexions.disponibles());
+    }
+
+    @Test
+    public void testAttenteDUnPermis() throws Exception {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        ConnexionsBornees connexions = new ConnexionsBornees(pool, 1, Duration.ofSeconds(10));
+
+        Connection tenue = connexions.getConnection();
+        Thread liberation = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                tenue.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        liberation.start();
+        try (Connection suivante = connexions.getConnection()) {
+            assertNotSame(tenue, suivante);
+        }
+        liberation.join();
+        assertEquals(1, connexions.disponibles());
+    }
+}
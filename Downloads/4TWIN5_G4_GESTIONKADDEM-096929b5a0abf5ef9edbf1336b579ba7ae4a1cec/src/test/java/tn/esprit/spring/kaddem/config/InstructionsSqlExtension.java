@@ -0,0 +1,53 @@
+package tn.esprit.spring.kaddem.config;
+
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Budgets of SQL statements for service calls in {@code @SpringBootTest} classes, so that an N+1
+ * regression fails the build rather than showing up in production:
+ * <pre>
+ * &#64;RegisterExtension
+ * InstructionsSqlExtension sql = new InstructionsSqlExtension();
+ * ...
+ * sql.auPlus(2, () -&gt; contratService.retrieveContratsPage(null, 50));
+ * </pre>
+ * Seed more rows than the budget: a statement per row then cannot fit in it.
+ */
+public class InstructionsSqlExtension implements BeforeEachCallback {
+    private CompteurInstructionsSql compteur;
+    private CompteurInstructionsSql.Comptage dernier;
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        compteur = SpringExtension.getApplicationContext(context).getBean(CompteurInstructionsSql.class);
+    }
+
+    /** Runs {@code appel} and fails if it ran more than {@code max} statements; returns its result. */
+    public <T> T auPlus(int max, Supplier<T> appel) {
+        T resultat;
+        try (CompteurInstructionsSql.Comptage comptage = compteur.demarrer()) {
+            resultat = appel.get();
+            dernier = comptage;
+        }
+        assertTrue(dernier.total() <= max, dernier.total() + " SQL statements, at most " + max + " expected: " + dernier.resume());
+        return resultat;
+    }
+
+    public void auPlus(int max, Runnable appel) {
+        auPlus(max, () -> {
+            appel.run();
+            return null;
+        });
+    }
+
+    /** The count of the last call, for finer checks. */
+    public CompteurInstructionsSql.Comptage dernier() {
+        return dernier;
+    }
+}
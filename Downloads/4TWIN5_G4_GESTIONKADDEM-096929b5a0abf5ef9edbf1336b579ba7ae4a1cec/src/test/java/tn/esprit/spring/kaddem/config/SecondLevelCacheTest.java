@@ -0,0 +1,78 @@
+package tn.esprit.spring.kaddem.config;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.Universite;
+import tn.esprit.spring.kaddem.repositories.DepartementRepository;
+import tn.esprit.spring.kaddem.repositories.UniversiteRepository;
+import tn.esprit.spring.kaddem.services.IUniversiteService;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tn.esprit.spring.kaddem.support.DonneesTest.nom;
+
+/**
+ * The second-level cache of the universities and their departments: a second read runs no statement,
+ * and the native INSERT of {@code UniversiteRepository.ajouterDepartement} evicts the cached departments
+ * of the universities, through its query spaces, but not the universities.
+ */
+@SpringBootTest
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SecondLevelCacheTest {
+    @RegisterExtension
+    InstructionsSqlExtension sql = new InstructionsSqlExtension();
+
+    @Autowired
+    private IUniversiteService universiteService;
+    @Autowired
+    private UniversiteRepository universiteRepository;
+    @Autowired
+    private DepartementRepository departementRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private DonneesTest donnees;
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testDepartementsUniversite() {
+        Integer idUniv = universiteRepository.save(new Universite(nom("Cache"))).getIdUniv();
+        Integer premier = departementRepository.save(new Departement(nom("Cache"))).getIdDepart();
+        Integer second = departementRepository.save(new Departement(nom("Cache"))).getIdDepart();
+        universiteService.assignUniversiteToDepartement(idUniv, premier);
+
+        assertEquals(Set.of(premier), departements(idUniv));
+        // the university, its departements collection and the departments, all from the cache
+        assertEquals(Set.of(premier), sql.auPlus(0, () -> departements(idUniv)));
+
+        universiteService.assignUniversiteToDepartement(idUniv, second);
+
+        // the collection is read again, its departments in the same select; the university stays cached
+        assertEquals(Set.of(premier, second), sql.auPlus(1, () -> departements(idUniv)));
+        List<String> selects = sql.dernier().resume();
+        assertTrue(selects.get(0).contains(Universite.TABLE_DEPARTEMENTS), selects.toString());
+        assertEquals(Set.of(premier, second), sql.auPlus(0, () -> departements(idUniv)));
+    }
+
+    private Set<Integer> departements(Integer idUniv) {
+        return transactionTemplate.execute(status -> universiteService.retrieveDepartementsByUniversite(idUniv)
+                .stream().map(Departement::getIdDepart).collect(Collectors.toSet()));
+    }
+}
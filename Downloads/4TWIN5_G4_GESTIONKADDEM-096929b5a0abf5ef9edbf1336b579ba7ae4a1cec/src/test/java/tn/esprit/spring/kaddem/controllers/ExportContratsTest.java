@@ -0,0 +1,133 @@
+package tn.esprit.spring.kaddem.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.DepartementRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tn.esprit.spring.kaddem.support.DonneesTest.date;
+
+/**
+ * The NDJSON export of the contracts: one JSON document per line, every contract of the filter in id
+ * order, written to the response as it is read rather than buffered.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "management.server.port=0")
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ExportContratsTest {
+    // more than the flush interval of the export and the fetch size of its cursor
+    private static final int NB_CONTRATS = 1200;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ContratRepository contratRepository;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private DepartementRepository departementRepository;
+    @Autowired
+    private DonneesTest donnees;
+
+    private final List<Integer> tous = new ArrayList<>();
+    private final List<Integer> ia = new ArrayList<>();
+
+    @BeforeAll
+    public void seed() {
+        donnees.creer(() -> {
+            Departement departement = departementRepository.save(new Departement("Export"));
+            Etudiant etudiant = null;
+            for (int i = 0; i < NB_CONTRATS; i++) {
+                if (i % 10 == 0) {
+                    etudiant = new Etudiant("Export", "E" + i);
+                    etudiant.setDepartement(departement);
+                    etudiant = etudiantRepository.save(etudiant);
+                }
+                Specialite specialite = i % 2 == 0 ? Specialite.IA : Specialite.CLOUD;
+                Contrat contrat = new Contrat(date(LocalDate.now().minusMonths(1)), date(LocalDate.now().plusMonths(6)),
+                        specialite, false, 100 + i);
+                // a contract in ten without a student
+                contrat.setEtudiant(i % 10 == 9 ? null : etudiant);
+                Integer idContrat = contratRepository.save(contrat).getIdContrat();
+                tous.add(idContrat);
+                if (specialite == Specialite.IA) {
+                    ia.add(idContrat);
+                }
+            }
+        });
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        ResponseEntity<String> reponse = restTemplate.getForEntity("/contrat/export", String.class);
+        assertEquals(200, reponse.getStatusCodeValue());
+        assertTrue(MediaType.parseMediaType("application/x-ndjson").isCompatibleWith(reponse.getHeaders().getContentType()),
+                String.valueOf(reponse.getHeaders().getContentType()));
+        // no length known up front: the body went out in chunks while the rows were read
+        assertEquals(-1, reponse.getHeaders().getContentLength());
+
+        List<JsonNode> lignes = lignes(reponse.getBody());
+        assertEquals(tous, ids(lignes));
+        JsonNode premiere = lignes.get(0);
+        assertEquals(100, premiere.get("montantContrat").asInt());
+        assertEquals("Export", premiere.get("etudiant").get("nomE").asText());
+        assertTrue(lignes.get(9).get("etudiant").isNull());
+    }
+
+    @Test
+    public void testExportFiltre() throws Exception {
+        ResponseEntity<String> reponse = restTemplate.getForEntity("/contrat/export?specialite=IA", String.class);
+        assertEquals(200, reponse.getStatusCodeValue());
+        assertEquals(ia, ids(lignes(reponse.getBody())));
+
+        reponse = restTemplate.getForEntity("/contrat/export?endDate=" + LocalDate.now().minusYears(1), String.class);
+        assertEquals(200, reponse.getStatusCodeValue());
+        assertNull(reponse.getBody());
+    }
+
+    /** The documents of an NDJSON body: each line one JSON object, the last one ended by a '\n' too. */
+    private List<JsonNode> lignes(String corps) throws Exception {
+        assertTrue(corps.endsWith("\n"));
+        List<JsonNode> lignes = new ArrayList<>();
+        for (String ligne : corps.split("\n")) {
+            JsonNode document = objectMapper.readTree(ligne);
+            assertTrue(document.isObject(), ligne);
+            lignes.add(document);
+        }
+        return lignes;
+    }
+
+    private static List<Integer> ids(List<JsonNode> lignes) {
+        return lignes.stream().map(ligne -> ligne.get("idContrat").asInt()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,140 @@
+package tn.esprit.spring.kaddem.controllers;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.services.IContratService;
+import tn.esprit.spring.kaddem.services.IEtudiantService;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tn.esprit.spring.kaddem.support.DonneesTest.date;
+
+/**
+ * Conditional GETs: a 304 without body while nothing changed, a new ETag after any write to the JSON,
+ * including the bulk UPDATEs that do not touch the versions.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "management.server.port=0")
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RequetesConditionnellesTest {
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private IContratService contratService;
+    @Autowired
+    private IEtudiantService etudiantService;
+    @Autowired
+    private ContratRepository contratRepository;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private DonneesTest donnees;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Etudiant etudiant;
+    private Contrat contrat;
+
+    @BeforeAll
+    public void seed() {
+        donnees.creer(() -> {
+            etudiant = etudiantRepository.save(new Etudiant("Conditionnel", "E"));
+            contrat = new Contrat(date(LocalDate.now().minusMonths(1)), date(LocalDate.now().plusMonths(6)), Specialite.IA, false, 500);
+            contrat.setEtudiant(etudiant);
+            contrat = contratRepository.save(contrat);
+        });
+        // written a minute ago: the timestamps may keep whole seconds only (MariaDB through Connector/J), and a
+        // write in the same second as the seed would then leave the ETag unchanged
+        donnees.creer(() -> {
+            Instant avant = Instant.now().minus(1, ChronoUnit.MINUTES);
+            entityManager.createQuery("UPDATE Etudiant e SET e.derniereModification = :avant").setParameter("avant", avant).executeUpdate();
+            entityManager.createQuery("UPDATE Contrat c SET c.derniereModification = :avant").setParameter("avant", avant).executeUpdate();
+        });
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testContrat() {
+        String chemin = "/contrat/retrieve-contrat/" + contrat.getIdContrat();
+        ResponseEntity<String> premiere = get(chemin, null);
+        assertEquals(200, premiere.getStatusCodeValue());
+        String etag = premiere.getHeaders().getETag();
+        assertNotNull(etag);
+        assertTrue(premiere.getHeaders().getLastModified() > 0);
+
+        ResponseEntity<String> inchangee = get(chemin, etag);
+        assertEquals(304, inchangee.getStatusCodeValue());
+        assertNull(inchangee.getBody());
+
+        // a counter UPDATE on the embedded student: no contract write, no version bump
+        etudiantService.recalculerCompteursContrats();
+        ResponseEntity<String> apres = get(chemin, etag);
+        assertEquals(200, apres.getStatusCodeValue());
+        assertNotEquals(etag, apres.getHeaders().getETag());
+        assertEquals(304, get(chemin, apres.getHeaders().getETag()).getStatusCodeValue());
+    }
+
+    @Test
+    public void testIfModifiedSince() {
+        String chemin = "/etudiant/retrieve-etudiant/" + etudiant.getIdEtudiant();
+        long derniereModification = get(chemin, null).getHeaders().getLastModified();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfModifiedSince(derniereModification);
+        assertEquals(304, restTemplate.exchange(chemin, HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCodeValue());
+        headers.setIfModifiedSince(derniereModification - 1000);
+        assertEquals(200, restTemplate.exchange(chemin, HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCodeValue());
+    }
+
+    @Test
+    public void testListe() {
+        String chemin = "/contrat/retrieve-all-contrats";
+        String etag = get(chemin, null).getHeaders().getETag();
+        assertEquals(304, get(chemin, etag).getStatusCodeValue());
+
+        Contrat autre = contratService.addContrat(new Contrat(date(LocalDate.now()), date(LocalDate.now().plusMonths(1)),
+                Specialite.CLOUD, false, 10));
+        String apresAjout = get(chemin, etag).getHeaders().getETag();
+        assertNotEquals(etag, apresAjout);
+
+        contratService.removeContrat(autre.getIdContrat());
+        ResponseEntity<String> apresSuppression = get(chemin, apresAjout);
+        assertEquals(200, apresSuppression.getStatusCodeValue());
+        assertNotEquals(apresAjout, apresSuppression.getHeaders().getETag());
+    }
+
+    private ResponseEntity<String> get(String chemin, String ifNoneMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+        return restTemplate.exchange(chemin, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
@@ -0,0 +1,96 @@
+package tn.esprit.spring.kaddem.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Insert throughput of saveAll, in chunks of one transaction each. Not part of the regular build:
+ * run with {@code mvn test -Dtest=InsertThroughputBenchmarkTest -Dkaddem.benchmark=true}
+ * (-Dkaddem.benchmark.lignes=... to change the volume), on the test schema unless spring.datasource.url says otherwise.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "kaddem.benchmark", matches = "true")
+@Slf4j
+public class InsertThroughputBenchmarkTest {
+    private static final int TAILLE_LOT = 1000;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private ContratRepository contratRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @Test
+    public void benchmarkInsertEtudiantsEtContrats() {
+        int nbLignes = Integer.getInteger("kaddem.benchmark.lignes", 20000);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // warm-up
+        inserer(TAILLE_LOT);
+
+        statistics.clear();
+        long debut = System.nanoTime();
+        inserer(nbLignes);
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+
+        log.info("{} etudiants + {} contrats inserted in {} ms ({} rows/s), {} JDBC statements prepared",
+                nbLignes, nbLignes, dureeMs, Math.round(2000.0 * nbLignes / Math.max(dureeMs, 1)), statistics.getPrepareStatementCount());
+        assertEquals(2L * nbLignes, statistics.getEntityInsertCount());
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    private void inserer(int nbLignes) {
+        Date debut = new Date();
+        Date fin = new Date(debut.getTime() + 365L * 24 * 3600 * 1000);
+        for (int lot = 0; lot < nbLignes; lot += TAILLE_LOT) {
+            int taille = Math.min(TAILLE_LOT, nbLignes - lot);
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Etudiant> etudiants = new ArrayList<>(taille);
+                List<Contrat> contrats = new ArrayList<>(taille);
+                for (int i = 0; i < taille; i++) {
+                    Etudiant etudiant = new Etudiant("Nom", "Prenom");
+                    Contrat contrat = new Contrat(debut, fin, Specialite.IA, false, 100);
+                    contrat.setEtudiant(etudiant);
+                    etudiants.add(etudiant);
+                    contrats.add(contrat);
+                }
+                etudiantRepository.saveAll(etudiants);
+                contratRepository.saveAll(contrats);
+            });
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package tn.esprit.spring.kaddem.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs EXPLAIN on the statements of the repository queries, against a seeded database, and fails
+ * when one of the hot lookups reads a whole table. The SQL and its parameters are captured at the
+ * JDBC level while the repository method runs, then explained with the same parameters.
+ * Understands the MySQL (type ALL) and H2 (tableScan) plans. The queries that read whole tables on
+ * purpose are listed in {@link #SCANS_VOULUS}.
+ */
+@SpringBootTest(properties = "kaddem.compteurs.recalcul-au-demarrage=false")
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Slf4j
+public class QueryPlanRegressionTest {
+    private static final int NB_ETUDIANTS = 2000;
+    private static final int CONTRATS_PAR_ETUDIANT = 3;
+    private static final int NB_EQUIPES = 100;
+    private static final int ETUDIANTS_PAR_EQUIPE = 10;
+    private static final Pattern SCAN_H2 = Pattern.compile("(\\w+)\\.tableScan");
+    // the queries that read whole tables on purpose, and why; their plans are still logged
+    private static final Map<String, String> SCANS_VOULUS = Map.of(
+            "ContratRepository.countContratsParSpecialite", "the revenue per specialite sums every contract",
+            "ContratRepository.findRevision (list)", "the ETag of the contract list covers every contract and its student",
+            "ContratRepository.streamContrats", "the export without filter walks every contract, in id order");
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private ContratRepository contratRepository;
+
+    @Autowired
+    private DepartementRepository departementRepository;
+
+    @Autowired
+    private EquipeRepository equipeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    private Etudiant etudiant;
+    private Contrat contrat;
+    private Departement departement;
+    private Date debutSeed;
+
+    @BeforeAll
+    public void seed() throws SQLException {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.YEAR, -5);
+        debutSeed = calendar.getTime();
+        donnees.creer(() -> {
+            List<Departement> departements = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                departements.add(new Departement("Plan" + i));
+            }
+            departementRepository.saveAll(departements);
+            departement = departements.get(7);
+            List<Etudiant> etudiants = new ArrayList<>();
+            List<Contrat> contrats = new ArrayList<>();
+            for (int i = 0; i < NB_ETUDIANTS; i++) {
+                Etudiant e = new Etudiant("Plan" + i, "Prenom" + i);
+                e.setDepartement(departements.get(i % departements.size()));
+                etudiants.add(e);
+                for (int j = 0; j < CONTRATS_PAR_ETUDIANT; j++) {
+                    // end dates spread over ten years, most of them archived
+                    Date debut = jours(debutSeed, (i * CONTRATS_PAR_ETUDIANT + j) % 3650);
+                    Contrat c = new Contrat(debut, jours(debut, 180), Specialite.values()[j % Specialite.values().length],
+                            j != 0, 1000);
+                    c.setEtudiant(e);
+                    contrats.add(c);
+                }
+            }
+            etudiantRepository.saveAll(etudiants);
+            contratRepository.saveAll(contrats);
+            // the teams too: on an empty table the optimizer starts the promotion query from a scan of it
+            List<Equipe> equipes = new ArrayList<>();
+            for (int i = 0; i < NB_EQUIPES; i++) {
+                Equipe equipe = new Equipe("Plan" + i, Niveau.values()[i % Niveau.values().length]);
+                equipe.setEtudiants(new HashSet<>(etudiants.subList(i * ETUDIANTS_PAR_EQUIPE, (i + 1) * ETUDIANTS_PAR_EQUIPE)));
+                equipes.add(equipe);
+            }
+            equipeRepository.saveAll(equipes);
+            etudiant = etudiants.get(NB_ETUDIANTS / 2);
+            contrat = contrats.get(contrats.size() / 2);
+        });
+        try (Connection connexion = dataSource.getConnection()) {
+            if (isMySql(connexion)) {
+                // fresh statistics, or the optimizer may ignore the new indexes
+                connexion.createStatement().execute("ANALYZE TABLE contrat, etudiant, equipe, " + Equipe.TABLE_ETUDIANTS);
+            }
+        }
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testHotQueriesUseIndexes() throws SQLException {
+        Date dateLimite = jours(debutSeed, 30);
+        List<String> scans = new ArrayList<>();
+        scans.addAll(verifier("EtudiantRepository.findByNomEAndPrenomE",
+                () -> etudiantRepository.findByNomEAndPrenomE(etudiant.getNomE(), etudiant.getPrenomE())));
+        scans.addAll(verifier("EtudiantRepository.findIdEtudiant",
+                () -> etudiantRepository.findIdEtudiant(etudiant.getNomE(), etudiant.getPrenomE())));
+        scans.addAll(verifier("EtudiantRepository.findVuesByDepartement",
+                () -> etudiantRepository.findVuesByDepartement(departement.getIdDepart())));
+        scans.addAll(verifier("EtudiantRepository.findVuesApres",
+                () -> etudiantRepository.findVuesApres(etudiant.getIdEtudiant(), PageRequest.of(0, 50))));
+        scans.addAll(verifier("EtudiantRepository.findVueById",
+                () -> etudiantRepository.findVueById(etudiant.getIdEtudiant())));
+        scans.addAll(verifier("EtudiantRepository.ajusterCompteurs",
+                () -> etudiantRepository.ajusterCompteurs(etudiant.getIdEtudiant(), 0, 0, 0, Instant.now())));
+        scans.addAll(verifier("EtudiantRepository.ajusterCompteurs (version)",
+                () -> etudiantRepository.ajusterCompteurs(etudiant.getIdEtudiant(), 0, 0, 0, etudiant.getVersion(), Instant.now())));
+        scans.addAll(verifier("EtudiantRepository.findRevision",
+                () -> etudiantRepository.findRevision(etudiant.getIdEtudiant())));
+        scans.addAll(verifier("ContratRepository.findRevision",
+                () -> contratRepository.findRevision(contrat.getIdContrat())));
+        scans.addAll(verifier("ContratRepository.findByIdContrat",
+                () -> contratRepository.findByIdContrat(contrat.getIdContrat())));
+        scans.addAll(verifier("ContratRepository.findIdEtudiant",
+                () -> contratRepository.findIdEtudiant(contrat.getIdContrat())));
+        scans.addAll(verifier("ContratRepository.findCompteursByIdContrat",
+                () -> contratRepository.findCompteursByIdContrat(contrat.getIdContrat())));
+        scans.addAll(verifier("ContratRepository.findVuesApres",
+                () -> contratRepository.findVuesApres(contrat.getIdContrat(), PageRequest.of(0, 50))));
+        scans.addAll(verifier("ContratRepository.findVueById",
+                () -> contratRepository.findVueById(contrat.getIdContrat())));
+        scans.addAll(verifier("EtudiantRepository.archiverCompteurs",
+                () -> etudiantRepository.archiverCompteurs(dateLimite, Instant.now())));
+        scans.addAll(verifier("ContratRepository.archiverContratsExpires",
+                () -> contratRepository.archiverContratsExpires(dateLimite, Instant.now())));
+        scans.addAll(verifier("ContratRepository.findContratsActifsExpirantLe",
+                () -> contratRepository.findContratsActifsExpirantLe(dateLimite)));
+        scans.addAll(verifier("ContratRepository.findEcheances",
+                () -> contratRepository.findEcheances(dateLimite, jours(dateLimite, 31), PageRequest.of(0, 1000))));
+
+        scans.addAll(verifier("ContratRepository.getnbContratsValides",
+                () -> contratRepository.getnbContratsValides(dateLimite, jours(dateLimite, 31))));
+        scans.addAll(verifier("EquipeRepository.findEquipesAPromouvoir",
+                () -> equipeRepository.findEquipesAPromouvoir(EnumSet.allOf(Niveau.class), dateLimite, 3)));
+        scans.addAll(verifier("ContratRepository.countContratsParSpecialite", () -> contratRepository.countContratsParSpecialite()));
+        scans.addAll(verifier("ContratRepository.findRevision (list)", () -> contratRepository.findRevision()));
+        scans.addAll(verifier("ContratRepository.streamContrats", () -> {
+            try (var contrats = contratRepository.streamContrats(dateLimite, null, null)) {
+                return contrats.findFirst();
+            }
+        }));
+
+        assertTrue(scans.isEmpty(), "full table scans: " + scans);
+    }
+
+    /**
+     * Runs the query, explains its statements and returns "query: table" for every table scan, none for the
+     * queries of {@link #SCANS_VOULUS}.
+     */
+    private List<String> verifier(String nom, Requete requete) throws SQLException {
+        List<String> scans = new ArrayList<>();
+        for (Plan plan : expliquer(nom, requete)) {
+            plan.tablesLues.forEach(table -> scans.add(nom + ": " + table));
+        }
+        return SCANS_VOULUS.containsKey(nom) ? List.of() : scans;
+    }
+
+    private List<Plan> expliquer(String nom, Requete requete) throws SQLException {
+        List<Instruction> instructions = new ArrayList<>();
+        // rolled back: the updates must not change the seed for the next queries
+        transactionTemplate.executeWithoutResult(status -> {
+            CAPTURE.set(instructions);
+            try {
+                requete.executer();
+            } finally {
+                CAPTURE.remove();
+            }
+            status.setRollbackOnly();
+        });
+        List<Plan> plans = new ArrayList<>();
+        try (Connection connexion = dataSource.unwrap(DataSource.class).getConnection()) {
+            boolean mySql = isMySql(connexion);
+            Set<String> dejaVues = new HashSet<>();
+            for (Instruction instruction : instructions) {
+                if (!dejaVues.add(instruction.sql)) {
+                    // the same lookup repeated for each row (eager associations): one plan is enough
+                    continue;
+                }
+                Plan plan = expliquer(connexion, mySql, instruction);
+                log.info("{}\n  {}\n  {}", nom, instruction.sql, String.join("\n  ", plan.lignes));
+                plans.add(plan);
+            }
+        }
+        return plans;
+    }
+
+    private Plan expliquer(Connection connexion, boolean mySql, Instruction instruction) throws SQLException {
+        Plan plan = new Plan();
+        try (PreparedStatement explain = connexion.prepareStatement("EXPLAIN " + instruction.sql)) {
+            for (Map.Entry<Integer, Object> parametre : instruction.parametres.entrySet()) {
+                explain.setObject(parametre.getKey(), parametre.getValue());
+            }
+            try (ResultSet resultat = explain.executeQuery()) {
+                ResultSetMetaData colonnes = resultat.getMetaData();
+                while (resultat.next()) {
+                    if (mySql) {
+                        // one row per table access; type ALL is a full table scan, except over a derived table (<derivedN>):
+                        // it reads the rows its own subquery produced, whose plan has a row of its own
+                        StringBuilder ligne = new StringBuilder();
+                        for (int i = 1; i <= colonnes.getColumnCount(); i++) {
+                            ligne.append(colonnes.getColumnLabel(i)).append('=').append(resultat.getString(i)).append(' ');
+                        }
+                        plan.lignes.add(ligne.toString());
+                        if ("ALL".equals(resultat.getString("type")) && !resultat.getString("table").startsWith("<derived")) {
+                            plan.tablesLues.add(resultat.getString("table"));
+                        }
+                    } else {
+                        String texte = resultat.getString(1);
+                        plan.lignes.add(texte.replace('\n', ' '));
+                        Matcher scan = SCAN_H2.matcher(texte);
+                        while (scan.find()) {
+                            plan.tablesLues.add(scan.group(1));
+                        }
+                    }
+                }
+            }
+        }
+        return plan;
+    }
+
+    private static boolean isMySql(Connection connexion) throws SQLException {
+        return connexion.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+
+    private static Date jours(Date date, int jours) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.add(Calendar.DAY_OF_MONTH, jours);
+        return calendar.getTime();
+    }
+
+    private interface Requete {
+        Object executer();
+    }
+
+    private static class Plan {
+        final List<String> lignes = new ArrayList<>();
+        final List<String> tablesLues = new ArrayList<>();
+    }
+
+    private static class Instruction {
+        final String sql;
+        final Map<Integer, Object> parametres;
+
+        Instruction(String sql, Map<Integer, Object> parametres) {
+            this.sql = sql;
+            this.parametres = parametres;
+        }
+    }
+
+    // statements executed by the current thread while a query is being captured
+    private static final ThreadLocal<List<Instruction>> CAPTURE = new ThreadLocal<>();
+
+    /** Wraps the application's DataSource so that the prepared statements report their SQL and parameters. */
+    @TestConfiguration
+    static class CaptureConfiguration {
+        @Bean
+        static BeanPostProcessor captureDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? proxy(DataSource.class, bean, CaptureConfiguration::connexion) : bean;
+                }
+            };
+        }
+
+        private static Object connexion(Object dataSource, Method methode, Object[] args) throws Throwable {
+            Object resultat = invoquer(dataSource, methode, args);
+            if (methode.getName().equals("unwrap") && args[0] == DataSource.class) {
+                // the explains run on unwrapped connections
+                return dataSource;
+            }
+            if (!(resultat instanceof Connection)) {
+                return resultat;
+            }
+            return proxy(Connection.class, resultat, (connexion, m, a) -> {
+                Object instruction = invoquer(connexion, m, a);
+                if (instruction instanceof PreparedStatement && m.getName().equals("prepareStatement")) {
+                    return instruction((PreparedStatement) instruction, (String) a[0]);
+                }
+                return instruction;
+            });
+        }
+
+        private static Object instruction(PreparedStatement instruction, String sql) {
+            Map<Integer, Object> parametres = new TreeMap<>();
+            return proxy(PreparedStatement.class, instruction, (cible, m, a) -> {
+                if (m.getName().startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer) {
+                    parametres.put((Integer) a[0], m.getName().equals("setNull") ? null : a[1]);
+                } else if (m.getName().startsWith("execute") || m.getName().equals("addBatch")) {
+                    List<Instruction> capture = CAPTURE.get();
+                    if (capture != null) {
+                        capture.add(new Instruction(sql, new TreeMap<>(parametres)));
+                    }
+                }
+                return invoquer(cible, m, a);
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, Object cible, Appel appel) {
+            InvocationHandler handler = (p, methode, args) -> appel.invoquer(cible, methode, args);
+            return (T) Proxy.newProxyInstance(QueryPlanRegressionTest.class.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+
+        private static Object invoquer(Object cible, Method methode, Object[] args) throws Throwable {
+            try {
+                return methode.invoke(cible, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private interface Appel {
+            Object invoquer(Object cible, Method methode, Object[] args) throws Throwable;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package tn.esprit.spring.kaddem.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.TaskScheduler;
+import tn.esprit.spring.kaddem.dto.ContratEcheance;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.events.ContratEvent;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.services.IContratService;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ContratExpirySchedulerTest {
+
+    @Mock
+    private ContratRepository contratRepository;
+
+    @Mock
+    private IContratService contratService;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @InjectMocks
+    private ContratExpiryScheduler scheduler;
+
+    private final LocalDate aujourdhui = LocalDate.of(2026, 3, 10);
+
+    @BeforeEach
+    void setUp() {
+        scheduler.horizonJours = 31;
+        scheduler.maxContrats = 1000;
+        scheduler.delaiRepriseMinutes = 5;
+        scheduler.horloge = horlogeA(aujourdhui.atTime(8, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    void testReveil_ArchivingFails_RetriesAfterDelay() {
+        when(contratRepository.findEcheances(any(), any(), any())).thenReturn(List.of(echeance(1, aujourdhui.plusDays(2))));
+        scheduler.rattraper();
+
+        // two days later the database is down
+        Instant apresDemain = aujourdhui.plusDays(3).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        scheduler.horloge = horlogeA(apresDemain);
+        when(contratService.archiverContratsExpires()).thenThrow(new DataAccessResourceFailureException("down"));
+        scheduler.reveil();
+
+        verify(taskScheduler).schedule(any(Runnable.class), eq(apresDemain.plus(Duration.ofMinutes(5))));
+        // the contract stays in the index, the next attempt archives it
+        assertTrue(scheduler.echeances.containsKey(1));
+    }
+
+    @Test
+    void testReveil_ArchivingSucceeds_EmptiesIndex() {
+        when(contratRepository.findEcheances(any(), any(), any())).thenReturn(List.of(echeance(1, aujourdhui.plusDays(2))));
+        scheduler.rattraper();
+
+        scheduler.horloge = horlogeA(aujourdhui.plusDays(3).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        when(contratRepository.findEcheances(any(), any(), any())).thenReturn(Collections.emptyList());
+        when(contratService.archiverContratsExpires()).thenReturn(1);
+        scheduler.reveil();
+
+        assertTrue(scheduler.echeances.isEmpty());
+        assertEquals(aujourdhui.plusDays(34), scheduler.horizon);
+    }
+
+    @Test
+    void testDemarrer_IndexFull_DoesNotWakeUpImmediately() {
+        scheduler.maxContrats = 1;
+        // two contracts on the first day: none fits, the window stops before it
+        when(contratRepository.findEcheances(any(), any(), any()))
+                .thenReturn(List.of(echeance(1, aujourdhui), echeance(2, aujourdhui)));
+        scheduler.rattraper();
+
+        assertTrue(scheduler.echeances.isEmpty());
+        assertEquals(aujourdhui.minusDays(1), scheduler.horizon);
+        // the slide date is past, only tomorrow's look is scheduled
+        verify(taskScheduler).schedule(any(Runnable.class),
+                eq(aujourdhui.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+    }
+
+    @Test
+    void testDemarrer_RunsCatchUpOnTaskScheduler() {
+        scheduler.demarrer();
+
+        // nothing on the startup thread
+        verifyNoInteractions(contratService, contratRepository);
+        verify(taskScheduler).schedule(any(Runnable.class), eq(scheduler.horloge.instant()));
+    }
+
+    @Test
+    void testRattraper_CatchUpFails_RetriesAfterDelay() {
+        when(contratService.retrieveAndUpdateStatusContrat()).thenThrow(new DataAccessResourceFailureException("down"));
+        scheduler.rattraper();
+
+        verify(taskScheduler).schedule(any(Runnable.class), eq(scheduler.horloge.instant().plus(Duration.ofMinutes(5))));
+        assertNull(scheduler.horizon);
+    }
+
+    @Test
+    void testArchivageQuotidien_OnlyArchives() {
+        when(contratService.archiverContratsExpires()).thenReturn(2);
+        scheduler.archivageQuotidien();
+
+        // the notices come from the index: no second scan of the contracts ending in 15 days
+        verify(contratService).archiverContratsExpires();
+        verifyNoMoreInteractions(contratService);
+        verifyNoInteractions(contratRepository);
+    }
+
+    @Test
+    void testOnContrat_DuringExtension_ReplayedOverRows() {
+        LocalDate fin = aujourdhui.plusDays(20);
+        when(contratRepository.findEcheances(any(), any(), any())).thenAnswer(invocation -> {
+            // written while the read runs, beyond the old horizon: 2 is new, 1 was deleted after the read saw it
+            scheduler.onContrat(new ContratEvent(ContratEvent.Type.AJOUT, contrat(2, fin)));
+            scheduler.onContrat(new ContratEvent(ContratEvent.Type.SUPPRESSION, contrat(1, fin)));
+            return List.of(echeance(1, fin));
+        });
+        scheduler.rattraper();
+
+        assertEquals(Map.of(2, fin), scheduler.echeances);
+    }
+
+    private static Contrat contrat(Integer idContrat, LocalDate fin) {
+        Date dateFin = Date.from(fin.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        return new Contrat(idContrat, dateFin, dateFin, Specialite.IA, false, 1000);
+    }
+
+    private static Clock horlogeA(Instant instant) {
+        return Clock.fixed(instant, ZoneId.systemDefault());
+    }
+
+    private static ContratEcheance echeance(Integer idContrat, LocalDate fin) {
+        Date dateFin = Date.from(fin.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        return new ContratEcheance() {
+            @Override
+            public Integer getIdContrat() {
+                return idContrat;
+            }
+
+            @Override
+            public Date getDateFinContrat() {
+                return dateFin;
+            }
+        };
+    }
+}
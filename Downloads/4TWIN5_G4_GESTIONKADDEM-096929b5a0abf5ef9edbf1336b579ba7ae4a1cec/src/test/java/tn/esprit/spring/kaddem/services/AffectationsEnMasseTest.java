@@ -0,0 +1,177 @@
+package tn.esprit.spring.kaddem.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.config.InstructionsSqlExtension;
+import tn.esprit.spring.kaddem.dto.AffectationReport;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.repositories.DepartementRepository;
+import tn.esprit.spring.kaddem.repositories.EquipeRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk assignment of students to a department and to a team: set-based statements, whatever the
+ * number of students and the size of the team.
+ */
+@SpringBootTest
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Slf4j
+public class AffectationsEnMasseTest {
+    private static final int NB_ETUDIANTS = 40;
+    private static final int INCONNU = -1;
+
+    @RegisterExtension
+    InstructionsSqlExtension sql = new InstructionsSqlExtension();
+
+    @Autowired
+    private IEtudiantService etudiantService;
+    @Autowired
+    private IEquipeService equipeService;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private DepartementRepository departementRepository;
+    @Autowired
+    private EquipeRepository equipeRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private DonneesTest donnees;
+
+    private final List<Integer> ids = new ArrayList<>();
+
+    @BeforeAll
+    public void seed() {
+        donnees.creer(() -> {
+            for (int i = 0; i < NB_ETUDIANTS; i++) {
+                ids.add(etudiantRepository.save(new Etudiant("Masse", "E" + i)).getIdEtudiant());
+            }
+        });
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testAffecterDepartement() {
+        Integer idDepart = departementRepository.save(new Departement("Masse")).getIdDepart();
+        List<Integer> moitie = ids.subList(0, NB_ETUDIANTS / 2);
+        etudiantService.affecterEtudiantsADepartement(idDepart, moitie);
+
+        List<Integer> demandes = new ArrayList<>(ids);
+        demandes.add(INCONNU);
+        demandes.add(ids.get(0));
+        AffectationReport rapport = sql.auPlus(3, () -> etudiantService.affecterEtudiantsADepartement(idDepart, demandes));
+
+        assertEquals(NB_ETUDIANTS + 1, rapport.getNbEtudiants());
+        assertEquals(NB_ETUDIANTS / 2, rapport.getNbAffectes());
+        assertEquals(NB_ETUDIANTS / 2, rapport.getNbDejaAffectes());
+        assertEquals(List.of(INCONNU), rapport.getIdsInconnus());
+        assertEquals(ids, idsDuDepartement(idDepart));
+        // the students are versioned writes, like a save
+        Etudiant etudiant = etudiantRepository.findById(ids.get(NB_ETUDIANTS - 1)).get();
+        assertEquals(1L, etudiant.getVersion());
+        assertNotNull(etudiant.getDerniereModification());
+
+        // idempotent: nothing written, the ids are looked up to tell the assigned students from unknown ones
+        AffectationReport encore = sql.auPlus(3, () -> etudiantService.affecterEtudiantsADepartement(idDepart, ids));
+        assertEquals(0, encore.getNbAffectes());
+        assertEquals(NB_ETUDIANTS, encore.getNbDejaAffectes());
+    }
+
+    @Test
+    public void testDeplacerDepartement() {
+        Integer depart = departementRepository.save(new Departement("Masse")).getIdDepart();
+        Integer arrivee = departementRepository.save(new Departement("Masse")).getIdDepart();
+        List<Integer> deplaces = ids.subList(0, 10);
+        etudiantService.affecterEtudiantsADepartement(depart, deplaces);
+
+        AffectationReport rapport = etudiantService.affecterEtudiantsADepartement(arrivee, deplaces);
+        assertEquals(10, rapport.getNbAffectes());
+        assertTrue(idsDuDepartement(depart).isEmpty());
+        assertEquals(deplaces, idsDuDepartement(arrivee));
+    }
+
+    @Test
+    public void testAffecterEquipe() {
+        Integer idEquipe = equipeRepository.save(new Equipe("Masse", Niveau.JUNIOR)).getIdEquipe();
+        equipeService.affecterEtudiants(idEquipe, ids.subList(0, 5));
+
+        List<Integer> demandes = new ArrayList<>(ids);
+        demandes.add(INCONNU);
+        AffectationReport rapport = sql.auPlus(3, () -> equipeService.affecterEtudiants(idEquipe, demandes));
+
+        assertEquals(NB_ETUDIANTS - 5, rapport.getNbAffectes());
+        assertEquals(5, rapport.getNbDejaAffectes());
+        assertEquals(List.of(INCONNU), rapport.getIdsInconnus());
+        // one row per student, the collection seen by Hibernate included
+        assertEquals(NB_ETUDIANTS, (int) transactionTemplate.execute(status ->
+                equipeRepository.findById(idEquipe).get().getEtudiants().size()));
+
+        AffectationReport encore = sql.auPlus(3, () -> equipeService.affecterEtudiants(idEquipe, ids));
+        assertEquals(NB_ETUDIANTS, encore.getNbDejaAffectes());
+    }
+
+    @Test
+    public void testCiblesInconnues() {
+        assertThrows(IllegalArgumentException.class, () -> etudiantService.affecterEtudiantsADepartement(INCONNU, ids));
+        assertThrows(IllegalArgumentException.class, () -> equipeService.affecterEtudiants(INCONNU, ids));
+    }
+
+    /**
+     * 10000 students moved from one department to another, then added to a team. Not part of the
+     * regular build: {@code mvn test -Dtest=AffectationsEnMasseTest -Dkaddem.benchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "kaddem.benchmark", matches = "true")
+    public void benchmarkDixMilleEtudiants() {
+        int nombre = Integer.getInteger("kaddem.benchmark.etudiants", 10000);
+        Integer depart = departementRepository.save(new Departement("Masse")).getIdDepart();
+        Integer arrivee = departementRepository.save(new Departement("Masse")).getIdDepart();
+        Integer idEquipe = equipeRepository.save(new Equipe("Masse", Niveau.SENIOR)).getIdEquipe();
+        List<Integer> masse = donnees.creer(() -> {
+            Departement departement = departementRepository.getReferenceById(depart);
+            List<Etudiant> etudiants = new ArrayList<>();
+            for (int i = 0; i < nombre; i++) {
+                Etudiant etudiant = new Etudiant("Masse" + i, "E" + i);
+                etudiant.setDepartement(departement);
+                etudiants.add(etudiant);
+            }
+            return etudiantRepository.saveAll(etudiants).stream().map(Etudiant::getIdEtudiant).collect(Collectors.toList());
+        });
+
+        AffectationReport departement = etudiantService.affecterEtudiantsADepartement(arrivee, masse);
+        AffectationReport equipe = equipeService.affecterEtudiants(idEquipe, masse);
+        log.info("{} students: department in {} ms, team in {} ms", nombre, departement.getDureeMs(), equipe.getDureeMs());
+        assertEquals(nombre, departement.getNbAffectes());
+        assertEquals(nombre, equipe.getNbAffectes());
+        assertTrue(departement.getDureeMs() < 1000 && equipe.getDureeMs() < 1000);
+    }
+
+    private List<Integer> idsDuDepartement(Integer idDepart) {
+        return transactionTemplate.execute(status -> departementRepository.findById(idDepart).get().getEtudiants().stream()
+                .map(Etudiant::getIdEtudiant).sorted().collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,184 @@
+package tn.esprit.spring.kaddem.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent assignments of contracts to the same students: the "at most 5 active contracts" rule
+ * and the counters must hold whatever the interleaving. The throughput run, on different students,
+ * must scale: 8 threads at least twice as fast as one. It is not part of the regular build:
+ * {@code mvn test -Dtest=ContratConcurrenceStressTest -Dkaddem.benchmark=true}.
+ */
+@SpringBootTest
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Slf4j
+public class ContratConcurrenceStressTest {
+    // affectContratToEtudiant accepts a contract while the student has at most 4 active ones
+    private static final int MAX_ACTIFS = 5;
+
+    @Autowired
+    private IContratService contratService;
+
+    @Autowired
+    private ConcurrenceEtudiants concurrenceEtudiants;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private ContratRepository contratRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DonneesTest donnees;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testAssignmentsRaceOnVersionsOnly() throws Exception {
+        // no striped locks: every conflict has to be caught by the version check
+        Object verrous = ReflectionTestUtils.getField(concurrenceEtudiants, "verrous");
+        ReflectionTestUtils.setField(concurrenceEtudiants, "verrous", new ReentrantLock[0]);
+        try {
+            Etudiant etudiant = creerEtudiant("Race");
+            List<Integer> contrats = creerContrats(16);
+            AtomicInteger abandons = new AtomicInteger();
+            executer(8, contrats.size(), i -> {
+                try {
+                    contratService.affectContratToEtudiant(contrats.get(i), etudiant.getNomE(), etudiant.getPrenomE());
+                } catch (ConcurrencyFailureException e) {
+                    abandons.incrementAndGet();
+                }
+            });
+
+            long actifs = compterActifs(etudiant.getIdEtudiant());
+            Etudiant relu = etudiantRepository.findById(etudiant.getIdEtudiant()).get();
+            assertTrue(actifs <= MAX_ACTIFS, actifs + " active contracts");
+            assertEquals(actifs, relu.getNbContratsActifs());
+            if (abandons.get() == 0) {
+                assertEquals(MAX_ACTIFS, actifs);
+            }
+        } finally {
+            ReflectionTestUtils.setField(concurrenceEtudiants, "verrous", verrous);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "kaddem.benchmark", matches = "true")
+    public void benchmarkAssignmentThroughput() throws Exception {
+        int nbEtudiants = Integer.getInteger("kaddem.benchmark.etudiants", 400);
+        Map<Integer, Double> parSeconde = new TreeMap<>();
+        for (int threads : new int[]{1, 2, 4, 8, 16}) {
+            // new students for each run: the earlier runs left theirs at the limit
+            List<Etudiant> etudiants = new ArrayList<>();
+            for (int i = 0; i < nbEtudiants; i++) {
+                etudiants.add(creerEtudiant("Bench" + threads + "-" + i));
+            }
+            // one more contract per student than the rule allows: the last ones are refused
+            List<Integer> contrats = creerContrats(nbEtudiants * (MAX_ACTIFS + 1));
+            long debut = System.nanoTime();
+            executer(threads, contrats.size(), i -> {
+                Etudiant etudiant = etudiants.get(i % nbEtudiants);
+                contratService.affectContratToEtudiant(contrats.get(i), etudiant.getNomE(), etudiant.getPrenomE());
+            });
+            long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+            parSeconde.put(threads, 1000.0 * contrats.size() / Math.max(dureeMs, 1));
+            log.info("{} threads: {} assignments in {} ms ({}/s)", threads, contrats.size(), dureeMs, Math.round(parSeconde.get(threads)));
+            for (Etudiant etudiant : etudiants) {
+                assertEquals(MAX_ACTIFS, compterActifs(etudiant.getIdEtudiant()));
+            }
+        }
+        // different students never wait for one another: the locks and version checks must not serialize them
+        assertTrue(parSeconde.get(8) >= 2 * parSeconde.get(1), "assignments per second by threads: " + parSeconde);
+    }
+
+    private interface Tache {
+        void executer(int i);
+    }
+
+    /** Runs tache(0..nbTaches-1) on nbThreads threads, all released at once. */
+    private void executer(int nbThreads, int nbTaches, Tache tache) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        CountDownLatch depart = new CountDownLatch(1);
+        AtomicInteger suivante = new AtomicInteger();
+        List<Future<?>> resultats = new ArrayList<>();
+        for (int t = 0; t < nbThreads; t++) {
+            resultats.add(executor.submit(() -> {
+                depart.await();
+                for (int i = suivante.getAndIncrement(); i < nbTaches; i = suivante.getAndIncrement()) {
+                    tache.executer(i);
+                }
+                return null;
+            }));
+        }
+        depart.countDown();
+        for (Future<?> resultat : resultats) {
+            resultat.get(5, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+    }
+
+    private Etudiant creerEtudiant(String prenom) {
+        return etudiantRepository.save(new Etudiant("Stress", prenom));
+    }
+
+    private List<Integer> creerContrats(int nombre) {
+        Date debut = new Date();
+        Date fin = new Date(debut.getTime() + 365L * 24 * 3600 * 1000);
+        List<Contrat> contrats = new ArrayList<>();
+        for (int i = 0; i < nombre; i++) {
+            contrats.add(new Contrat(debut, fin, Specialite.IA, false, 100));
+        }
+        List<Integer> ids = new ArrayList<>();
+        contratRepository.saveAll(contrats).forEach(contrat -> ids.add(contrat.getIdContrat()));
+        return ids;
+    }
+
+    private long compterActifs(Integer idEtudiant) {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("SELECT count(c) FROM Contrat c WHERE c.etudiant.idEtudiant = :id AND c.archive = false", Long.class)
+                .setParameter("id", idEtudiant)
+                .getSingleResult());
+    }
+}
@@ -4,15 +4,22 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.kaddem.dto.ArchivageReport;
+import tn.esprit.spring.kaddem.dto.DemandeRenouvellement;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.RenouvellementReport;
 import tn.esprit.spring.kaddem.entities.Contrat;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 import tn.esprit.spring.kaddem.entities.Specialite;
 import tn.esprit.spring.kaddem.repositories.ContratRepository;
 import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,6 +36,9 @@ public class ContratServiceImplTest {
     @Autowired
     private EtudiantRepository etudiantRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Test
     public void testRenewContract_SuccessfulRenewal() {
         // Setup test data
@@ -136,11 +146,11 @@ public class ContratServiceImplTest {
         cal.add(Calendar.DAY_OF_MONTH, 20); // Expires in 20 days
         Date endDate = cal.getTime();
 
-        // Add 3 archived contracts
+        // Add 3 archived contracts, through the service so that the student's counters follow
         for (int i = 0; i < 3; i++) {
             Contrat historicContract = new Contrat(startDate, endDate, Specialite.IA, true, 1000);
             historicContract.setEtudiant(student);
-            historicContract = contratRepository.save(historicContract);
+            historicContract = contratService.addContrat(historicContract);
             student.getContrats().add(historicContract);
         }
         student = etudiantRepository.save(student); // Update student with historic contracts
@@ -158,4 +168,122 @@ public class ContratServiceImplTest {
         // Verify loyalty bonus was applied (20% increase)
         assertEquals(1440, renewedContract.getMontantContrat()); // 1200 * 1.2
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testRenewContracts() {
+        Etudiant student = etudiantRepository.save(new Etudiant("Bulk", "Student"));
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.MONTH, -5);
+        Date startDate = cal.getTime();
+        cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, 20);
+        Date endDate = cal.getTime();
+
+        // through the service, so that the student's counters see its archived contract
+        Contrat first = new Contrat(startDate, endDate, Specialite.IA, false, 1000);
+        first.setEtudiant(student);
+        first = contratService.addContrat(first);
+        Contrat second = new Contrat(startDate, endDate, Specialite.CLOUD, false, 1000);
+        second.setEtudiant(student);
+        second = contratService.addContrat(second);
+        Contrat archived = new Contrat(startDate, endDate, Specialite.IA, true, 1000);
+        archived.setEtudiant(student);
+        archived = contratService.addContrat(archived);
+        // a student already over the limit of active contracts
+        Etudiant busy = etudiantRepository.save(new Etudiant("Busy", "Student"));
+        Contrat overLimit = null;
+        for (int i = 0; i < 4; i++) {
+            overLimit = new Contrat(startDate, endDate, Specialite.SECURITE, false, 1000);
+            overLimit.setEtudiant(busy);
+            overLimit = contratService.addContrat(overLimit);
+        }
+
+        RenouvellementReport report = contratService.renewContracts(List.of(
+                new DemandeRenouvellement(first.getIdContrat(), 6),
+                new DemandeRenouvellement(archived.getIdContrat(), 6),
+                new DemandeRenouvellement(-1, 6),
+                new DemandeRenouvellement(second.getIdContrat(), 12),
+                new DemandeRenouvellement(first.getIdContrat(), 6),
+                new DemandeRenouvellement(overLimit.getIdContrat(), 6)));
+
+        assertEquals(6, report.getNbDemandes());
+        assertEquals(2, report.getNbRenouveles());
+        assertEquals(4, report.getNbRejetes());
+        List<RenouvellementReport.Resultat> resultats = report.getResultats();
+        assertEquals(6, resultats.size());
+        // one archived contract already: 10% loyalty bonus on the IA base amount
+        assertTrue(resultats.get(0).isRenouvele());
+        assertEquals(first.getIdContrat(), resultats.get(0).getIdContrat());
+        assertEquals(1320, resultats.get(0).getMontantContrat());
+        assertFalse(resultats.get(1).isRenouvele());
+        assertEquals("Cannot renew an archived contract", resultats.get(1).getErreur());
+        assertEquals("Contract not found with ID: -1", resultats.get(2).getErreur());
+        // two archived contracts now: still 10%, on the CLOUD base amount
+        assertEquals(1100, resultats.get(3).getMontantContrat());
+        assertEquals("Cannot renew an archived contract", resultats.get(4).getErreur());
+        assertFalse(resultats.get(5).isRenouvele());
+        assertEquals(overLimit.getIdContrat(), resultats.get(5).getIdContrat());
+        assertNull(resultats.get(5).getIdNouveauContrat());
+        assertEquals("Student has too many active contracts", resultats.get(5).getErreur());
+
+        Contrat renewed = contratRepository.findById(resultats.get(3).getIdNouveauContrat()).orElseThrow();
+        assertEquals(Specialite.CLOUD, renewed.getSpecialite());
+        assertEquals(endDate.getTime(), renewed.getDateDebutContrat().getTime());
+        assertTrue(contratRepository.findById(second.getIdContrat()).orElseThrow().getArchive());
+        EtudiantVue counters = etudiantRepository.findVueById(student.getIdEtudiant()).orElseThrow();
+        assertEquals(2, counters.nbContratsActifs());
+        assertEquals(3, counters.nbContratsArchives());
+        assertEquals(5420, counters.montantTotalContrats());
+    }
+
+    @Test
+    public void testRetrieveAndUpdateStatusContrat() {
+        Etudiant student = etudiantRepository.save(new Etudiant("Expiry", "Student"));
+        // through the service, so that the student's counters start right
+        Contrat expired = addContrat(student, jours(-200), jours(-1), false, 1000);
+        Contrat in15Days = addContrat(student, jours(-100), jours(ContratServiceImpl.JOURS_AVANT_EXPIRATION), false, 1100);
+        Contrat future = addContrat(student, jours(-10), jours(90), false, 1200);
+        Contrat alreadyArchived = addContrat(student, jours(-400), jours(-300), true, 900);
+        Contrat expiredWithoutStudent = addContrat(null, jours(-50), jours(-2), false, 500);
+
+        ArchivageReport report = contratService.retrieveAndUpdateStatusContrat();
+
+        assertEquals(2, report.getNbContratsArchives());
+        assertEquals(1, report.getNbContratsExpirantDans15Jours());
+        assertNotNull(report.getDateExecution());
+        assertTrue(report.getDureeMs() >= 0);
+        // bulk UPDATEs: the persistence context still holds the rows as they were
+        entityManager.clear();
+        assertTrue(contratRepository.findById(expired.getIdContrat()).orElseThrow().getArchive());
+        assertTrue(contratRepository.findById(expiredWithoutStudent.getIdContrat()).orElseThrow().getArchive());
+        assertTrue(contratRepository.findById(alreadyArchived.getIdContrat()).orElseThrow().getArchive());
+        assertFalse(contratRepository.findById(in15Days.getIdContrat()).orElseThrow().getArchive());
+        assertFalse(contratRepository.findById(future.getIdContrat()).orElseThrow().getArchive());
+        // the expired contract moved from the active to the archived counter; the amount is unchanged
+        EtudiantVue counters = etudiantRepository.findVueById(student.getIdEtudiant()).orElseThrow();
+        assertEquals(2, counters.nbContratsActifs());
+        assertEquals(2, counters.nbContratsArchives());
+        assertEquals(4200, counters.montantTotalContrats());
+
+        // nothing left to archive
+        assertEquals(0, contratService.retrieveAndUpdateStatusContrat().getNbContratsArchives());
+        assertEquals(2, etudiantRepository.findVueById(student.getIdEtudiant()).orElseThrow().nbContratsActifs());
+    }
+
+    private Contrat addContrat(Etudiant student, Date startDate, Date endDate, boolean archive, int montant) {
+        Contrat contrat = new Contrat(startDate, endDate, Specialite.IA, archive, montant);
+        contrat.setEtudiant(student);
+        return contratService.addContrat(contrat);
+    }
+
+    /** Midnight, {@code days} days from today. */
+    private static Date jours(int days) {
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.add(Calendar.DAY_OF_MONTH, days);
+        return cal.getTime();
+    }
+}
@@ -6,6 +6,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import tn.esprit.spring.kaddem.dto.ChiffreAffaireReport;
+import tn.esprit.spring.kaddem.dto.ContratsParSpecialite;
 import tn.esprit.spring.kaddem.entities.Contrat;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 import tn.esprit.spring.kaddem.entities.Specialite;
@@ -14,8 +17,10 @@ import tn.esprit.spring.kaddem.repositories.ContratRepository;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -27,6 +32,15 @@ public class ContratServiceMockTest {
     @Mock
     private ContratRepository contratRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CompteursContrats compteursContrats;
+
+    @Mock
+    private ConcurrenceEtudiants concurrenceEtudiants;
+
     @InjectMocks
     private ContratServiceImpl contratService;
 
@@ -37,6 +51,10 @@ public class ContratServiceMockTest {
 
     @BeforeEach
     void setUp() {
+        // no retries nor locks here: run the action once
+        lenient().when(concurrenceEtudiants.executer(any(), any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(1).get());
+
         // Setup common test data
         Calendar cal = Calendar.getInstance();
         cal.add(Calendar.DAY_OF_MONTH, -5 * 30); // 5 months ago
@@ -49,6 +67,7 @@ public class ContratServiceMockTest {
         testStudent = new Etudiant("Test", "Student");
         testStudent.setIdEtudiant(1);
         testStudent.setContrats(new HashSet<>());
+        testStudent.setNbContratsActifs(1);
 
         testContract = new Contrat(startDate, endDate, Specialite.IA, false, 1000);
         testContract.setIdContrat(1);
@@ -94,6 +113,7 @@ public class ContratServiceMockTest {
         }
         historicContracts.add(testContract);
         testStudent.setContrats(historicContracts);
+        testStudent.setNbContratsArchives(3);
 
         when(contratRepository.findById(1)).thenReturn(Optional.of(testContract));
         when(contratRepository.save(any(Contrat.class))).thenAnswer(invocation -> {
@@ -121,6 +141,7 @@ public class ContratServiceMockTest {
             activeContracts.add(activeContract);
         }
         testStudent.setContrats(activeContracts);
+        testStudent.setNbContratsActifs(4);
 
         when(contratRepository.findById(1)).thenReturn(Optional.of(testContract));
 
@@ -145,4 +166,33 @@ public class ContratServiceMockTest {
         );
         assertEquals("Contract not found with ID: 999", exception.getMessage());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testChiffreAffaire_ComputedFromGroupedCounts() {
+        // 2 IA contracts and 1 CLOUD contract over 60 days (2 months)
+        ContratsParSpecialite ia = mock(ContratsParSpecialite.class);
+        when(ia.getSpecialite()).thenReturn(Specialite.IA);
+        when(ia.getNbContrats()).thenReturn(2L);
+        when(ia.getMontantTotal()).thenReturn(2400L);
+        ContratsParSpecialite cloud = mock(ContratsParSpecialite.class);
+        when(cloud.getSpecialite()).thenReturn(Specialite.CLOUD);
+        when(cloud.getNbContrats()).thenReturn(1L);
+        when(cloud.getMontantTotal()).thenReturn(1000L);
+        when(contratRepository.countContratsParSpecialite()).thenReturn(List.of(ia, cloud));
+
+        Calendar cal = Calendar.getInstance();
+        Date start = cal.getTime();
+        cal.add(Calendar.DAY_OF_MONTH, 60);
+        Date end = cal.getTime();
+
+        ChiffreAffaireReport report = contratService.getChiffreAffaireParSpecialite(start, end);
+
+        assertEquals(2, report.getLignes().size());
+        assertEquals(1200f, report.getLignes().get(0).getChiffreAffaire(), 0.01f); // 2 * 2 months * 300
+        assertEquals(2400L, report.getLignes().get(0).getMontantContrats());
+        assertEquals(800f, report.getLignes().get(1).getChiffreAffaire(), 0.01f);  // 1 * 2 months * 400
+        assertEquals(2000f, report.getTotal(), 0.01f);
+        assertEquals(2000f, contratService.getChiffreAffaireEntreDeuxDates(start, end), 0.01f);
+        verify(contratRepository, never()).findAll();
+    }
+}
@@ -0,0 +1,109 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.EquipeRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tn.esprit.spring.kaddem.support.DonneesTest.date;
+
+/**
+ * The team promotion: JUNIOR to SENIOR to EXPERT, one level per run, for the teams with at least 3
+ * students holding a non-archived contract that ended two years ago or more.
+ */
+@SpringBootTest
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EquipeServiceImplTest {
+    @Autowired
+    private IEquipeService equipeService;
+    @Autowired
+    private EquipeRepository equipeRepository;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private ContratRepository contratRepository;
+    @Autowired
+    private DonneesTest donnees;
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testEvoluerEquipes() {
+        Integer junior = creerEquipe(Niveau.JUNIOR, 3, false);
+        Integer senior = creerEquipe(Niveau.SENIOR, 4, false);
+        // EXPERT is the top level
+        Integer expert = creerEquipe(Niveau.EXPERT, 3, false);
+        // two eligible students only
+        Integer tropPeu = creerEquipe(Niveau.JUNIOR, 2, false);
+        // ended long ago, but archived: they no longer count
+        Integer archives = creerEquipe(Niveau.JUNIOR, 3, true);
+
+        // one level per run: the junior team only reaches EXPERT on the second one
+        assertEquals(Map.of(junior, "JUNIOR>SENIOR:3", senior, "SENIOR>EXPERT:4"), promotions(equipeService.evoluerEquipes()));
+        assertEquals(Niveau.SENIOR, niveau(junior));
+        assertEquals(Niveau.EXPERT, niveau(senior));
+
+        assertEquals(Map.of(junior, "SENIOR>EXPERT:3"), promotions(equipeService.evoluerEquipes()));
+        assertEquals(Niveau.EXPERT, niveau(junior));
+
+        assertTrue(equipeService.evoluerEquipes().isEmpty());
+        assertEquals(Niveau.EXPERT, niveau(expert));
+        assertEquals(Niveau.JUNIOR, niveau(tropPeu));
+        assertEquals(Niveau.JUNIOR, niveau(archives));
+    }
+
+    /**
+     * A team of {@code nbEligibles} students whose contract ended 3 years ago, plus one student whose
+     * contract ends next year.
+     */
+    private Integer creerEquipe(Niveau niveau, int nbEligibles, boolean archive) {
+        return donnees.creer(() -> {
+            Equipe equipe = new Equipe(niveau.name(), niveau);
+            equipe.setEtudiants(new HashSet<>());
+            for (int i = 0; i <= nbEligibles; i++) {
+                Etudiant etudiant = etudiantRepository.save(new Etudiant(niveau.name(), "E" + i));
+                boolean eligible = i < nbEligibles;
+                Contrat contrat = eligible
+                        ? new Contrat(date(LocalDate.now().minusYears(4)), date(LocalDate.now().minusYears(3)), Specialite.IA, archive, 1000)
+                        : new Contrat(date(LocalDate.now()), date(LocalDate.now().plusYears(1)), Specialite.IA, false, 1000);
+                contrat.setEtudiant(etudiant);
+                contratRepository.save(contrat);
+                equipe.getEtudiants().add(etudiant);
+            }
+            return equipeRepository.save(equipe).getIdEquipe();
+        });
+    }
+
+    private Niveau niveau(Integer idEquipe) {
+        return equipeRepository.findById(idEquipe).get().getNiveau();
+    }
+
+    private static Map<Integer, String> promotions(List<PromotionEquipe> promotions) {
+        return promotions.stream().collect(Collectors.toMap(PromotionEquipe::getIdEquipe,
+                promotion -> promotion.getAncienNiveau() + ">" + promotion.getNouveauNiveau() + ":" + promotion.getNbEtudiants()));
+    }
+}
@@ -0,0 +1,86 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.spring.kaddem.dto.ImportReport;
+import tn.esprit.spring.kaddem.imports.ImportFormat;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The import under open-in-view: the EntityManager bound to the request outlives the chunks, and must
+ * not keep their rows.
+ */
+@SpringBootTest
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ImportServiceImplTest {
+    private static final int TAILLE_LOT = 10;
+    private static final int NB_ETUDIANTS = 30;
+
+    @Autowired
+    private ImportServiceImpl importService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private DonneesTest donnees;
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testContexteBorneParLot() throws Exception {
+        StringBuilder csv = new StringBuilder("type,ref,parent,nom,prenom,dateDebut,dateFin,specialite,montant\n")
+                .append("UNIVERSITE,u,,Import,,,,,\n")
+                .append("DEPARTEMENT,d,u,Import,,,,,\n");
+        for (int i = 0; i < NB_ETUDIANTS; i++) {
+            csv.append("ETUDIANT,e").append(i).append(",d,Import").append(i).append(",E,,,,\n")
+                    .append("CONTRAT,,e").append(i).append(",,,2024-01-01,2025-01-01,IA,100\n");
+        }
+
+        // what OpenEntityManagerInViewInterceptor does for a request
+        EntityManager requete = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(requete));
+        int tailleLot = importService.tailleLot;
+        ApplicationEventPublisher eventPublisher = importService.eventPublisher;
+        int[] maxEntites = {0};
+        try {
+            importService.tailleLot = TAILLE_LOT;
+            // the contract events go out at the end of each chunk, when the context is at its fullest
+            importService.eventPublisher = event -> {
+                maxEntites[0] = Math.max(maxEntites[0], requete.unwrap(Session.class).getStatistics().getEntityCount());
+                eventPublisher.publishEvent(event);
+            };
+            ImportReport rapport = importService.importer(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                    ImportFormat.CSV);
+
+            assertEquals(2 + 2 * NB_ETUDIANTS, rapport.getNbImportees());
+            assertTrue(rapport.getLots().size() > 5);
+            // one chunk at a time, not the whole file
+            assertTrue(maxEntites[0] > 0 && maxEntites[0] <= 2 * TAILLE_LOT, maxEntites[0] + " managed entities");
+            assertEquals(0, requete.unwrap(Session.class).getStatistics().getEntityCount());
+        } finally {
+            importService.tailleLot = tailleLot;
+            importService.eventPublisher = eventPublisher;
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            requete.close();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.config.InstructionsSqlExtension;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.dto.CursorPage;
+import tn.esprit.spring.kaddem.dto.DemandeRenouvellement;
+import tn.esprit.spring.kaddem.dto.EquipeVue;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
+import tn.esprit.spring.kaddem.dto.RenouvellementReport;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.DetailEquipe;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.entities.Universite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.DepartementRepository;
+import tn.esprit.spring.kaddem.repositories.EquipeRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.repositories.UniversiteRepository;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tn.esprit.spring.kaddem.support.DonneesTest.date;
+import static tn.esprit.spring.kaddem.support.DonneesTest.nom;
+
+/**
+ * SQL statement budgets of the hot service calls. Each call reads more rows than its budget, so a
+ * lazy load per row (N+1) fails here.
+ */
+@SpringBootTest
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class InstructionsSqlRegressionTest {
+    private static final int NB_ETUDIANTS = 30;
+
+    @RegisterExtension
+    InstructionsSqlExtension sql = new InstructionsSqlExtension();
+
+    @Autowired
+    private IContratService contratService;
+    @Autowired
+    private IEquipeService equipeService;
+    @Autowired
+    private IEtudiantService etudiantService;
+    @Autowired
+    private IUniversiteService universiteService;
+    @Autowired
+    private ContratRepository contratRepository;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private DepartementRepository departementRepository;
+    @Autowired
+    private EquipeRepository equipeRepository;
+    @Autowired
+    private UniversiteRepository universiteRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private DonneesTest donnees;
+
+    private Departement departement;
+    private Integer idEquipe;
+    private final List<Etudiant> etudiants = new ArrayList<>();
+    private final List<Contrat> renouvelables = new ArrayList<>();
+    private final List<Contrat> libres = new ArrayList<>();
+
+    @BeforeAll
+    public void seed() {
+        donnees.creer(() -> {
+            departement = departementRepository.save(new Departement(nom("Budget")));
+            Equipe equipe = new Equipe(nom("Budget"), Niveau.JUNIOR);
+            DetailEquipe detailEquipe = new DetailEquipe(12, "Budget");
+            entityManager.persist(detailEquipe);
+            equipe.setDetailEquipe(detailEquipe);
+            equipe.setEtudiants(new HashSet<>());
+            for (int i = 0; i < NB_ETUDIANTS; i++) {
+                Etudiant etudiant = new Etudiant(nom("Budget"), "E" + i);
+                etudiant.setDepartement(departement);
+                etudiant = etudiantRepository.save(etudiant);
+                etudiants.add(etudiant);
+                equipe.getEtudiants().add(etudiant);
+                Contrat renouvelable = new Contrat(date(LocalDate.now().minusMonths(11)), date(LocalDate.now().plusDays(10)),
+                        Specialite.IA, false, 1000);
+                renouvelable.setEtudiant(etudiant);
+                renouvelables.add(contratRepository.save(renouvelable));
+                // ended 3 years ago and not archived: rows for the archiving to update
+                Contrat ancien = new Contrat(date(LocalDate.now().minusYears(4)), date(LocalDate.now().minusYears(3)),
+                        Specialite.CLOUD, false, 800);
+                ancien.setEtudiant(etudiant);
+                contratRepository.save(ancien);
+                libres.add(contratRepository.save(new Contrat(date(LocalDate.now()), date(LocalDate.now().plusYears(1)),
+                        Specialite.RESEAUX, false, 900)));
+            }
+            idEquipe = equipeRepository.save(equipe).getIdEquipe();
+        });
+        etudiantService.recalculerCompteursContrats();
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testPageContrats() {
+        CursorPage<ContratVue> page = sql.auPlus(1, () -> contratService.retrieveContratsPage(null, NB_ETUDIANTS * 3));
+        assertEquals(NB_ETUDIANTS * 3, page.getContent().size());
+    }
+
+    @Test
+    public void testAllContrats() {
+        List<ContratVue> contrats = sql.auPlus(1, () -> contratService.retrieveAllContrats());
+        assertTrue(contrats.size() >= NB_ETUDIANTS * 3);
+    }
+
+    @Test
+    public void testContratsChevauchant() {
+        Date jour = date(LocalDate.now().minusDays(1));
+        contratService.retrieveContratsChevauchant(jour, jour, Specialite.IA, null);
+        // the interval index is loaded: only the contracts are read
+        List<ContratVue> contrats = sql.auPlus(1, () -> contratService.retrieveContratsChevauchant(jour, jour, Specialite.IA, null));
+        assertTrue(contrats.size() >= NB_ETUDIANTS);
+    }
+
+    @Test
+    public void testEtudiantsByDepartement() {
+        List<EtudiantVue> parDepartement = sql.auPlus(1, () -> etudiantService.getEtudiantsByDepartement(departement.getIdDepart()));
+        assertEquals(NB_ETUDIANTS, parDepartement.size());
+    }
+
+    @Test
+    public void testEquipe() {
+        // the detail comes with the equipe, in the same select
+        EquipeVue equipe = sql.auPlus(1, () -> equipeService.retrieveEquipe(idEquipe));
+        assertEquals("Budget", equipe.detailEquipe().thematique());
+    }
+
+    @Test
+    public void testEvoluerEquipes() {
+        // teams of its own: the seeded one is no longer eligible once testRetrieveAndUpdateStatusContrat has run
+        List<Integer> eligibles = new ArrayList<>();
+        for (Niveau niveau : List.of(Niveau.JUNIOR, Niveau.JUNIOR, Niveau.SENIOR, Niveau.SENIOR)) {
+            eligibles.add(creerEquipeEligible(niveau));
+        }
+        // one aggregate select, one update per level
+        List<PromotionEquipe> promotions = sql.auPlus(Niveau.values().length, () -> equipeService.evoluerEquipes());
+        assertEquals(2, nbInstructions("update equipe "), String.join("\n", sql.dernier().resume()));
+        assertTrue(promotions.stream().map(PromotionEquipe::getIdEquipe).collect(Collectors.toSet()).containsAll(eligibles),
+                promotions.toString());
+    }
+
+    /** A team whose 3 students hold a contract ended 3 years ago and still not archived. */
+    private Integer creerEquipeEligible(Niveau niveau) {
+        return donnees.creer(() -> {
+            Equipe equipe = new Equipe(nom("Budget"), niveau);
+            equipe.setEtudiants(new HashSet<>());
+            for (int i = 0; i < 3; i++) {
+                Etudiant etudiant = etudiantRepository.save(new Etudiant(nom("Budget"), "P" + i));
+                Contrat ancien = new Contrat(date(LocalDate.now().minusYears(4)), date(LocalDate.now().minusYears(3)),
+                        Specialite.CLOUD, false, 800);
+                ancien.setEtudiant(etudiant);
+                contratRepository.save(ancien);
+                equipe.getEtudiants().add(etudiant);
+            }
+            return equipeRepository.save(equipe).getIdEquipe();
+        });
+    }
+
+    @Test
+    public void testRenewContract() {
+        // contract and student, the archived contract and its counters with the version, the renewed contract and its counters
+        sql.auPlus(6, () -> contratService.renewContract(renouvelables.get(0).getIdContrat(), 12));
+    }
+
+    @Test
+    public void testRenewContracts() {
+        List<DemandeRenouvellement> demandes = renouvelables.subList(1, NB_ETUDIANTS).stream()
+                .map(contrat -> new DemandeRenouvellement(contrat.getIdContrat(), 12))
+                .toList();
+        // contracts and students, the archived contracts, the new ones, the counters: independent of the number of contracts
+        RenouvellementReport rapport = sql.auPlus(5, () -> contratService.renewContracts(demandes));
+        assertEquals(NB_ETUDIANTS - 1, rapport.getNbRenouveles());
+    }
+
+    @Test
+    public void testAffectContratToEtudiant() {
+        Etudiant etudiant = etudiants.get(1);
+        // the student's id, the student, the contract, then the two UPDATEs
+        sql.auPlus(5, () -> contratService.affectContratToEtudiant(libres.get(0).getIdContrat(), etudiant.getNomE(), etudiant.getPrenomE()));
+        // one UPDATE for the contract and one for the student, all tables together
+        assertEquals(2, nbInstructions("update "), String.join("\n", sql.dernier().resume()));
+        // the contract's changed columns only: no merge of the whole row and its student
+        List<String> updates = instructions("update contrat ");
+        assertEquals(1, updates.size());
+        assertFalse(updates.get(0).contains("montant_contrat"), updates.get(0));
+        // the counters and the version check in the same statement, no separate version bump
+        updates = instructions("update etudiant ");
+        assertEquals(1, updates.size());
+        assertTrue(updates.get(0).contains("nb_contrats_actifs") && updates.get(0).contains("version=version+"), updates.get(0));
+    }
+
+    @Test
+    public void testAssignEtudiantToDepartement() {
+        Integer idEtudiant = etudiantRepository.save(new Etudiant(nom("Budget"), "D")).getIdEtudiant();
+        Integer idDepart = departementRepository.save(new Departement(nom("Budget"))).getIdDepart();
+        // the student, then one UPDATE of its foreign key: the department is not read, the contracts are not merged
+        sql.auPlus(2, () -> etudiantService.assignEtudiantToDepartement(idEtudiant, idDepart));
+        List<String> updates = instructions("update etudiant ");
+        assertEquals(1, updates.size());
+        assertFalse(updates.get(0).contains("nome"), updates.get(0));
+        assertEquals(idDepart, etudiantRepository.findById(idEtudiant).get().getDepartement().getIdDepart());
+    }
+
+    @Test
+    public void testAssignUniversiteToDepartement() {
+        Integer idUniv = universiteRepository.save(new Universite(nom("Budget"))).getIdUniv();
+        Integer idDepart = departementRepository.save(new Departement(nom("Budget"))).getIdDepart();
+        Integer autre = departementRepository.save(new Departement(nom("Budget"))).getIdDepart();
+        universiteService.assignUniversiteToDepartement(idUniv, autre);
+        // one INSERT of the join row, whatever the number of departments already there
+        sql.auPlus(1, () -> universiteService.assignUniversiteToDepartement(idUniv, idDepart));
+        assertEquals(1, instructions("INSERT INTO universite_departements").size());
+        // a department already there is no error, an unknown one is
+        universiteService.assignUniversiteToDepartement(idUniv, idDepart);
+        assertThrows(IllegalArgumentException.class, () -> universiteService.assignUniversiteToDepartement(idUniv, -1));
+        assertEquals(Set.of(autre, idDepart), transactionTemplate.execute(status -> universiteService.retrieveDepartementsByUniversite(idUniv)
+                .stream().map(Departement::getIdDepart).collect(Collectors.toSet())));
+    }
+
+    /** The statements of the last call that start with {@code debut}. */
+    private List<String> instructions(String debut) {
+        return sql.dernier().parForme().keySet().stream().filter(forme -> forme.startsWith(debut)).collect(Collectors.toList());
+    }
+
+    /** How many statements of the last call start with {@code debut}, the repeated ones included. */
+    private int nbInstructions(String debut) {
+        return sql.dernier().parForme().entrySet().stream().filter(forme -> forme.getKey().startsWith(debut))
+                .mapToInt(Map.Entry::getValue).sum();
+    }
+
+    @Test
+    public void testRetrieveAndUpdateStatusContrat() {
+        // bulk archive and counters, then the contracts ending in 15 days: independent of the number of contracts
+        sql.auPlus(3, () -> contratService.retrieveAndUpdateStatusContrat());
+    }
+}
@@ -0,0 +1,148 @@
+package tn.esprit.spring.kaddem.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.config.CompteurInstructionsSql;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.DetailEquipe;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.DepartementRepository;
+import tn.esprit.spring.kaddem.repositories.EquipeRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.function.Supplier;
+
+import static tn.esprit.spring.kaddem.support.DonneesTest.date;
+
+/**
+ * Heap allocated and SQL statements per call of the list endpoints, entities (managed, in a read-write
+ * transaction, as before the read models) against the records of the services, JSON included. Not part
+ * of the regular build: {@code mvn test -Dtest=ProjectionsLectureBenchmarkTest -Dkaddem.benchmark=true}
+ * (-Dkaddem.benchmark.lignes=... for the number of students, one contract each).
+ */
+@SpringBootTest
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "kaddem.benchmark", matches = "true")
+@Slf4j
+public class ProjectionsLectureBenchmarkTest {
+    private static final int ITERATIONS = 50;
+
+    @Autowired
+    private IContratService contratService;
+    @Autowired
+    private IEtudiantService etudiantService;
+    @Autowired
+    private IEquipeService equipeService;
+    @Autowired
+    private ContratRepository contratRepository;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private DepartementRepository departementRepository;
+    @Autowired
+    private EquipeRepository equipeRepository;
+    @Autowired
+    private CompteurInstructionsSql compteurInstructionsSql;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private DonneesTest donnees;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    public void benchmarkEntitesContreVues() {
+        int nbLignes = Integer.getInteger("kaddem.benchmark.lignes", 2000);
+        Integer idDepart = seed(nbLignes);
+
+        comparer("retrieve-all-contrats", contratRepository::findAll, contratService::retrieveAllContrats);
+        comparer("retrieve-all-etudiants", etudiantRepository::findAll, etudiantService::retrieveAllEtudiants);
+        comparer("getEtudiantsByDepartement", () -> departementRepository.findById(idDepart).get().getEtudiants(),
+                () -> etudiantService.getEtudiantsByDepartement(idDepart));
+        comparer("retrieve-all-equipes", equipeRepository::findAll, equipeService::retrieveAllEquipes);
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    private void comparer(String endpoint, Supplier<Object> entites, Supplier<Object> vues) {
+        Mesure avant = mesurer(() -> transactionTemplate.execute(status -> json(entites.get())));
+        Mesure apres = mesurer(() -> json(vues.get()));
+        log.info("{}: entities {} KB, {} statements; records {} KB, {} statements (per call)",
+                endpoint, avant.octets / 1024, avant.instructions, apres.octets / 1024, apres.instructions);
+    }
+
+    private Mesure mesurer(Supplier<byte[]> appel) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // warm-up
+        for (int i = 0; i < ITERATIONS; i++) {
+            appel.get();
+        }
+        long instructions;
+        long debut = threads.getCurrentThreadAllocatedBytes();
+        try (CompteurInstructionsSql.Comptage comptage = compteurInstructionsSql.demarrer()) {
+            for (int i = 0; i < ITERATIONS; i++) {
+                appel.get();
+            }
+            instructions = comptage.total();
+        }
+        return new Mesure((threads.getCurrentThreadAllocatedBytes() - debut) / ITERATIONS, instructions / ITERATIONS);
+    }
+
+    private byte[] json(Object valeur) {
+        try {
+            return objectMapper.writeValueAsBytes(valeur);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Integer seed(int nbLignes) {
+        return donnees.creer(() -> {
+            Departement departement = departementRepository.save(new Departement("Projection"));
+            for (int i = 0; i < nbLignes; i++) {
+                Etudiant etudiant = new Etudiant("Nom" + i, "Prenom" + i);
+                etudiant.setDepartement(departement);
+                etudiant = etudiantRepository.save(etudiant);
+                Contrat contrat = new Contrat(date(LocalDate.now().minusDays(i % 365)), date(LocalDate.now().plusDays(i % 365)),
+                        Specialite.values()[i % Specialite.values().length], false, 100 + i);
+                contrat.setEtudiant(etudiant);
+                contratRepository.save(contrat);
+                if (i % 10 == 0) {
+                    DetailEquipe detailEquipe = new DetailEquipe(i, "Thematique" + i);
+                    entityManager.persist(detailEquipe);
+                    Equipe equipe = new Equipe("Equipe" + i, Niveau.values()[i % Niveau.values().length]);
+                    equipe.setDetailEquipe(detailEquipe);
+                    equipeRepository.save(equipe);
+                }
+            }
+            return departement.getIdDepart();
+        });
+    }
+
+    private record Mesure(long octets, long instructions) {}
+}
@@ -0,0 +1,120 @@
+package tn.esprit.spring.kaddem.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.entities.DetailEquipe;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.DepartementRepository;
+import tn.esprit.spring.kaddem.repositories.EquipeRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.support.DonneesTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static tn.esprit.spring.kaddem.support.DonneesTest.date;
+import static tn.esprit.spring.kaddem.support.DonneesTest.nom;
+
+/**
+ * The read models of the list and lookup endpoints give the JSON the entities gave, field for field.
+ */
+@SpringBootTest
+@Import(DonneesTest.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ProjectionsLectureTest {
+    @Autowired
+    private IContratService contratService;
+    @Autowired
+    private IEtudiantService etudiantService;
+    @Autowired
+    private IEquipeService equipeService;
+    @Autowired
+    private ContratRepository contratRepository;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private DepartementRepository departementRepository;
+    @Autowired
+    private EquipeRepository equipeRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private DonneesTest donnees;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Departement departement;
+    private Etudiant etudiant;
+    private Contrat contrat;
+    private Contrat contratSansEtudiant;
+    private Equipe equipe;
+    private Equipe equipeSansDetail;
+
+    @BeforeAll
+    public void seed() {
+        donnees.creer(() -> {
+            departement = departementRepository.save(new Departement(nom("Projection")));
+            etudiant = new Etudiant(nom("Projection"), "E", Option.SIM);
+            etudiant.setDepartement(departement);
+            etudiant = etudiantRepository.save(etudiant);
+            contrat = new Contrat(date(LocalDate.now().minusMonths(2)), date(LocalDate.now().plusMonths(4)), Specialite.SECURITE, false, 700);
+            contrat.setEtudiant(etudiant);
+            contrat = contratRepository.save(contrat);
+            contratSansEtudiant = contratRepository.save(new Contrat(date(LocalDate.now()), null, Specialite.IA, null, null));
+            DetailEquipe detailEquipe = new DetailEquipe(4, "Projection");
+            entityManager.persist(detailEquipe);
+            equipe = new Equipe(nom("Projection"), Niveau.EXPERT);
+            equipe.setDetailEquipe(detailEquipe);
+            equipe = equipeRepository.save(equipe);
+            equipeSansDetail = equipeRepository.save(new Equipe(nom("Projection"), Niveau.SENIOR));
+        });
+        etudiantService.recalculerCompteursContrats();
+    }
+
+    @AfterAll
+    public void nettoyer() {
+        donnees.vider();
+    }
+
+    @Test
+    public void testMemeJsonQueLesEntites() {
+        assertMemeJson(() -> contratRepository.findById(contrat.getIdContrat()).get(),
+                contratService.retrieveContrat(contrat.getIdContrat()));
+        assertMemeJson(() -> contratRepository.findById(contratSansEtudiant.getIdContrat()).get(),
+                contratService.retrieveContrat(contratSansEtudiant.getIdContrat()));
+        assertMemeJson(() -> etudiantRepository.findById(etudiant.getIdEtudiant()).get(),
+                etudiantService.retrieveEtudiant(etudiant.getIdEtudiant()));
+        assertMemeJson(() -> equipeRepository.findById(equipe.getIdEquipe()).get(),
+                equipeService.retrieveEquipe(equipe.getIdEquipe()));
+        assertMemeJson(() -> equipeRepository.findById(equipeSansDetail.getIdEquipe()).get(),
+                equipeService.retrieveEquipe(equipeSansDetail.getIdEquipe()));
+        assertMemeJson(() -> departementRepository.findById(departement.getIdDepart()).get().getEtudiants(),
+                etudiantService.getEtudiantsByDepartement(departement.getIdDepart()));
+    }
+
+    // the entity is serialized in its transaction, as open-in-view did for the controllers
+    private void assertMemeJson(Supplier<Object> entite, Object vue) {
+        Object attendu = transactionTemplate.execute(status -> objectMapper.valueToTree(entite.get()));
+        assertEquals(attendu, objectMapper.valueToTree(vue));
+    }
+}
@@ -0,0 +1,100 @@
+package tn.esprit.spring.kaddem.support;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.cache.ContratCache;
+import tn.esprit.spring.kaddem.cache.IndexContratsValides;
+import tn.esprit.spring.kaddem.cache.IndexPeriodesContrats;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Universite;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Fixtures of the integration tests that commit their data (the calls under test run their own
+ * transactions, bulk statements included). The tests run on the schema of
+ * {@code src/test/resources/config/application.properties}, which each class leaves empty:
+ * <pre>
+ * &#64;SpringBootTest
+ * &#64;Import(DonneesTest.class)
+ * &#64;TestInstance(TestInstance.Lifecycle.PER_CLASS)
+ * ...
+ * &#64;BeforeAll
+ * public void seed() {
+ *     donnees.creer(() -&gt; ...);
+ * }
+ *
+ * &#64;AfterAll
+ * public void nettoyer() {
+ *     donnees.vider();
+ * }
+ * </pre>
+ */
+@TestComponent
+public class DonneesTest {
+    /** The only schema {@link #vider()} empties. */
+    public static final String SCHEMA = "kaddemtest";
+
+    // children first: the foreign keys have no ON DELETE
+    private static final List<String> TABLES = List.of(Equipe.TABLE_ETUDIANTS, Universite.TABLE_DEPARTEMENTS,
+            "contrat", "equipe", "detail_equipe", "universite", "etudiant", "departement");
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ContratCache contratCache;
+    @Autowired
+    private IndexContratsValides indexContratsValides;
+    @Autowired
+    private IndexPeriodesContrats indexPeriodesContrats;
+
+    /** Runs {@code seed} in a transaction of its own, committed on return; returns its result. */
+    public <T> T creer(Supplier<T> seed) {
+        return transactionTemplate.execute(status -> seed.get());
+    }
+
+    public void creer(Runnable seed) {
+        transactionTemplate.executeWithoutResult(status -> seed.run());
+    }
+
+    /**
+     * Deletes every row of the test schema: the fixtures and whatever the services derived from them
+     * (renewals, imports...). Then drops what the caches and the in-memory indexes still hold of them.
+     */
+    public void vider() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Object schema = entityManager.createNativeQuery("SELECT DATABASE()").getSingleResult();
+            if (!SCHEMA.equals(schema)) {
+                throw new IllegalStateException("Refusing to empty " + schema + ": the tests run on " + SCHEMA);
+            }
+            for (String table : TABLES) {
+                entityManager.createNativeQuery("DELETE FROM " + table).executeUpdate();
+            }
+        });
+        entityManagerFactory.getCache().evictAll();
+        contratCache.getCache().invalidateAll();
+        indexContratsValides.invalider();
+        indexPeriodesContrats.invalider();
+    }
+
+    /** {@code prefixe} made unique, for the names the tests look their rows up by. */
+    public static String nom(String prefixe) {
+        return prefixe + System.nanoTime();
+    }
+
+    public static Date date(LocalDate jour) {
+        return Date.from(jour.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}